@@ -36,6 +36,17 @@ public class CsvFileReader {
 		return line.split(",");
 	}
 
+    // Reuses the given record instead of splitting the line, null at the end of the file
+    public CsvRecord readRecord(CsvRecord record) {
+        lineNumber++;
+        String line = readLine();
+        if (null == line) {
+            return null;
+        }
+
+        return record.parse(line);
+    }
+
 	public void close() {
 		try {
             reader.close();
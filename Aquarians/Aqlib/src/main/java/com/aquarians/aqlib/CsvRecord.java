@@ -0,0 +1,218 @@
+/*
+    MIT License
+
+    Copyright (c) 2020 Mihai Bunea
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+
+package com.aquarians.aqlib;
+
+import java.util.Arrays;
+
+/**
+ * Columns of a CSV line, located in place instead of splitting the line into strings.
+ * Numbers and days are parsed straight from the line characters. The last day parsed from each column
+ * is kept, rows of the same file usually repeat the same dates.
+ */
+public class CsvRecord {
+
+    private static final int MAX_EXACT_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final char separator;
+    private String line;
+    private int count;
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+
+    // Per column cache of the last parsed day
+    private String[] dayTexts = new String[16];
+    private Day[] days = new Day[16];
+
+    public CsvRecord() {
+        this(',');
+    }
+
+    public CsvRecord(char separator) {
+        this.separator = separator;
+    }
+
+    public CsvRecord parse(String line) {
+        this.line = line;
+        count = 0;
+
+        int start = 0;
+        int length = line.length();
+        while (true) {
+            int end = line.indexOf(separator, start);
+            if (end < 0) {
+                end = length;
+            }
+
+            add(start, end);
+            if (end == length) {
+                break;
+            }
+            start = end + 1;
+        }
+
+        return this;
+    }
+
+    private void add(int start, int end) {
+        if (count == starts.length) {
+            int capacity = count * 2;
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            dayTexts = Arrays.copyOf(dayTexts, capacity);
+            days = Arrays.copyOf(days, capacity);
+        }
+
+        starts[count] = start;
+        ends[count] = end;
+        count++;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public String getLine() {
+        return line;
+    }
+
+    private void checkColumn(int column) {
+        if ((column < 0) || (column >= count)) {
+            throw new ArrayIndexOutOfBoundsException("Column " + column + " of " + count + ": " + line);
+        }
+    }
+
+    public String getString(int column) {
+        checkColumn(column);
+        return line.substring(starts[column], ends[column]);
+    }
+
+    public boolean isEmpty(int column) {
+        checkColumn(column);
+        return starts[column] == ends[column];
+    }
+
+    // Case insensitive comparison without extracting the column
+    public boolean equalsIgnoreCase(int column, String text) {
+        checkColumn(column);
+        int length = ends[column] - starts[column];
+        return (length == text.length()) && line.regionMatches(true, starts[column], text, 0, length);
+    }
+
+    public double getDouble(int column) {
+        checkColumn(column);
+        return parseDouble(line, starts[column], ends[column]);
+    }
+
+    public long getLong(int column) {
+        checkColumn(column);
+        return parseLong(line, starts[column], ends[column]);
+    }
+
+    public Day getDay(int column, String format) {
+        checkColumn(column);
+        int start = starts[column];
+        int end = ends[column];
+
+        String cached = dayTexts[column];
+        if ((cached != null) && (cached.length() == end - start) && line.regionMatches(start, cached, 0, end - start)) {
+            return days[column];
+        }
+
+        Day day = Day.parse(line, start, end, format);
+        dayTexts[column] = line.substring(start, end);
+        days[column] = day;
+        return day;
+    }
+
+    // Same result as Double.parseDouble() on the characters from start to end
+    public static double parseDouble(CharSequence text, int start, int end) {
+        int pos = start;
+        boolean negative = false;
+        if ((pos < end) && ((text.charAt(pos) == '-') || (text.charAt(pos) == '+'))) {
+            negative = (text.charAt(pos) == '-');
+            pos++;
+        }
+
+        long mantissa = 0;
+        boolean hasDigits = false;
+        int digits = 0;
+        int decimals = -1;
+        for (; pos < end; pos++) {
+            char c = text.charAt(pos);
+            if ((c >= '0') && (c <= '9')) {
+                hasDigits = true;
+                if ((mantissa > 0) || (c != '0')) {
+                    digits++;
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (decimals >= 0) {
+                    decimals++;
+                }
+            } else if ((c == '.') && (decimals < 0)) {
+                decimals = 0;
+            } else {
+                break;
+            }
+        }
+
+        // Exponents, blanks, too many digits: leave them to the library
+        if (!hasDigits || (pos < end) || (digits > MAX_EXACT_DIGITS) || (decimals >= POWERS_OF_TEN.length)) {
+            return Double.parseDouble(text.subSequence(start, end).toString());
+        }
+
+        // Both values are exact doubles so the division is correctly rounded
+        double value = (decimals > 0) ? mantissa / POWERS_OF_TEN[decimals] : mantissa;
+        return negative ? -value : value;
+    }
+
+    public static long parseLong(CharSequence text, int start, int end) {
+        int pos = start;
+        boolean negative = false;
+        if ((pos < end) && ((text.charAt(pos) == '-') || (text.charAt(pos) == '+'))) {
+            negative = (text.charAt(pos) == '-');
+            pos++;
+        }
+
+        if ((pos == end) || (end - pos > 18)) {
+            return Long.parseLong(text.subSequence(start, end).toString());
+        }
+
+        long value = 0;
+        for (; pos < end; pos++) {
+            char c = text.charAt(pos);
+            if ((c < '0') || (c > '9')) {
+                return Long.parseLong(text.subSequence(start, end).toString());
+            }
+            value = value * 10 + (c - '0');
+        }
+
+        return negative ? -value : value;
+    }
+
+}
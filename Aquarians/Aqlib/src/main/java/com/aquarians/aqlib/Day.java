@@ -24,14 +24,7 @@
 
 package com.aquarians.aqlib;
 
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Date;
-
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Date;
-
+import java.text.DateFormatSymbols;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
@@ -44,45 +37,65 @@ public class Day implements Comparable<Day> {
     public static final String FORMAT_YYYY_MM_DD = "yyyy-MM-dd";
     public static final long MILLIS_IN_DAY = 24 * 3600 * 1000;
 
+    // Days since 1970-Jan-01, the year, month and day are derived from it
+    private final int epochDay;
     private final int year;
     private final int month;
     private final int day;
 
-    // Distance between trading days (ex: from friday to monday = 1 day)
-    // Indexes as follows:
-    // Calendar.MONDAY -> 0
-    // Calendar.TUESDAY -> 1
-    // Calendar.WEDNESDAY -> 2
-    // Calendar.THURSDAY -> 3
-    // Calendar.FRIDAY -> 4
-    private static final int[][] WEEKDAYS_DISTANCE = {
-            {0, 1, 2, 3, 4},
-            {4, 0, 1, 2, 3},
-            {3, 4, 0, 1, 2},
-            {2, 3, 4, 0, 1},
-            {1, 2, 3, 4, 0}
-    };
-
-    // How many calendar days to add to a weekday
-    private static final int[][] CALENDARDAYS_TO_ADD = {
-            {0, 1, 2, 3, 4},
-            {0, 1, 2, 3, 6},
-            {0, 1, 2, 5, 6},
-            {0, 1, 4, 5, 6},
-            {0, 3, 4, 5, 6}
-    };
+    // 1970-Jan-01 was a thursday
+    private static final int EPOCH_WEEKDAY_INDEX = 3;
+    // A monday, origin of the trading day ordinals
+    private static final int FIRST_MONDAY = -7304; // 1950-Jan-02
+    private static final int TABLE_DAYS = 55151; // Up to 2100-Dec-31
+
+    // Trading day ordinal of each calendar day from FIRST_MONDAY, a weekend day gets the ordinal of the next monday
+    private static final int[] TRADING_ORDINALS = new int[TABLE_DAYS];
+    // Epoch day of each trading day ordinal
+    private static final int[] TRADING_DAYS;
+
+    private static final String[] MONTH_NAMES = new DateFormatSymbols().getShortMonths();
+
+    static {
+        int ordinal = 0;
+        for (int i = 0; i < TABLE_DAYS; i++) {
+            TRADING_ORDINALS[i] = ordinal;
+            if (!isWeekend(FIRST_MONDAY + i)) {
+                ordinal++;
+            }
+        }
+
+        TRADING_DAYS = new int[ordinal];
+        for (int i = 0; i < TABLE_DAYS; i++) {
+            if (!isWeekend(FIRST_MONDAY + i)) {
+                TRADING_DAYS[TRADING_ORDINALS[i]] = FIRST_MONDAY + i;
+            }
+        }
+    }
 
     public Day(Day copy) {
-        this(copy.year, copy.month, copy.day);
+        this(copy.epochDay);
     }
 
+    // Out of range days are rolled over like Calendar does (ex: Feb 30 becomes Mar 1 or 2)
     public Day(int year, int month, int day) {
-        this.year = year;
+        this(toEpochDay(year, checkMonth(month), day));
+    }
+
+    private Day(int epochDay) {
+        this.epochDay = epochDay;
+        int civil = toCivil(epochDay);
+        this.year = civil / 10000;
+        this.month = (civil / 100) % 100;
+        this.day = civil % 100;
+    }
+
+    private static int checkMonth(int month) {
         if (month < 1 || month > 12) {
             throw new RuntimeException("Invalid month");
         }
-        this.month = month;
-        this.day = day;
+
+        return month;
     }
 
     public Day(Calendar calendar) {
@@ -98,14 +111,15 @@ public class Day implements Comparable<Day> {
     }
 
     public Day(String text, String format) {
+        this(parseEpochDay(text, format));
+    }
+
+    private static int parseEpochDay(String text, String format) {
         SimpleDateFormat sdf = new SimpleDateFormat(format);
         try {
             sdf.setTimeZone(AqCalendar.UTC_TIMEZONE);
             Date date = sdf.parse(text);
-            Calendar calendar = new AqCalendar(date.getTime(), AqCalendar.UTC_TIMEZONE);
-            year = calendar.get(Calendar.YEAR);
-            month = calendar.get(Calendar.MONTH) + 1;
-            day = calendar.get(Calendar.DATE);
+            return (int) Math.floorDiv(date.getTime(), MILLIS_IN_DAY);
         } catch (Exception ex) {
             throw new RuntimeException(ex.getMessage());
         }
@@ -113,28 +127,7 @@ public class Day implements Comparable<Day> {
 
     @Override
     public int compareTo(Day that) {
-        if (this.year < that.year) {
-            return -1;
-        }
-        if (this.year > that.year) {
-            return 1;
-        }
-
-        if (this.month < that.month) {
-            return -1;
-        }
-        if (this.month > that.month) {
-            return 1;
-        }
-
-        if (this.day < that.day) {
-            return -1;
-        }
-        if (this.day > that.day) {
-            return 1;
-        }
-
-        return 0;
+        return Integer.compare(this.epochDay, that.epochDay);
     }
 
     @Override
@@ -150,15 +143,20 @@ public class Day implements Comparable<Day> {
         }
 
         Day that = (Day) other;
-        return (0 == this.compareTo(that));
+        return (this.epochDay == that.epochDay);
     }
 
+    // Same text as format(DEFAULT_FORMAT)
     public String toString() {
-        Calendar calendar = toCalendar();
-        SimpleDateFormat df = new SimpleDateFormat(DEFAULT_FORMAT);
-        df.setTimeZone(AqCalendar.UTC_TIMEZONE);
-        String text = df.format(calendar.getTime());
-        return text;
+        StringBuilder builder = new StringBuilder(11);
+        if (year < 1000) {
+            builder.append(year < 10 ? "000" : (year < 100 ? "00" : "0"));
+        }
+        builder.append(year).append('-').append(MONTH_NAMES[month - 1]).append('-');
+        if (day < 10) {
+            builder.append('0');
+        }
+        return builder.append(day).toString();
     }
 
     public String format(String formatText) {
@@ -174,6 +172,39 @@ public class Day implements Comparable<Day> {
         return calendar;
     }
 
+    // Days since 1970-Jan-01
+    public int toEpochDay() {
+        return epochDay;
+    }
+
+    public static Day fromEpochDay(int epochDay) {
+        return new Day(epochDay);
+    }
+
+    // Days from civil algorithm, proleptic gregorian calendar
+    private static int toEpochDay(int year, int month, int day) {
+        int y = (month <= 2) ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    // Inverse of toEpochDay(), returns year * 10000 + month * 100 + day
+    private static int toCivil(int epochDay) {
+        int z = epochDay + 719468;
+        int era = Math.floorDiv(z, 146097);
+        int dayOfEra = z - era * 146097;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int mp = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        int month = (mp < 10) ? mp + 3 : mp - 9;
+        int year = yearOfEra + era * 400 + ((month <= 2) ? 1 : 0);
+        return year * 10000 + month * 100 + day;
+    }
+
     public int getYear() {
         return year;
     }
@@ -196,11 +227,7 @@ public class Day implements Comparable<Day> {
 
     // Counts calendar days from this day to given day
     public int countCalendarDays(Day to) {
-        Calendar thisCalendar = this.toCalendar();
-        Calendar thatCalendar = to.toCalendar();
-        long millis = thatCalendar.getTimeInMillis() - thisCalendar.getTimeInMillis();
-        long days = millis / MILLIS_IN_DAY;
-        return (int) days;
+        return to.epochDay - this.epochDay;
     }
 
     // Counts trading days from this day to given day
@@ -227,27 +254,39 @@ public class Day implements Comparable<Day> {
     }
 
     public int countTradingDaysFast(Day that) {
-        return this.ensureTradingDay().countTradingDaysFastInternal(that.ensureTradingDay());
+        return tradingOrdinal(that.epochDay) - tradingOrdinal(this.epochDay);
     }
 
-    public int countTradingDaysFastInternal(Day that) {
-        int comparison = that.compareTo(this);
-        if (0 == comparison) {
-            return 0;
-        } else if (comparison < 0) {
-            return -that.countTradingDays(this);
+    // Ordinal of the day in the trading calendar, a weekend day gets the ordinal of the next trading day
+    private static int tradingOrdinal(int epochDay) {
+        int index = epochDay - FIRST_MONDAY;
+        if ((index >= 0) && (index < TABLE_DAYS)) {
+            return TRADING_ORDINALS[index];
         }
 
-        int total = this.countCalendarDays(that);
-        int weeks = total / 7;
+        // Outside the table count whole weeks
+        int weeks = Math.floorDiv(index, Util.CALENDAR_DAYS_IN_WEEK);
+        int weekDay = Math.floorMod(index, Util.CALENDAR_DAYS_IN_WEEK);
+        return weeks * Util.TRADING_DAYS_IN_WEEK + Math.min(weekDay, Util.TRADING_DAYS_IN_WEEK);
+    }
 
-        int thisIndex = this.getDayOfWeek() - Calendar.MONDAY;
-        int thatIndex = that.getDayOfWeek() - Calendar.MONDAY;
+    private static int tradingEpochDay(int ordinal) {
+        if ((ordinal >= 0) && (ordinal < TRADING_DAYS.length)) {
+            return TRADING_DAYS[ordinal];
+        }
+
+        int weeks = Math.floorDiv(ordinal, Util.TRADING_DAYS_IN_WEEK);
+        int weekDay = Math.floorMod(ordinal, Util.TRADING_DAYS_IN_WEEK);
+        return FIRST_MONDAY + weeks * Util.CALENDAR_DAYS_IN_WEEK + weekDay;
+    }
 
-        int days = WEEKDAYS_DISTANCE[thisIndex][thatIndex];
+    // Monday is 0, sunday is 6
+    private static int weekdayIndex(int epochDay) {
+        return Math.floorMod(epochDay + EPOCH_WEEKDAY_INDEX, Util.CALENDAR_DAYS_IN_WEEK);
+    }
 
-        int count = weeks * Util.TRADING_DAYS_IN_WEEK + days;
-        return count;
+    private static boolean isWeekend(int epochDay) {
+        return weekdayIndex(epochDay) >= Util.TRADING_DAYS_IN_WEEK;
     }
 
     public Day next() {
@@ -263,11 +302,7 @@ public class Day implements Comparable<Day> {
     }
 
     public Day nextTradingDay() {
-        Day result = next();
-        while (result.isWeekend()) {
-            result = result.next();
-        }
-        return result;
+        return new Day(tradingEpochDay(tradingOrdinal(epochDay + 1)));
     }
 
     public Day previous() {
@@ -275,19 +310,15 @@ public class Day implements Comparable<Day> {
     }
 
     public Day previousTradingDay() {
-        Day result = previous();
-        while (result.isWeekend()) {
-            result = result.previous();
-        }
-        return result;
+        return previousTradingDays(1);
     }
 
     public Day previousTradingDays(int days) {
-        Day result = new Day(this);
-        for (int i = 0; i < days; ++i) {
-            result = result.previousTradingDay();
+        if (days <= 0) {
+            return this;
         }
-        return result;
+
+        return new Day(tradingEpochDay(tradingOrdinal(epochDay) - days));
     }
 
     public Day addDays(int days) {
@@ -295,9 +326,7 @@ public class Day implements Comparable<Day> {
     }
 
     public Day addCalendarDays(int days) {
-        Calendar calendar = toCalendar();
-        calendar.add(Calendar.DATE, days);
-        return new Day(calendar);
+        return new Day(epochDay + days);
     }
 
     public Day addMonths(int months) {
@@ -313,17 +342,7 @@ public class Day implements Comparable<Day> {
             throw new RuntimeException("Cannot start in a weekend: " + this);
         }
 
-        int thisIndex = getDayOfWeek() - Calendar.MONDAY;
-
-        int weeks = days / Util.TRADING_DAYS_IN_WEEK;
-        int thatIndex = days % Util.TRADING_DAYS_IN_WEEK;
-        int weekDays = CALENDARDAYS_TO_ADD[thisIndex][thatIndex];
-        int calendarDays = weeks * Util.CALENDAR_DAYS_IN_WEEK + weekDays;
-
-        Calendar calendar = toCalendar();
-        calendar.add(Calendar.DATE, calendarDays);
-
-        return new Day(calendar);
+        return new Day(tradingEpochDay(tradingOrdinal(epochDay) + days));
     }
 
     public Day addTradingDays(int days) {
@@ -355,19 +374,12 @@ public class Day implements Comparable<Day> {
     }
 
     public boolean isWeekend() {
-        Calendar calendar = toCalendar();
-        int dayOfWeek = calendar.get(Calendar.DAY_OF_WEEK);
-        if ((dayOfWeek == Calendar.SATURDAY) || (dayOfWeek == Calendar.SUNDAY)) {
-            return true;
-        }
-
-        return false;
+        return isWeekend(epochDay);
     }
 
+    // One of Calendar.SUNDAY ... Calendar.SATURDAY
     public int getDayOfWeek() {
-        Calendar calendar = toCalendar();
-        int dayOfWeek = calendar.get(Calendar.DAY_OF_WEEK);
-        return dayOfWeek;
+        return (weekdayIndex(epochDay) + 1) % Util.CALENDAR_DAYS_IN_WEEK + Calendar.SUNDAY;
     }
 
     public Day rollToTradingDay(boolean isFollowing) {
@@ -383,7 +395,7 @@ public class Day implements Comparable<Day> {
     }
 
     public String getDayName() {
-        switch (toCalendar().get(Calendar.DAY_OF_WEEK)) {
+        switch (getDayOfWeek()) {
             case Calendar.MONDAY:
                 return "MONDAY";
 
@@ -413,4 +425,95 @@ public class Day implements Comparable<Day> {
         return new Day(text);
     }
 
+    // Parses the characters from start to end, US_FORMAT, FORMAT_YYYY_MM_DD and FORMAT_YYYYMMDD without
+    // creating a date format. Anything else, or text these don't recognize, goes through SimpleDateFormat.
+    public static Day parse(CharSequence text, int start, int end, String format) {
+        int civil = -1;
+        if (US_FORMAT.equals(format)) {
+            civil = parseFields(text, start, end, '/', 1, 2, 0);
+        } else if (FORMAT_YYYY_MM_DD.equals(format)) {
+            civil = parseFields(text, start, end, '-', 0, 1, 2);
+        } else if (FORMAT_YYYYMMDD.equals(format) && (end - start == 8)) {
+            int value = parseNumber(text, start, end);
+            if (value >= 0) {
+                civil = parseFields(value / 10000, (value / 100) % 100, value % 100);
+            }
+        }
+
+        if (civil < 0) {
+            return new Day(text.subSequence(start, end).toString(), format);
+        }
+
+        return new Day(civil / 10000, (civil / 100) % 100, civil % 100);
+    }
+
+    // Three numbers separated by the given character, in the given order of year, month and day.
+    // Returns year * 10000 + month * 100 + day or -1 if the text doesn't match.
+    private static int parseFields(CharSequence text, int start, int end, char separator, int yearIndex, int monthIndex, int dayIndex) {
+        int first = -1;
+        int second = -1;
+        for (int pos = start; pos < end; pos++) {
+            if (text.charAt(pos) != separator) {
+                continue;
+            }
+
+            if (first < 0) {
+                first = pos;
+            } else if (second < 0) {
+                second = pos;
+            } else {
+                return -1;
+            }
+        }
+
+        if (second < 0) {
+            return -1;
+        }
+
+        int year = parseField(text, start, first, end, second, yearIndex, 4);
+        int month = parseField(text, start, first, end, second, monthIndex, 2);
+        int day = parseField(text, start, first, end, second, dayIndex, 2);
+        if ((year < 0) || (month < 0) || (day < 0)) {
+            return -1;
+        }
+
+        return parseFields(year, month, day);
+    }
+
+    private static int parseField(CharSequence text, int start, int first, int end, int second, int index, int maxDigits) {
+        int from = (0 == index) ? start : ((1 == index) ? first + 1 : second + 1);
+        int to = (0 == index) ? first : ((1 == index) ? second : end);
+        if (to - from > maxDigits) {
+            return -1;
+        }
+
+        return parseNumber(text, from, to);
+    }
+
+    private static int parseFields(int year, int month, int day) {
+        if ((month < 1) || (month > 12) || (day < 1) || (day > 31)) {
+            return -1;
+        }
+
+        return year * 10000 + month * 100 + day;
+    }
+
+    // Unsigned decimal number, -1 if empty or not a number
+    private static int parseNumber(CharSequence text, int start, int end) {
+        if (start == end) {
+            return -1;
+        }
+
+        int value = 0;
+        for (int pos = start; pos < end; pos++) {
+            char c = text.charAt(pos);
+            if ((c < '0') || (c > '9')) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+
+        return value;
+    }
+
 }
@@ -26,6 +26,8 @@ package com.aquarians.aqlib;
 
 import java.text.DecimalFormat;
 
+// Strike and prices are kept as primitives, a missing value is NaN. The boxed getters and setters
+// map NaN to null for the existing callers, the primitive ones don't allocate and suit the hot loops.
 public class Instrument {
 
     private static final DecimalFormat DOUBLE_DIGIT_FORMAT = new DecimalFormat("###.##");
@@ -36,19 +38,75 @@ public class Instrument {
         PARITY // "Call-Put" parity relationship
     }
 
+    // Reusable holder of bid and ask, NaN when missing
+    public static final class Quote {
+        public double bid = Double.NaN;
+        public double ask = Double.NaN;
+
+        public Quote set(double bid, double ask) {
+            this.bid = bid;
+            this.ask = ask;
+            return this;
+        }
+
+        public Quote clear() {
+            return set(Double.NaN, Double.NaN);
+        }
+
+        public boolean hasBid() {
+            return !Double.isNaN(bid);
+        }
+
+        public boolean hasAsk() {
+            return !Double.isNaN(ask);
+        }
+
+        // NaN unless both bid and ask
+        public double getMid() {
+            return (bid + ask) / 2.0;
+        }
+
+        // NaN unless both bid and ask
+        public double getSpread() {
+            return ask - bid;
+        }
+
+        // Mid, otherwise whichever of bid and ask is present
+        public double getPrice() {
+            if (Double.isNaN(bid)) {
+                return ask;
+            } else if (Double.isNaN(ask)) {
+                return bid;
+            }
+
+            return (bid + ask) / 2.0;
+        }
+    }
+
     private final Type type;
     private final String code;
-    private final Boolean call;
+    // Set only for options
+    private final boolean hasSide;
+    private final boolean call;
     private final Day maturity;
-    private final Double strike;
+    private final double strike;
 
-    private Double bidPrice;
-    private Double askPrice;
+    private double bidPrice = Double.NaN;
+    private double askPrice = Double.NaN;
 
     public Instrument(Type type, String code, Boolean isCall, Day maturity, Double strike) {
+        this(type, code, null != isCall, (null != isCall) && isCall, maturity, (null != strike) ? strike : Double.NaN);
+    }
+
+    public Instrument(Type type, String code, boolean isCall, Day maturity, double strike) {
+        this(type, code, true, isCall, maturity, strike);
+    }
+
+    private Instrument(Type type, String code, boolean hasSide, boolean call, Day maturity, double strike) {
         this.type = type;
         this.code = code;
-        this.call = isCall;
+        this.hasSide = hasSide;
+        this.call = call;
         this.maturity = maturity;
         this.strike = strike;
     }
@@ -64,8 +122,8 @@ public class Instrument {
         if (code != null) {
             text += " " + code;
         }
-        text += " B: " + (bidPrice != null ? DOUBLE_DIGIT_FORMAT.format(bidPrice) : "-");
-        text += " A: " + (askPrice != null ? DOUBLE_DIGIT_FORMAT.format(askPrice) : "-");
+        text += " B: " + (hasBid() ? DOUBLE_DIGIT_FORMAT.format(bidPrice) : "-");
+        text += " A: " + (hasAsk() ? DOUBLE_DIGIT_FORMAT.format(askPrice) : "-");
         return text;
     }
 
@@ -78,10 +136,15 @@ public class Instrument {
     }
 
     public Boolean isCall() {
-        return call;
+        return hasSide ? call : null;
     }
 
     public Double getStrike() {
+        return toBoxed(strike);
+    }
+
+    // NaN if no strike
+    public double getStrikeValue() {
         return strike;
     }
 
@@ -89,36 +152,69 @@ public class Instrument {
         return maturity;
     }
 
-    public Double getBidPrice() {
+    public boolean hasBid() {
+        return !Double.isNaN(bidPrice);
+    }
+
+    public boolean hasAsk() {
+        return !Double.isNaN(askPrice);
+    }
+
+    // NaN if no bid
+    public double getBid() {
         return bidPrice;
     }
 
-    public void setBidPrice(Double bidPrice) {
+    // NaN if no ask
+    public double getAsk() {
+        return askPrice;
+    }
+
+    // NaN clears the price
+    public void setBid(double bidPrice) {
         this.bidPrice = bidPrice;
     }
 
+    // NaN clears the price
+    public void setAsk(double askPrice) {
+        this.askPrice = askPrice;
+    }
+
+    public Quote getQuote(Quote quote) {
+        return quote.set(bidPrice, askPrice);
+    }
+
+    public void setQuote(Quote quote) {
+        bidPrice = quote.bid;
+        askPrice = quote.ask;
+    }
+
+    public Double getBidPrice() {
+        return toBoxed(bidPrice);
+    }
+
+    public void setBidPrice(Double bidPrice) {
+        this.bidPrice = toPrimitive(bidPrice);
+    }
+
     public Double getAskPrice() {
-        return askPrice;
+        return toBoxed(askPrice);
     }
 
     public Double getSpread() {
-        if ((null == askPrice) || (null == bidPrice)) {
-            return null;
-        }
-
-        return (askPrice - bidPrice);
+        return toBoxed(askPrice - bidPrice);
     }
 
     public void setAskPrice(Double askPrice) {
-        this.askPrice = askPrice;
+        this.askPrice = toPrimitive(askPrice);
     }
 
     public Double getPrice() {
-        if ((null != bidPrice) && (null != askPrice)) {
+        if (hasBid() && hasAsk()) {
             return (bidPrice + askPrice) / 2.0;
-        } else if (null != bidPrice) {
+        } else if (hasBid()) {
             return bidPrice;
-        } else if (null != askPrice) {
+        } else if (hasAsk()) {
             return askPrice;
         }
 
@@ -126,22 +222,26 @@ public class Instrument {
     }
 
     public Double getMidPrice() {
-        if ((null != bidPrice) && (null != askPrice)) {
-            return (bidPrice + askPrice) / 2.0;
-        }
-
-        return null;
+        return toBoxed((bidPrice + askPrice) / 2.0);
     }
 
     public void setPrice(double price) {
-        setBidPrice(price);
-        setAskPrice(price);
+        bidPrice = price;
+        askPrice = price;
     }
 
     public Instrument clone() {
-        Instrument instrument = new Instrument(type, code, call, maturity, strike);
+        Instrument instrument = new Instrument(type, code, hasSide, call, maturity, strike);
         instrument.bidPrice = bidPrice;
         instrument.askPrice = askPrice;
         return instrument;
     }
+
+    private static Double toBoxed(double value) {
+        return Double.isNaN(value) ? null : value;
+    }
+
+    private static double toPrimitive(Double value) {
+        return (null != value) ? value : Double.NaN;
+    }
 }
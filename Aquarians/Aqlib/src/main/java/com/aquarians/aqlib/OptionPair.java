@@ -48,13 +48,9 @@ public class OptionPair implements Comparable<OptionPair> {
     }
 
     public boolean isEmpty() {
-        Double callPrice = (call != null) ? call.getPrice() : null;
-        Double putPrice = (put != null) ? put.getPrice() : null;
-        if ((callPrice != null) || (putPrice != null)) {
-            return false;
-        }
-
-        return true;
+        boolean callPrice = (call != null) && (call.hasBid() || call.hasAsk());
+        boolean putPrice = (put != null) && (put.hasBid() || put.hasAsk());
+        return !callPrice && !putPrice;
     }
 
     @Override
@@ -87,9 +83,7 @@ public class OptionPair implements Comparable<OptionPair> {
 
     public boolean hasFullSpread() {
         // Both call and put must have valid bid and ask
-        Double callSpread = Util.getSafeSpread(call);
-        Double putSpread = Util.getSafeSpread(put);
-        return (null != callSpread) && (null != putSpread);
+        return Util.hasSafeSpread(call) && Util.hasSafeSpread(put);
     }
 
     public OptionPair clone() {
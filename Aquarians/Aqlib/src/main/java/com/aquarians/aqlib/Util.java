@@ -618,6 +618,11 @@ public class Util {
         return spread;
     }
 
+    // Same check as getSafeSpread() without boxing the spread, NaN fails it
+    public static boolean hasSafeSpread(Instrument instrument) {
+        return (null != instrument) && (instrument.getAsk() - instrument.getBid() >= Util.ZERO);
+    }
+
     public static <T> T getClosestValue(Collection<T> values, T targetValue, Distance<T> evaluator) {
         if (null == targetValue) {
             return null;
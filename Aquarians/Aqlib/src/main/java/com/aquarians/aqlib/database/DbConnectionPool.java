@@ -0,0 +1,185 @@
+/*
+    MIT License
+
+    Copyright (c) 2020 Mihai Bunea
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+
+package com.aquarians.aqlib.database;
+
+import com.aquarians.aqlib.Util;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Properties;
+
+/**
+ * Connections to one database shared by several threads. Idle connections are validated before being handed out
+ * again, broken ones are closed and replaced by new ones.
+ */
+public class DbConnectionPool {
+
+    private static org.apache.log4j.Logger logger =
+            org.apache.log4j.Logger.getLogger(DbConnectionPool.class);
+
+    private final Object lock = new Object();
+    private final String url;
+    private final Properties properties;
+    // Zero for no limit
+    private final int maxSize;
+    private final int validationTimeout;
+    private final Deque<Connection> idle = new ArrayDeque<>();
+    // Open connections, idle or in use
+    private int size;
+    private boolean closed;
+
+    public DbConnectionPool(String url, Properties properties, int maxSize, int validationTimeout) {
+        this.url = url;
+        this.properties = properties;
+        this.maxSize = maxSize;
+        this.validationTimeout = validationTimeout;
+    }
+
+    /**
+     * Waits if the pool is full until a connection is returned
+     */
+    public Connection getConnection() {
+        while (true) {
+            Connection connection = null;
+            synchronized (lock) {
+                while (true) {
+                    if (closed) {
+                        throw new RuntimeException("Connection pool closed");
+                    }
+
+                    connection = idle.pollFirst();
+                    if (connection != null) {
+                        break;
+                    }
+
+                    if ((maxSize <= 0) || (size < maxSize)) {
+                        size++;
+                        break;
+                    }
+
+                    Util.safeWait(lock);
+                }
+            }
+
+            // Connecting and validating run outside the lock so several threads can do it at the same time
+            if (null == connection) {
+                return connect();
+            }
+
+            if (isValid(connection)) {
+                return connection;
+            }
+
+            logger.warn("Replacing broken connection");
+            discard(connection);
+        }
+    }
+
+    private Connection connect() {
+        try {
+            return DriverManager.getConnection(url, properties);
+        } catch (Exception ex) {
+            synchronized (lock) {
+                size--;
+                lock.notifyAll();
+            }
+            throw new RuntimeException(ex.getMessage(), ex);
+        }
+    }
+
+    private boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(validationTimeout);
+        } catch (Exception ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Gives back a connection that is no longer used. What wasn't committed is rolled back and the connection is
+     * returned to auto-commit and read-write, as it was handed out.
+     */
+    public void release(Connection connection) {
+        try {
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            if (connection.isReadOnly()) {
+                connection.setReadOnly(false);
+            }
+        } catch (Exception ex) {
+            logger.debug(ex.getMessage(), ex);
+            discard(connection);
+            return;
+        }
+
+        synchronized (lock) {
+            if (!closed) {
+                idle.addLast(connection);
+                lock.notifyAll();
+                return;
+            }
+        }
+
+        discard(connection);
+    }
+
+    /**
+     * Closes a connection that can't be used anymore, a new one can take its place
+     */
+    public void discard(Connection connection) {
+        try {
+            connection.close();
+        } catch (Exception ex) {
+            logger.debug(ex.getMessage(), ex);
+        }
+
+        synchronized (lock) {
+            size--;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Closes the idle connections, those in use are closed when released
+     */
+    public void close() {
+        Deque<Connection> connections;
+        synchronized (lock) {
+            closed = true;
+            connections = new ArrayDeque<>(idle);
+            idle.clear();
+            lock.notifyAll();
+        }
+
+        for (Connection connection : connections) {
+            discard(connection);
+        }
+    }
+
+}
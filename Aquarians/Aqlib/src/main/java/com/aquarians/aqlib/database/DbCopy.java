@@ -0,0 +1,267 @@
+/*
+    MIT License
+
+    Copyright (c) 2020 Mihai Bunea
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+
+package com.aquarians.aqlib.database;
+
+import com.aquarians.aqlib.Day;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+
+/**
+ * Bulk load through PostgreSQL COPY FROM STDIN in binary format. Rows are encoded field by field into a reusable
+ * buffer that is sent to the server when full. The copy starts with the first row and ends with finish(),
+ * no other statement can run on the connection in between.
+ */
+public abstract class DbCopy {
+
+    private static final byte[] HEADER = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0, 0, 0, 0, 0, 0, 0, 0, 0};
+    private static final int FLUSH_SIZE = 1 << 16;
+    // PostgreSQL dates count days from 2000-Jan-01
+    private static final int POSTGRES_EPOCH_DAY = 10957;
+
+    private Connection connection;
+    private CopyIn copyIn;
+    private byte[] buffer = new byte[FLUSH_SIZE * 2];
+    private int length;
+    private long rows;
+
+    protected DbCopy(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Like "COPY t (x, y) FROM STDIN (FORMAT binary)", the fields of each row are added in the column order
+     */
+    protected abstract String getCopyStatement();
+
+    public boolean isActive() {
+        return copyIn != null;
+    }
+
+    protected void beginRow(int fields) {
+        if (null == copyIn) {
+            start();
+        }
+
+        ensure(2);
+        putShort(fields);
+    }
+
+    protected void endRow() {
+        rows++;
+        if (length >= FLUSH_SIZE) {
+            flush();
+        }
+    }
+
+    private void start() {
+        try {
+            copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(getCopyStatement());
+        } catch (Exception ex) {
+            throw new RuntimeException(ex.getMessage(), ex);
+        }
+
+        length = 0;
+        rows = 0;
+        ensure(HEADER.length);
+        System.arraycopy(HEADER, 0, buffer, 0, HEADER.length);
+        length = HEADER.length;
+    }
+
+    private void flush() {
+        try {
+            copyIn.writeToCopy(buffer, 0, length);
+            length = 0;
+        } catch (Exception ex) {
+            cancel();
+            throw new RuntimeException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Sends the remaining rows and ends the copy, returns how many rows were copied
+     */
+    public long finish() {
+        if (null == copyIn) {
+            return 0;
+        }
+
+        // End of data marker
+        ensure(2);
+        putShort(-1);
+        flush();
+
+        try {
+            copyIn.endCopy();
+            return rows;
+        } catch (Exception ex) {
+            throw new RuntimeException(ex.getMessage(), ex);
+        } finally {
+            copyIn = null;
+        }
+    }
+
+    /**
+     * Drops the rows not finished yet, the transaction should be rolled back afterwards
+     */
+    public void cancel() {
+        length = 0;
+        if (null == copyIn) {
+            return;
+        }
+
+        try {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        } catch (Exception ex) {
+            throw new RuntimeException(ex.getMessage(), ex);
+        } finally {
+            copyIn = null;
+        }
+    }
+
+    void setConnection(Connection connection) {
+        try {
+            cancel();
+        } catch (Exception ex) {
+            // The old connection may be gone already
+        }
+
+        this.connection = connection;
+    }
+
+    protected void addNull() {
+        ensure(4);
+        putInt(-1);
+    }
+
+    protected void addLong(long value) {
+        ensure(12);
+        putInt(8);
+        putLong(value);
+    }
+
+    protected void addLong(Long value) {
+        if (null == value) {
+            addNull();
+        } else {
+            addLong(value.longValue());
+        }
+    }
+
+    protected void addDouble(double value) {
+        ensure(12);
+        putInt(8);
+        putLong(Double.doubleToLongBits(value));
+    }
+
+    protected void addDouble(Double value) {
+        if (null == value) {
+            addNull();
+        } else {
+            addDouble(value.doubleValue());
+        }
+    }
+
+    protected void addBoolean(boolean value) {
+        ensure(5);
+        putInt(1);
+        buffer[length++] = (byte) (value ? 1 : 0);
+    }
+
+    protected void addBoolean(Boolean value) {
+        if (null == value) {
+            addNull();
+        } else {
+            addBoolean(value.booleanValue());
+        }
+    }
+
+    protected void addDay(Day value) {
+        if (null == value) {
+            addNull();
+            return;
+        }
+
+        ensure(8);
+        putInt(4);
+        putInt(value.toEpochDay() - POSTGRES_EPOCH_DAY);
+    }
+
+    protected void addString(String value) {
+        if (null == value) {
+            addNull();
+            return;
+        }
+
+        int size = value.length();
+        ensure(4 + size);
+        int start = length;
+        putInt(size);
+        for (int i = 0; i < size; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                // Not plain ASCII, let the encoder do it
+                length = start;
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                ensure(4 + bytes.length);
+                putInt(bytes.length);
+                System.arraycopy(bytes, 0, buffer, length, bytes.length);
+                length += bytes.length;
+                return;
+            }
+            buffer[length++] = (byte) c;
+        }
+    }
+
+    private void ensure(int size) {
+        if (length + size > buffer.length) {
+            byte[] larger = new byte[Math.max(buffer.length * 2, length + size)];
+            System.arraycopy(buffer, 0, larger, 0, length);
+            buffer = larger;
+        }
+    }
+
+    private void putShort(int value) {
+        buffer[length++] = (byte) (value >>> 8);
+        buffer[length++] = (byte) value;
+    }
+
+    private void putInt(int value) {
+        buffer[length++] = (byte) (value >>> 24);
+        buffer[length++] = (byte) (value >>> 16);
+        buffer[length++] = (byte) (value >>> 8);
+        buffer[length++] = (byte) value;
+    }
+
+    private void putLong(long value) {
+        putInt((int) (value >>> 32));
+        putInt((int) value);
+    }
+
+}
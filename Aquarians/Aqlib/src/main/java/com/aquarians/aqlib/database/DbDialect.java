@@ -0,0 +1,90 @@
+/*
+    MIT License
+
+    Copyright (c) 2020 Mihai Bunea
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+
+package com.aquarians.aqlib.database;
+
+import java.sql.Connection;
+
+/**
+ * The SQL that differs between the supported databases. PostgreSQL is the server used in production,
+ * H2 runs embedded in the process for tests and small backtests that don't need a server.
+ * H2 is expected in PostgreSQL mode, with lower case names and "day" usable as a column name.
+ */
+public enum DbDialect {
+
+    POSTGRESQL,
+    H2;
+
+    public static final String H2_URL_PREFIX = "jdbc:h2:";
+    public static final String H2_SETTINGS = ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=DAY";
+
+    /**
+     * Told apart by the database the connection is to, so a statement works on whatever connection it's given
+     */
+    public static DbDialect of(Connection connection) {
+        try {
+            String product = connection.getMetaData().getDatabaseProductName();
+            return "H2".equalsIgnoreCase(product) ? H2 : POSTGRESQL;
+        } catch (Exception ex) {
+            throw new RuntimeException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * A date column as the number of days since 1970-Jan-01
+     */
+    public String epochDay(String column) {
+        if (H2 == this) {
+            return "DATEDIFF(DAY, DATE '1970-01-01', " + column + ")";
+        }
+
+        return "(" + column + " - DATE '1970-01-01')";
+    }
+
+    /**
+     * Query for the next values of a sequence, the parameters are the sequence name and the count
+     */
+    public String sequenceValues() {
+        if (H2 == this) {
+            return "SELECT nextval(?) FROM SYSTEM_RANGE(1, ?)";
+        }
+
+        return "SELECT nextval(?) FROM generate_series(1, ?)";
+    }
+
+    /**
+     * Loading through COPY FROM STDIN, see DbCopy
+     */
+    public boolean supportsCopy() {
+        return POSTGRESQL == this;
+    }
+
+    /**
+     * Declarative partitions and the system catalogs describing them
+     */
+    public boolean supportsPartitions() {
+        return POSTGRESQL == this;
+    }
+
+}
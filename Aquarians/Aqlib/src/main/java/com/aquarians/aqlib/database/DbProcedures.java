@@ -26,38 +26,170 @@ package com.aquarians.aqlib.database;
 
 import java.sql.Connection;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
 
 public abstract class DbProcedures {
 
     private static org.apache.log4j.Logger logger =
             org.apache.log4j.Logger.getLogger(DbProcedures.class);
 
-    private final Connection connection;
+    private Connection connection;
+    private volatile boolean connectionLost;
+    // Set again on the connection that replaces a lost one
+    private boolean autoCommit = true;
     private final ArrayList<DbStatement> procedures = new ArrayList<>();
+    private final ArrayList<DbCopy> copies = new ArrayList<>();
+
+    // Ids reserved from each sequence and not handed out yet
+    private final Object idsLock = new Object();
+    private final Map<String, IdBlock> idBlocks = new HashMap<>();
+    private int idBlockSize = 1;
 
     public final SequenceNextVal sequenceNextVal;
+    public final SequenceNextValues sequenceNextValues;
 
     public DbProcedures(Connection connection) {
         this.connection = connection;
         sequenceNextVal = addProcedure(new SequenceNextVal(connection));
+        sequenceNextValues = addProcedure(new SequenceNextValues(connection));
+    }
+
+    public void setIdBlockSize(int size) {
+        synchronized (idsLock) {
+            idBlockSize = Math.max(size, 1);
+        }
+    }
+
+    /**
+     * Next value of the sequence, reserving idBlockSize values at a time so most calls don't touch the database.
+     * Values come from nextval() so other connections drawing from the same sequence never get them,
+     * the reserved values that are not used when the application stops are left as gaps.
+     */
+    public long nextId(String sequence) {
+        synchronized (idsLock) {
+            IdBlock block = idBlocks.get(sequence);
+            if (null == block) {
+                block = new IdBlock();
+                idBlocks.put(sequence, block);
+            }
+
+            if (block.next == block.ids.length) {
+                block.ids = (idBlockSize > 1) ?
+                        sequenceNextValues.execute(sequence, idBlockSize) :
+                        new long[] {sequenceNextVal.execute(sequence)};
+                block.next = 0;
+            }
+
+            return block.ids[block.next++];
+        }
+    }
+
+    private static final class IdBlock {
+        long[] ids = new long[0];
+        int next;
     }
 
     public <T extends DbStatement> T addProcedure(T procedure) {
+        procedure.setOwner(this);
         procedures.add(procedure);
         return procedure;
     }
 
-    public void init() {
+    public <T extends DbCopy> T addCopy(T copy) {
+        copies.add(copy);
+        return copy;
+    }
+
+    // Copies in progress block the connection, end them before running other statements
+    public void finishCopies() {
+        for (DbCopy copy : copies) {
+            copy.finish();
+        }
+    }
+
+    public void cancelCopies() {
+        for (DbCopy copy : copies) {
+            try {
+                copy.cancel();
+            } catch (Exception ex) {
+                logger.warn("Cancelling copy: " + copy.getClass().getSimpleName(), ex);
+            }
+        }
+    }
+
+    public void setBatchSize(int rows) {
+        for (DbStatement procedure : procedures) {
+            procedure.setBatchSize(rows);
+        }
+    }
+
+    // Sends the rows queued with addBatch(), the statements run in registration order
+    public void executeBatches() {
+        for (DbStatement procedure : procedures) {
+            procedure.executeBatch();
+        }
+    }
+
+    public void clearBatches() {
         for (DbStatement procedure : procedures) {
             try {
-                procedure.init();
+                procedure.clearBatch();
             } catch (Exception ex) {
-                logger.warn("Initializing procedure: " + procedure.getClass().getSimpleName(), ex);
+                logger.warn("Clearing batch: " + procedure.getClass().getSimpleName(), ex);
             }
         }
     }
 
+    // Statements are prepared on first use, most threads need only a few of them
+    public void init() {
+    }
+
+    public Connection getConnection() {
+        return connection;
+    }
+
+    public DbDialect getDialect() {
+        return DbDialect.of(connection);
+    }
+
+    void connectionLost() {
+        connectionLost = true;
+    }
+
+    /**
+     * True after a statement failed with a connection error, see setConnection()
+     */
+    public boolean isConnectionLost() {
+        return connectionLost;
+    }
+
+    /**
+     * Moves all the statements to another connection, pending batches and copies are dropped.
+     * The auto-commit mode set with setAutoCommit() carries over, the statements keep their batch and fetch sizes.
+     */
+    public void setConnection(Connection connection) {
+        try {
+            connection.setAutoCommit(autoCommit);
+        } catch (Exception ex) {
+            throw new RuntimeException(ex.getMessage(), ex);
+        }
+
+        for (DbCopy copy : copies) {
+            copy.setConnection(connection);
+        }
+
+        for (DbStatement procedure : procedures) {
+            procedure.setConnection(connection);
+        }
+
+        this.connection = connection;
+        connectionLost = false;
+    }
+
     public void cleanup() {
+        cancelCopies();
+
         for (DbStatement procedure : procedures) {
             try {
                 procedure.cleanup();
@@ -70,12 +202,16 @@ public abstract class DbProcedures {
     public void setAutoCommit(boolean autoCommit) {
         try {
             connection.setAutoCommit(autoCommit);
+            this.autoCommit = autoCommit;
         } catch (Exception ex) {
             throw new RuntimeException(ex.getMessage(), ex);
         }
     }
 
     public void commit() {
+        executeBatches();
+        finishCopies();
+
         try {
             connection.commit();
         } catch (Exception ex) {
@@ -84,6 +220,9 @@ public abstract class DbProcedures {
     }
 
     public void rollback() {
+        clearBatches();
+        cancelCopies();
+
         try {
             connection.rollback();
         } catch (Exception ex) {
@@ -27,11 +27,32 @@ package com.aquarians.aqlib.database;
 import com.aquarians.aqlib.*;
 
 import java.sql.*;
+import java.util.Collection;
 
 public abstract class DbStatement {
 
-    private final Connection connection;
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+    // Returned by getEpochDay() for a null date
+    public static final int NULL_EPOCH_DAY = Integer.MIN_VALUE;
+
+    /**
+     * Called for each row of a streamed query, see executeQuery(RowHandler)
+     */
+    public interface RowHandler {
+        // Returns false to stop reading, the remaining rows are discarded
+        boolean row(ResultSet results) throws Exception;
+    }
+
+    private Connection connection;
     private PreparedStatement statement;
+    // Told when the connection is lost
+    private DbProcedures owner;
+    // Pending rows are sent automatically when the batch reaches this size, zero to wait for executeBatch()
+    private int batchSize;
+    private int batchCount;
+    // Zero for the driver default, which reads the whole result at once
+    private int fetchSize;
+    private DbDialect dialect;
 
     protected DbStatement(Connection connection) {
         this.connection = connection;
@@ -52,28 +73,171 @@ public abstract class DbStatement {
      */
     protected void process(ResultSet results) throws Exception {}
 
+    /**
+     * Prepares the statement now, otherwise it's prepared on first use
+     */
     public void init() {
+        prepare();
+    }
+
+    public void cleanup() {
+        batchCount = 0;
         try {
-            statement = connection.prepareStatement(getSqlStatement());
+            if (null != statement) {
+                statement.close();
+            }
         } catch (Exception ex) {
             throw new RuntimeException(ex.getMessage(), ex);
+        } finally {
+            statement = null;
         }
     }
 
-    public void cleanup() {
+    void setOwner(DbProcedures owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * Moves to another connection, the statement is prepared again on next use
+     */
+    void setConnection(Connection connection) {
         try {
-            if (null != statement) {
-                statement.close();
+            cleanup();
+        } catch (Exception ex) {
+            // The old connection may be gone already
+        }
+
+        this.connection = connection;
+        dialect = null;
+    }
+
+    protected DbDialect getDialect() {
+        if (null == dialect) {
+            dialect = DbDialect.of(connection);
+        }
+        return dialect;
+    }
+
+    private PreparedStatement prepare() {
+        if (null == statement) {
+            try {
+                statement = connection.prepareStatement(getSqlStatement(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                if (fetchSize > 0) {
+                    statement.setFetchSize(fetchSize);
+                }
+            } catch (Exception ex) {
+                checkConnection(ex);
+                throw new RuntimeException(ex.getMessage(), ex);
+            }
+        }
+
+        return statement;
+    }
+
+    private void checkConnection(Exception ex) {
+        if ((owner != null) && isConnectionError(ex)) {
+            owner.connectionLost();
+        }
+    }
+
+    /**
+     * SQL state class 08 is a connection exception, the connection can't be used anymore
+     */
+    public static boolean isConnectionError(Throwable ex) {
+        while (ex != null) {
+            if (ex instanceof SQLException) {
+                String state = ((SQLException) ex).getSQLState();
+                if ((state != null) && state.startsWith("08")) {
+                    return true;
+                }
             }
+            ex = ex.getCause();
+        }
+
+        return false;
+    }
+
+    /**
+     * Rows fetched per round trip. PostgreSQL streams the results through a cursor only when auto-commit is off.
+     */
+    public void setFetchSize(int rows) {
+        fetchSize = rows;
+        try {
+            prepare().setFetchSize(rows);
         } catch (Exception ex) {
             throw new RuntimeException(ex.getMessage(), ex);
         }
     }
 
-    protected void executeUpdate() {
+    /**
+     * Returns the number of rows changed
+     */
+    protected int executeUpdate() {
         try {
+            prepare();
             setParameters();
-            statement.executeUpdate();
+            return statement.executeUpdate();
+        } catch (Exception ex) {
+            checkConnection(ex);
+            throw new RuntimeException(ex.getMessage(), ex);
+        }
+    }
+
+    public void setBatchSize(int rows) {
+        batchSize = rows;
+    }
+
+    public int getBatchCount() {
+        return batchCount;
+    }
+
+    /**
+     * Queues the current parameters instead of executing them, see executeBatch()
+     */
+    protected void addBatch() {
+        try {
+            prepare();
+            setParameters();
+            statement.addBatch();
+        } catch (Exception ex) {
+            checkConnection(ex);
+            throw new RuntimeException(ex.getMessage(), ex);
+        }
+
+        batchCount++;
+        if ((batchSize > 0) && (batchCount >= batchSize)) {
+            executeBatch();
+        }
+    }
+
+    /**
+     * Sends the queued rows in one round trip, returns how many were sent
+     */
+    public int executeBatch() {
+        if (0 == batchCount) {
+            return 0;
+        }
+
+        int rows = batchCount;
+        batchCount = 0;
+        try {
+            statement.executeBatch();
+        } catch (Exception ex) {
+            checkConnection(ex);
+            throw new RuntimeException(ex.getMessage(), ex);
+        }
+
+        return rows;
+    }
+
+    public void clearBatch() {
+        if (0 == batchCount) {
+            return;
+        }
+
+        batchCount = 0;
+        try {
+            statement.clearBatch();
         } catch (Exception ex) {
             throw new RuntimeException(ex.getMessage(), ex);
         }
@@ -81,14 +245,70 @@ public abstract class DbStatement {
 
     protected void executeQuery() {
         try {
+            prepare();
             setParameters();
             ResultSet resultSet = statement.executeQuery();
             process(resultSet);
         } catch (Exception ex) {
+            checkConnection(ex);
             throw new RuntimeException(ex.getMessage(), ex);
         }
     }
 
+    /**
+     * Reads the results one row at a time through a cursor, so memory use doesn't grow with the result size.
+     * The cursor needs a transaction: if the connection is in auto-commit, it's turned off for the duration of the
+     * query and the read-only transaction is ended afterwards. Uses DEFAULT_FETCH_SIZE unless setFetchSize() was called.
+     */
+    protected void executeQuery(RowHandler handler) {
+        boolean autoCommit = false;
+        boolean completed = false;
+        try {
+            autoCommit = connection.getAutoCommit();
+            if (autoCommit) {
+                connection.setAutoCommit(false);
+            }
+
+            prepare();
+            if (0 == fetchSize) {
+                statement.setFetchSize(DEFAULT_FETCH_SIZE);
+            }
+            setParameters();
+            try (ResultSet results = statement.executeQuery()) {
+                while (results.next()) {
+                    if (!handler.row(results)) {
+                        break;
+                    }
+                }
+            }
+            completed = true;
+        } catch (Exception ex) {
+            checkConnection(ex);
+            throw new RuntimeException(ex.getMessage(), ex);
+        } finally {
+            if (autoCommit) {
+                endCursorTransaction(completed);
+            }
+        }
+    }
+
+    private void endCursorTransaction(boolean completed) {
+        try {
+            if (completed) {
+                connection.commit();
+            } else {
+                connection.rollback();
+            }
+            connection.setAutoCommit(true);
+        } catch (Exception ex) {
+            if (completed) {
+                checkConnection(ex);
+                throw new RuntimeException(ex.getMessage(), ex);
+            }
+            // Already failing, keep the original error
+        }
+    }
+
     public Blob createBlob(byte[] data) {
         try {
             Blob blob = connection.createBlob();
@@ -171,6 +391,15 @@ public abstract class DbStatement {
         }
     }
 
+    // For "= ANY(?)" conditions
+    public void setLongArray(int parameterIndex, Collection<Long> values) throws Exception {
+        if (null != values) {
+            statement.setArray(parameterIndex, connection.createArrayOf("bigint", values.toArray()));
+        } else {
+            statement.setNull(parameterIndex, Types.ARRAY);
+        }
+    }
+
     public void setBoolean(int parameterIndex, Boolean value) throws Exception {
         if (null != value) {
             statement.setBoolean(parameterIndex, value);
@@ -187,6 +416,42 @@ public abstract class DbStatement {
         return value;
     }
 
+    // Primitive getters for streamed rows, they don't box the value
+
+    public static long getLong(ResultSet results, int parameterIndex, long nullValue) throws Exception {
+        long value = results.getLong(parameterIndex);
+        if (results.wasNull()) {
+            return nullValue;
+        }
+        return value;
+    }
+
+    public static double getDouble(ResultSet results, int parameterIndex, double nullValue) throws Exception {
+        double value = results.getDouble(parameterIndex);
+        if (results.wasNull()) {
+            return nullValue;
+        }
+        return value;
+    }
+
+    /**
+     * SQL selecting a date column as days since 1970-Jan-01, read with getEpochDay()
+     */
+    protected String epochDay(String column) {
+        return getDialect().epochDay(column);
+    }
+
+    /**
+     * A column selected with epochDay(), read as a plain int instead of going through Timestamp and AqCalendar
+     */
+    public static int getEpochDay(ResultSet results, int parameterIndex) throws Exception {
+        int value = results.getInt(parameterIndex);
+        if (results.wasNull()) {
+            return NULL_EPOCH_DAY;
+        }
+        return value;
+    }
+
     public static Long getLong(ResultSet results, int parameterIndex) throws Exception {
         long value = results.getLong(parameterIndex);
         if (results.wasNull()) {
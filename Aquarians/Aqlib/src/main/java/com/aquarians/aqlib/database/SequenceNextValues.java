@@ -0,0 +1,77 @@
+/*
+    MIT License
+
+    Copyright (c) 2020 Mihai Bunea
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+
+package com.aquarians.aqlib.database;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+
+/**
+ * Reserves several values of a sequence in one round trip
+ */
+public class SequenceNextValues extends DbStatement {
+
+    // Input
+    private String name;
+    private int count;
+
+    // Output
+    private long[] ids;
+
+    public SequenceNextValues(Connection connection) {
+        super(connection);
+    }
+
+    @Override
+    public String getSqlStatement() {
+        return getDialect().sequenceValues();
+    }
+
+    @Override
+    protected void setParameters() throws Exception {
+        setString(1, name);
+        setInt(2, count);
+    }
+
+    @Override
+    public void process(ResultSet results) throws Exception {
+        ids = new long[count];
+        int size = 0;
+        while ((size < count) && results.next()) {
+            ids[size++] = results.getLong(1);
+        }
+
+        if (size < count) {
+            throw new RuntimeException("Sequence " + name + " returned " + size + " values out of " + count);
+        }
+    }
+
+    public long[] execute(String name, int count) {
+        this.name = name;
+        this.count = count;
+        super.executeQuery();
+        return ids;
+    }
+
+}
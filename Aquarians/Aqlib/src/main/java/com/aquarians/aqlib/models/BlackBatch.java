@@ -0,0 +1,159 @@
+/*
+    MIT License
+
+    Copyright (c) 2020 Mihai Bunea
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+
+package com.aquarians.aqlib.models;
+
+import com.aquarians.aqlib.Util;
+import com.aquarians.aqlib.math.Normal;
+
+/**
+ * Black model over the strikes of one term: one forward, time and rate with the strikes, volatilities and
+ * call flags in parallel arrays, the results written to the arrays of a Results in the same layout.
+ * The loops don't allocate or go through objects, which is the shape the JIT compiles best. The calls to the
+ * math functions still keep it from using SIMD instructions, the gain is in pricing a chain without creating
+ * a pricer for each option.
+ * Greeks are those of BlackScholes.greeks() with setBlack(true).
+ */
+public final class BlackBatch {
+
+    // Greeks of a batch, one array for each field of Greeks
+    public static final class Results {
+        public final double[] prices;
+        public final double[] deltas;
+        public final double[] gammas;
+        public final double[] vegas;
+        public final double[] thetas;
+        public final double[] vannas;
+        public final double[] volgas;
+        public final double[] rhos;
+
+        public Results(int capacity) {
+            prices = new double[capacity];
+            deltas = new double[capacity];
+            gammas = new double[capacity];
+            vegas = new double[capacity];
+            thetas = new double[capacity];
+            vannas = new double[capacity];
+            volgas = new double[capacity];
+            rhos = new double[capacity];
+        }
+
+        public Greeks get(int index, Greeks out) {
+            Greeks greeks = (out != null) ? out : new Greeks();
+            greeks.price = prices[index];
+            greeks.delta = deltas[index];
+            greeks.gamma = gammas[index];
+            greeks.vega = vegas[index];
+            greeks.theta = thetas[index];
+            greeks.vanna = vannas[index];
+            greeks.volga = volgas[index];
+            greeks.rho = rhos[index];
+            return greeks;
+        }
+    }
+
+    private BlackBatch() {
+    }
+
+    public static void price(double forward, double time, double rate, int count,
+                             double[] strikes, double[] vols, boolean[] calls, Results out) {
+        double[] prices = out.prices;
+        double[] deltas = out.deltas;
+        double[] gammas = out.gammas;
+        double[] vegas = out.vegas;
+        double[] thetas = out.thetas;
+        double[] vannas = out.vannas;
+        double[] volgas = out.volgas;
+        double[] rhos = out.rhos;
+        double discount = Math.exp(-rate * time);
+        double sqrtTime = Math.sqrt(time);
+        for (int i = 0; i < count; i++) {
+            double k = strikes[i];
+            double v = vols[i];
+            double sign = calls[i] ? 1.0 : -1.0;
+            double vsqrt = v * sqrtTime;
+
+            if (vsqrt < Util.ZERO) {
+                // Intrinsic value, the delta is a step at the strike
+                prices[i] = Math.max(sign * (forward - k), 0.0);
+                deltas[i] = (sign * (forward - k) > 0.0) ? sign : 0.0;
+                gammas[i] = 0.0;
+                vegas[i] = 0.0;
+                thetas[i] = 0.0;
+                vannas[i] = 0.0;
+                volgas[i] = 0.0;
+                rhos[i] = 0.0;
+                continue;
+            }
+
+            // Same expression as BlackScholes.price() so both give the same digits
+            double d1 = (Math.log(forward / k) + (0.5 * v * v) * time) / vsqrt;
+            double d2 = d1 - vsqrt;
+            double nd1 = Normal.cdf(sign * d1);
+            double nd2 = Normal.cdf(sign * d2);
+            double pdf = Normal.pdf(d1);
+
+            double price = sign * discount * (forward * nd1 - k * nd2);
+            double vega = discount * forward * pdf * sqrtTime;
+            prices[i] = price;
+            deltas[i] = sign * discount * nd1;
+            gammas[i] = discount * pdf / (forward * vsqrt);
+            vegas[i] = vega / 100.0;
+            thetas[i] = rate * price - discount * forward * pdf * v / (2.0 * sqrtTime);
+            vannas[i] = -discount * pdf * d2 / v / 100.0;
+            volgas[i] = vega * d1 * d2 / v / 10000.0;
+            rhos[i] = -time * price / 100.0;
+        }
+    }
+
+    /**
+     * Volatilities for the given discounted prices, NaN where there is none within the range of BlackScholes
+     */
+    public static void impliedVolatility(double forward, double time, double rate, int count,
+                                         double[] strikes, double[] prices, boolean[] calls, double[] vols) {
+        double discount = Math.exp(-rate * time);
+        for (int i = 0; i < count; i++) {
+            double vol = ImpliedVolatility.solve(calls[i], prices[i], forward, strikes[i], time, discount);
+            if (Double.isNaN(vol)) {
+                vol = bisection(forward, time, rate, strikes[i], prices[i], calls[i]);
+            } else if ((vol < BlackScholes.MIN_VOL + Util.ZERO) || (vol > BlackScholes.MAX_VOL - Util.ZERO)) {
+                vol = Double.NaN;
+            }
+            vols[i] = vol;
+        }
+    }
+
+    // Same fallback as BlackScholes.impliedVolatility(), seldom taken
+    private static double bisection(double forward, double time, double rate, double strike, double price, boolean isCall) {
+        if (Double.isNaN(price)) {
+            return Double.NaN;
+        }
+
+        BlackScholes pricer = new BlackScholes(isCall, forward, strike, time, rate, 0.0, 0.0);
+        pricer.setBlack(true);
+        Double vol = pricer.impliedVolatilityBisection(price);
+        return (vol != null) ? vol : Double.NaN;
+    }
+
+}
@@ -26,7 +26,7 @@ package com.aquarians.aqlib.models;
 
 import com.aquarians.aqlib.Util;
 import com.aquarians.aqlib.math.Function;
-import org.apache.commons.math3.distribution.NormalDistribution;
+import com.aquarians.aqlib.math.Normal;
 
 public class BlackScholes {
 
@@ -37,8 +37,6 @@ public class BlackScholes {
     public static final double MIN_INTEREST = -10.0;
     public static final double MAX_INTEREST = 10.0;
 
-    private final NormalDistribution ndist = new NormalDistribution(0.0, 1.0);
-
     protected boolean isCall;
     protected double spotPrice;
     protected double strikePrice;
@@ -85,7 +83,12 @@ public class BlackScholes {
     // When You Cannot Hedge Continuously - Emanuel Derman
     // Standard deviation of the PNL when doing N rebalances until expiry
     public double theoreticalPnlDev(int n) {
-        double k = analyticVega() * 100.0;
+        return theoreticalPnlDev(analyticVega(), volatility, n);
+    }
+
+    // Same for a vega given per volatility point
+    public static double theoreticalPnlDev(double vega, double volatility, int n) {
+        double k = vega * 100.0;
         double dev = Math.sqrt(Math.PI * 0.25) * k * volatility / Math.sqrt(n);
         return dev;
     }
@@ -93,9 +96,8 @@ public class BlackScholes {
     public double forward(double probability) {
         double mean = (interestRate - dividendYield - volatility * volatility * 0.5) * timeToExpiration;
         double dev = volatility * Math.sqrt(timeToExpiration);
-        NormalDistribution dist = new NormalDistribution(mean, dev);
         probability = Util.limitProbability(probability);
-        double x = dist.inverseCumulativeProbability(probability);
+        double x = mean + dev * Normal.inverseCdf(probability);
         double fwd = spotPrice * Math.exp(x);
         return fwd;
     }
@@ -129,15 +131,77 @@ public class BlackScholes {
             double d1 = (Math.log(f / x) + (0.5 * v * v) * t) / vsqrt;
             double d2 = d1 - vsqrt;
             double sign = isCall ? 1.0 : -1.0;
-            double nd1 = ndist.cumulativeProbability(sign * d1);
-            double nd2 = ndist.cumulativeProbability(sign * d2);
+            double nd1 = Normal.cdf(sign * d1);
+            double nd2 = Normal.cdf(sign * d2);
             value = sign * discount * (f * nd1 - x * nd2);
         }
 
         return value;
     }
 
+    /**
+     * Price and all the greeks from one evaluation of d1, d2 and the normal distribution,
+     * instead of one per analytic*() method. The Black model is the spot one with the dividend yield equal to the
+     * interest rate, except for rho as the forward doesn't move with the rate.
+     * @param out filled and returned, a new one if null
+     */
+    public Greeks greeks(Greeks out) {
+        Greeks greeks = (out != null) ? out : new Greeks();
+        greeks.clear();
+
+        double s = spotPrice;
+        double x = strikePrice;
+        double t = timeToExpiration;
+        double r = interestRate;
+        double q = isBlack ? r : dividendYield;
+        double v = volatility;
+        double sqrtT = Math.sqrt(t);
+        double vsqrt = v * sqrtT;
+        double sign = isCall ? 1.0 : -1.0;
+
+        if (vsqrt < Util.ZERO) {
+            greeks.price = valueAtExpiration();
+            greeks.delta = (sign * (s - x) > 0.0) ? sign : 0.0;
+            return greeks;
+        }
+
+        double discount = Math.exp(-r * t);
+        double carry = Math.exp(-q * t);
+        double d1 = (Math.log(s / x) + (r - q + 0.5 * v * v) * t) / vsqrt;
+        double d2 = d1 - vsqrt;
+        double nd1 = Normal.cdf(sign * d1);
+        double nd2 = Normal.cdf(sign * d2);
+        double pdf = Normal.pdf(d1);
+        double vega = s * carry * pdf * sqrtT;
+
+        greeks.price = sign * (s * carry * nd1 - x * discount * nd2);
+        greeks.delta = sign * carry * nd1;
+        greeks.gamma = carry * pdf / (s * vsqrt);
+        greeks.vega = vega / 100.0;
+        greeks.theta = -s * carry * pdf * v / (2.0 * sqrtT) - sign * r * x * discount * nd2 + sign * q * s * carry * nd1;
+        greeks.vanna = -carry * pdf * d2 / v / 100.0;
+        greeks.volga = vega * d1 * d2 / v / 10000.0;
+        greeks.rho = (isBlack ? -t * greeks.price : sign * x * t * discount * nd2) / 100.0;
+        return greeks;
+    }
+
     public Double impliedVolatility(double price) {
+        double forward = isBlack ? spotPrice : spotPrice * Math.exp((interestRate - dividendYield) * timeToExpiration);
+        double discount = Math.exp(-interestRate * timeToExpiration);
+        double volatility = ImpliedVolatility.solve(isCall, price, forward, strikePrice, timeToExpiration, discount);
+        if (Double.isNaN(volatility)) {
+            return impliedVolatilityBisection(price);
+        }
+
+        if ((volatility < MIN_VOL + Util.ZERO) || (volatility > MAX_VOL - Util.ZERO)) {
+            return null;
+        }
+
+        return volatility;
+    }
+
+    // Slower but makes no assumption on the price, used when ImpliedVolatility finds no solution
+    public Double impliedVolatilityBisection(double price) {
         final BlackScholes copy = BlackScholes.copy(this);
         Function priceFunction = new Function() {
             @Override
@@ -242,9 +306,9 @@ public class BlackScholes {
         double sign = isCall ? +1.0 : -1.0;
         double value = 0.0;
         if (isBlack) {
-            value = sign * Math.exp(-r * t) * ndist.cumulativeProbability(sign * d1);
+            value = sign * Math.exp(-r * t) * Normal.cdf(sign * d1);
         } else {
-            value = sign * Math.exp(-q * t) * ndist.cumulativeProbability(sign * d1);
+            value = sign * Math.exp(-q * t) * Normal.cdf(sign * d1);
         }
         return value;
     }
@@ -262,13 +326,13 @@ public class BlackScholes {
 
         double value = 0.0;
         if (isCall) {
-            value = -Math.exp(-q * t) * s * ndist.density(d1) * v / (2.0 * Math.sqrt(t)) -
-                    r * x * Math.exp(-r * t) * ndist.cumulativeProbability(d2) +
-                    q * s * Math.exp(-q * t) * ndist.cumulativeProbability(d1);
+            value = -Math.exp(-q * t) * s * Normal.pdf(d1) * v / (2.0 * Math.sqrt(t)) -
+                    r * x * Math.exp(-r * t) * Normal.cdf(d2) +
+                    q * s * Math.exp(-q * t) * Normal.cdf(d1);
         } else {
-            value = -Math.exp(-q * t) * s * ndist.density(d1) * v / (2.0 * Math.sqrt(t)) +
-                    r * x * Math.exp(-r * t) * ndist.cumulativeProbability(-d2) -
-                    q * s * Math.exp(-q * t) * ndist.cumulativeProbability(-d1);
+            value = -Math.exp(-q * t) * s * Normal.pdf(d1) * v / (2.0 * Math.sqrt(t)) +
+                    r * x * Math.exp(-r * t) * Normal.cdf(-d2) -
+                    q * s * Math.exp(-q * t) * Normal.cdf(-d1);
 
         }
 
@@ -285,7 +349,7 @@ public class BlackScholes {
         double vsqrt = v * Math.sqrt(t);
         vsqrt = Math.max(vsqrt, Util.ZERO);
         double d1 = (Math.log(s / x) + (r - q + 0.5 * v * v) * t) / vsqrt;
-        double value = Math.exp(-dividendYield * timeToExpiration) * ndist.density(d1) / (s * vsqrt);
+        double value = Math.exp(-dividendYield * timeToExpiration) * Normal.pdf(d1) / (s * vsqrt);
         return value;
     }
 
@@ -313,7 +377,7 @@ public class BlackScholes {
         double vsqrt = v * Math.sqrt(t);
         vsqrt = Math.max(vsqrt, Util.ZERO);
         double d1 = (Math.log(s / x) + (r - q + 0.5 * v * v) * t) / vsqrt;
-        double value = s * Math.exp(-q * t) * ndist.density(d1) * Math.sqrt(t);
+        double value = s * Math.exp(-q * t) * Normal.pdf(d1) * Math.sqrt(t);
         value /= 100.0;
         return value;
     }
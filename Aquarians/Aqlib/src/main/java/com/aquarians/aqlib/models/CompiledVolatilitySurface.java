@@ -0,0 +1,220 @@
+/*
+    MIT License
+
+    Copyright (c) 2020 Mihai Bunea
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+
+package com.aquarians.aqlib.models;
+
+import com.aquarians.aqlib.Util;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Read only copy of a VolatilitySurface with its maturities and strikes in sorted arrays, bracketed by binary search.
+ * Gives the same results as the surface it was compiled from. The year fraction of each maturity is computed once,
+ * for the total variance interpolation between maturities. The last lookups are remembered, since the positions ask
+ * for the same few (maturity, strike) pairs every day.
+ */
+public final class CompiledVolatilitySurface implements Volatility {
+
+    // Power of two
+    private static final int MEMO_SIZE = 64;
+
+    private final Double spot;
+    private final int[] maturities;
+    private final double[] yearFractions;
+    private final double[][] strikes;
+    private final double[][] vols;
+    // Null where the surface has none
+    private final Double[] forwards;
+    private final Double[] interests;
+
+    private final Object lock = new Object();
+    private final int[] memoMaturities = new int[MEMO_SIZE];
+    private final double[] memoStrikes = new double[MEMO_SIZE];
+    private final double[] memoVols = new double[MEMO_SIZE];
+
+    public CompiledVolatilitySurface(VolatilitySurface surface) {
+        spot = surface.getSpot();
+
+        int size = surface.getMaturities().size();
+        maturities = new int[size];
+        yearFractions = new double[size];
+        strikes = new double[size][];
+        vols = new double[size][];
+        forwards = new Double[size];
+        interests = new Double[size];
+
+        int i = 0;
+        for (Map.Entry<Integer, VolatilitySurface.StrikeVols> entry : surface.getMaturities().entrySet()) {
+            VolatilitySurface.StrikeVols strikeVols = entry.getValue();
+            maturities[i] = entry.getKey();
+            yearFractions[i] = Util.yearFraction(maturities[i]);
+            forwards[i] = strikeVols.forward;
+            interests[i] = strikeVols.interest;
+
+            strikes[i] = new double[strikeVols.size()];
+            vols[i] = new double[strikeVols.size()];
+            int j = 0;
+            for (Map.Entry<Double, Double> volEntry : strikeVols.entrySet()) {
+                strikes[i][j] = volEntry.getKey();
+                vols[i][j] = volEntry.getValue();
+                j++;
+            }
+            i++;
+        }
+
+        // No maturity is below 1
+        Arrays.fill(memoMaturities, Integer.MIN_VALUE);
+    }
+
+    @Override
+    public Double getSpot() {
+        return spot;
+    }
+
+    public boolean isEmpty() {
+        return 0 == maturities.length;
+    }
+
+    @Override
+    public Double getVolatility(int maturity, double strike) {
+        double vol = volatility(maturity, strike);
+        return Double.isNaN(vol) ? null : vol;
+    }
+
+    /**
+     * Same as getVolatility() with NaN instead of null
+     */
+    public double volatility(int maturity, double strike) {
+        int slot = memoSlot(maturity, strike);
+        synchronized (lock) {
+            if ((memoMaturities[slot] == maturity) && (Double.compare(memoStrikes[slot], strike) == 0)) {
+                return memoVols[slot];
+            }
+        }
+
+        double vol = lookup(maturity, strike);
+
+        synchronized (lock) {
+            memoMaturities[slot] = maturity;
+            memoStrikes[slot] = strike;
+            memoVols[slot] = vol;
+        }
+
+        return vol;
+    }
+
+    private static int memoSlot(int maturity, double strike) {
+        int hash = Double.hashCode(strike) ^ (maturity * 0x9E3779B9);
+        hash ^= (hash >>> 16);
+        return hash & (MEMO_SIZE - 1);
+    }
+
+    private double lookup(int maturity, double strike) {
+        if ((0 == maturities.length) || (maturity < 1)) {
+            return Double.NaN;
+        }
+
+        int index = Arrays.binarySearch(maturities, maturity);
+        if (index >= 0) {
+            return interpolate(index, strike);
+        }
+
+        // Before the first or after the last maturity the closest one is used as it is
+        int upper = -index - 1;
+        if (0 == upper) {
+            return interpolate(0, strike);
+        }
+        if (maturities.length == upper) {
+            return interpolate(maturities.length - 1, strike);
+        }
+
+        // Interpolate total variance
+        int lower = upper - 1;
+        double lowerVol = interpolate(lower, strike);
+        double upperVol = interpolate(upper, strike);
+        double lowerVar = lowerVol * lowerVol * yearFractions[lower];
+        double upperVar = upperVol * upperVol * yearFractions[upper];
+        double var = Util.interpolate(maturities[lower], lowerVar, maturities[upper], upperVar, maturity);
+        return Math.sqrt(var / Util.yearFraction(maturity));
+    }
+
+    // Linear in the strike, flat beyond the first and last strike
+    private double interpolate(int maturityIndex, double strike) {
+        double[] ks = strikes[maturityIndex];
+        double[] vs = vols[maturityIndex];
+        if (0 == ks.length) {
+            return Double.NaN;
+        }
+
+        int index = Arrays.binarySearch(ks, strike);
+        if (index >= 0) {
+            return vs[index];
+        }
+
+        int upper = -index - 1;
+        if (0 == upper) {
+            return vs[0];
+        }
+        if (ks.length == upper) {
+            return vs[ks.length - 1];
+        }
+
+        int lower = upper - 1;
+        return Util.interpolate(ks[lower], vs[lower], ks[upper], vs[upper], strike);
+    }
+
+    @Override
+    public Double getForward(int maturity) {
+        int index = Arrays.binarySearch(maturities, maturity);
+        return (index >= 0) ? forwards[index] : null;
+    }
+
+    /**
+     * Interest of the closest maturity, the lower one if two are as close
+     */
+    public Double getInterest(int maturity) {
+        if (0 == maturities.length) {
+            return null;
+        }
+
+        int index = Arrays.binarySearch(maturities, maturity);
+        if (index >= 0) {
+            return interests[index];
+        }
+
+        int upper = -index - 1;
+        if (0 == upper) {
+            return interests[0];
+        }
+        if (maturities.length == upper) {
+            return interests[maturities.length - 1];
+        }
+
+        int lower = upper - 1;
+        boolean lowerIsCloser = (maturity - maturities[lower]) <= (maturities[upper] - maturity);
+        return lowerIsCloser ? interests[lower] : interests[upper];
+    }
+
+}
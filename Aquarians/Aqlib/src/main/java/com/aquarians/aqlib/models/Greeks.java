@@ -0,0 +1,75 @@
+/*
+    MIT License
+
+    Copyright (c) 2020 Mihai Bunea
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+
+package com.aquarians.aqlib.models;
+
+/**
+ * Price of an option and its sensitivities, filled in place by the pricers so one instance can be reused.
+ * Delta and gamma are with respect to the underlier the option is priced on (the forward for the Black model),
+ * vega, vanna and rho per volatility or rate point, volga per volatility point squared and theta per year.
+ */
+public class Greeks {
+
+    public double price;
+    public double delta;
+    public double gamma;
+    public double vega;
+    public double theta;
+    // Change of delta with volatility
+    public double vanna;
+    // Change of vega with volatility
+    public double volga;
+    public double rho;
+
+    public void clear() {
+        price = 0.0;
+        delta = 0.0;
+        gamma = 0.0;
+        vega = 0.0;
+        theta = 0.0;
+        vanna = 0.0;
+        volga = 0.0;
+        rho = 0.0;
+    }
+
+    /**
+     * Adds the greeks of a position of the given size, for the risk of a portfolio
+     */
+    public void add(Greeks that, double quantity) {
+        price += that.price * quantity;
+        delta += that.delta * quantity;
+        gamma += that.gamma * quantity;
+        vega += that.vega * quantity;
+        theta += that.theta * quantity;
+        vanna += that.vanna * quantity;
+        volga += that.volga * quantity;
+        rho += that.rho * quantity;
+    }
+
+    public String toString() {
+        return "P: " + price + " D: " + delta + " G: " + gamma + " V: " + vega + " T: " + theta +
+                " Vanna: " + vanna + " Volga: " + volga + " R: " + rho;
+    }
+
+}
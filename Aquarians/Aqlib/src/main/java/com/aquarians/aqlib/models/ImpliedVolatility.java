@@ -0,0 +1,202 @@
+/*
+    MIT License
+
+    Copyright (c) 2020 Mihai Bunea
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+
+package com.aquarians.aqlib.models;
+
+import com.aquarians.aqlib.math.Normal;
+
+/**
+ * Black implied volatility by Householder iterations, after "Let's Be Rational" by Peter Jaeckel.
+ * The price is reduced to an out-of-the-money call on a unit forward, b(x, s) = e^(x/2) N(x/s + s/2) - e^(-x/2) N(x/s - s/2)
+ * with x = ln(F/K) <= 0 and s = vol * sqrt(t). Above the inflection point s = sqrt(2|x|) the price itself is solved for,
+ * below it its logarithm, which is close to linear there. Starting from the tangent at the inflection point it takes
+ * two or three iterations. Each step is kept inside a bracket of the solution, so a poor start can't diverge.
+ */
+public final class ImpliedVolatility {
+
+    private static final int MAX_ITERATIONS = 20;
+    // Relative change of s at which the solution is accepted
+    private static final double TOLERANCE = 1e-14;
+    private static final double ONE_OVER_SQRT_TWO_PI = 1.0 / Normal.SQRT_TWO_PI;
+
+    private ImpliedVolatility() {
+    }
+
+    /**
+     * @param price discounted option price
+     * @param forward forward price of the underlier at expiration
+     * @param discount discount factor to expiration
+     * @return the volatility or NaN if there is none, for instance a price below the intrinsic value
+     */
+    public static double solve(boolean isCall, double price, double forward, double strike, double time, double discount) {
+        if (!(price > 0.0) || !(forward > 0.0) || !(strike > 0.0) || !(time > 0.0) || !(discount > 0.0)) {
+            return Double.NaN;
+        }
+
+        // Normalized undiscounted price, a put on x is a call on -x
+        double beta = price / (discount * Math.sqrt(forward * strike));
+        double x = Math.log(forward / strike);
+        if (!isCall) {
+            x = -x;
+        }
+
+        // What's left of an in-the-money call after the intrinsic value is the out-of-the-money call on -x
+        if (x > 0.0) {
+            beta -= Math.exp(0.5 * x) - Math.exp(-0.5 * x);
+            x = -x;
+        }
+
+        if (!(beta > 0.0) || !(beta < Math.exp(0.5 * x))) {
+            return Double.NaN;
+        }
+
+        double s = solveNormalized(beta, x);
+        return s / Math.sqrt(time);
+    }
+
+    /**
+     * Solves b(x, s) = beta for s, x <= 0 and 0 < beta < e^(x/2)
+     */
+    static double solveNormalized(double beta, double x) {
+        double sc = Math.sqrt(2.0 * Math.abs(x));
+        // At the money the inflection point is at zero, where b is zero and its slope 1 / sqrt(2 pi)
+        double bc = (sc > 0.0) ? normalizedCall(x, sc) : 0.0;
+        double vc = (sc > 0.0) ? normalizedVega(x, sc) : ONE_OVER_SQRT_TWO_PI;
+        boolean useLog = beta < bc;
+        double lnBeta = useLog ? Math.log(beta) : 0.0;
+
+        // The inflection point splits the two regions, the solution is on the side of beta
+        double lo = useLog ? 0.0 : sc;
+        double hi = useLog ? sc : Double.POSITIVE_INFINITY;
+        double s = initialGuess(beta, x, sc, bc, vc, useLog);
+        if (!(s > lo) || !(s < hi)) {
+            s = useLog ? 0.5 * sc : sc + (beta - bc) / vc;
+        }
+
+        for (int i = 0; i < MAX_ITERATIONS; i++) {
+            double b = normalizedCall(x, s);
+            double b1 = normalizedVega(x, s);
+            if (!(b1 > 0.0)) {
+                return Double.NaN;
+            }
+
+            // Higher derivatives relative to the first one
+            double w = x * x / (s * s * s) - 0.25 * s;
+            double r2 = w;
+            double r3 = w * w - 3.0 * x * x / (s * s * s * s) - 0.25;
+
+            double f;
+            double h2;
+            double h3;
+            double fPrime;
+            if (useLog) {
+                f = Math.log(b) - lnBeta;
+                double g1 = b1 / b;
+                fPrime = g1;
+                // g'' / g' and g''' / g' with g = ln(b)
+                h2 = r2 - g1;
+                h3 = r3 - 3.0 * r2 * g1 + 2.0 * g1 * g1;
+            } else {
+                f = b - beta;
+                fPrime = b1;
+                h2 = r2;
+                h3 = r3;
+            }
+
+            if (0.0 == f) {
+                return s;
+            }
+
+            if (f < 0.0) {
+                lo = s;
+            } else {
+                hi = s;
+            }
+
+            double nu = -f / fPrime;
+            double step = nu * (1.0 + 0.5 * h2 * nu) / (1.0 + nu * (h2 + h3 * nu / 6.0));
+            double next = s + step;
+            if (!(next > lo) || !(next < hi)) {
+                // Outside the bracket, bisect it instead
+                next = (hi == Double.POSITIVE_INFINITY) ? 2.0 * s : 0.5 * (lo + hi);
+            }
+
+            if (Math.abs(next - s) <= TOLERANCE * s) {
+                return next;
+            }
+
+            s = next;
+        }
+
+        return Double.NaN;
+    }
+
+    private static double initialGuess(double beta, double x, double sc, double bc, double vc, boolean useLog) {
+        if (!useLog) {
+            // The tangent at the inflection point falls short for high volatilities,
+            // where b is close to e^(x/2) - (e^(x/2) + e^(-x/2)) N(-s/2)
+            double ex = Math.exp(0.5 * x);
+            double tail = (ex - beta) / (ex + 1.0 / ex);
+            return Math.max(sc + (beta - bc) / vc, -2.0 * Normal.inverseCdf(tail));
+        }
+
+        // Closer to the money, Corrado-Miller on the unit forward
+        double f = Math.exp(0.5 * x);
+        double k = 1.0 / f;
+        double c = beta - 0.5 * (f - k);
+        double discriminant = c * c - (f - k) * (f - k) / Math.PI;
+        if (discriminant > 0.0) {
+            double cm = Math.sqrt(2.0 * Math.PI) / (f + k) * (c + Math.sqrt(discriminant));
+            if ((cm > 0.0) && (cm < sc)) {
+                return cm;
+            }
+        }
+
+        // Far from the money b is about s^3 / x^2 * exp(-x^2 / (2 s^2)) / sqrt(2 pi), solved by a few fixed point steps
+        double lnBeta = Math.log(beta);
+        double ax = Math.abs(x);
+        double s = ax / Math.sqrt(-2.0 * lnBeta);
+        for (int i = 0; i < 3; i++) {
+            double y = 3.0 * Math.log(s / ax) + Math.log(ax) - 0.5 * Math.log(2.0 * Math.PI) - lnBeta;
+            if (!(y > 0.0)) {
+                break;
+            }
+            s = ax / Math.sqrt(2.0 * y);
+        }
+        return s;
+    }
+
+    static double normalizedCall(double x, double s) {
+        double d1 = x / s + 0.5 * s;
+        double d2 = d1 - s;
+        return Math.exp(0.5 * x) * Normal.cdf(d1) - Math.exp(-0.5 * x) * Normal.cdf(d2);
+    }
+
+    // Derivative of normalizedCall() with respect to s
+    static double normalizedVega(double x, double s) {
+        double a = x / s;
+        return ONE_OVER_SQRT_TWO_PI * Math.exp(-0.5 * (a * a + 0.25 * s * s));
+    }
+
+}
@@ -26,7 +26,6 @@ package com.aquarians.aqlib.models;
 
 import com.aquarians.aqlib.Util;
 import com.aquarians.aqlib.math.LinearIterator;
-import org.apache.commons.math3.distribution.NormalDistribution;
 
 import java.util.Iterator;
 
@@ -54,13 +53,11 @@ public class MonteCarloPricer {
     }
 
     private double price(double spot) {
-        NormalDistribution dist = process.getDistribution(timeToExpiration);
-
         double total = 0.0;
         Iterator<Double> it = new LinearIterator(0.0, 1.0, samples);
         while (it.hasNext()) {
             double p = Util.limitProbability(it.next());
-            double x = dist.inverseCumulativeProbability(p);
+            double x = process.logReturn(timeToExpiration, p);
             double forward = spot * Math.exp(x);
             double value = valueAtExpiration(forward);
             total += value;
@@ -29,6 +29,7 @@ import com.aquarians.aqlib.Pair;
 import com.aquarians.aqlib.Util;
 import com.aquarians.aqlib.math.DefaultProbabilityFitter;
 import com.aquarians.aqlib.math.LinearIterator;
+import com.aquarians.aqlib.math.Normal;
 import com.aquarians.aqlib.math.PriceRecord;
 import org.apache.commons.math3.distribution.NormalDistribution;
 
@@ -59,10 +60,13 @@ public class NormalProcess {
         return spot * Math.sqrt(var);
     }
 
-    public NormalDistribution getDistribution(double yf) {
+    /**
+     * Log return over yf years that is not exceeded with the given probability
+     */
+    public double logReturn(double yf, double probability) {
         double mean = (growth - vol * vol * 0.5) * yf;
         double dev = vol * Math.sqrt(yf);
-        return new NormalDistribution(mean, dev);
+        return mean + dev * Normal.inverseCdf(probability);
     }
 
     public List<PriceRecord> generatePath(Day startDay, double spot, int count) {
@@ -125,11 +129,10 @@ public class NormalProcess {
     public DefaultProbabilityFitter simulateForwards(double spot, double timeToExpiration, int samples) {
         DefaultProbabilityFitter forwards = new DefaultProbabilityFitter(samples + 1);
 
-        NormalDistribution dist = getDistribution(timeToExpiration);
         Iterator<Double> it = new LinearIterator(0.0, 1.0, samples);
         while (it.hasNext()) {
             double p = Util.limitProbability(it.next());
-            double x = dist.inverseCumulativeProbability(p);
+            double x = logReturn(timeToExpiration, p);
             double forward = spot * Math.exp(x);
             forwards.addSample(forward);
         }
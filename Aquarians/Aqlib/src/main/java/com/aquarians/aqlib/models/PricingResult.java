@@ -36,6 +36,9 @@ public class PricingResult {
     public Double pnlDev;
     public Day day;
     public Double vol;
+    // Null if the model doesn't compute them or the option has expired (the price and delta are all there is),
+    // read only as a model may hand the same ones out to several results
+    public Greeks greeks;
 
     public PricingResult(Double price, Double delta) {
         this.price = price;
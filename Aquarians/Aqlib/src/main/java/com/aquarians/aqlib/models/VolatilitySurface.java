@@ -27,13 +27,13 @@ package com.aquarians.aqlib.models;
 import com.aquarians.aqlib.Day;
 import com.aquarians.aqlib.Pair;
 import com.aquarians.aqlib.Util;
+import com.aquarians.aqlib.math.Normal;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
-import org.apache.commons.math3.distribution.NormalDistribution;
 import org.apache.commons.math3.fitting.PolynomialCurveFitter;
 import org.apache.commons.math3.fitting.WeightedObservedPoint;
 
@@ -47,6 +47,8 @@ public class VolatilitySurface implements Volatility {
     private final TreeMap<Integer, StrikeVols> maturities = new TreeMap<>();
     private Double spot;
     private Double error;
+    // Used for the lookups once the surface is complete, dropped when it changes
+    private CompiledVolatilitySurface compiled;
 
     public VolatilitySurface() {}
 
@@ -62,7 +64,17 @@ public class VolatilitySurface implements Volatility {
         return maturities.firstKey();
     }
 
+    /**
+     * Builds the read only copy used by the lookups from now on. Changes made through add() and setForward() drop it,
+     * not those made directly to the StrikeVols of getMaturities().
+     */
+    public CompiledVolatilitySurface compile() {
+        compiled = new CompiledVolatilitySurface(this);
+        return compiled;
+    }
+
     public void add(int maturity, double strike, double vol) {
+        compiled = null;
         StrikeVols strikeVols = maturities.get(maturity);
         if (null == strikeVols) {
             strikeVols = new StrikeVols();
@@ -83,37 +95,22 @@ public class VolatilitySurface implements Volatility {
 
     // Find highest maturity <= given maturity
     public Map.Entry<Integer, StrikeVols> getLowerBound(int maturity) {
-        Map.Entry<Integer, StrikeVols> lowerEntry = null;
-
-        for (Map.Entry<Integer, StrikeVols> entry : maturities.entrySet()) {
-            if (entry.getKey() > maturity) {
-                break;
-            }
-
-            lowerEntry = entry;
-        }
-
-        return lowerEntry;
+        return maturities.floorEntry(maturity);
     }
 
-    // Find highest maturity <= given maturity
+    // Find lowest maturity >= given maturity
     public Map.Entry<Integer, StrikeVols> getUpperBound(int maturity) {
-        Map.Entry<Integer, StrikeVols> upperEntry = null;
-
-        for (Map.Entry<Integer, StrikeVols> entry : maturities.descendingMap().entrySet()) {
-            if (entry.getKey() < maturity) {
-                break;
-            }
-
-            upperEntry = entry;
-        }
-
-        return upperEntry;
+        return maturities.ceilingEntry(maturity);
     }
 
     // Strike needs to be expressed in standard deviations of volatility, see conversion function toDevStr()
     @Override
     public Double getVolatility(int maturity, double strike) {
+        CompiledVolatilitySurface snapshot = compiled;
+        if (snapshot != null) {
+            return snapshot.getVolatility(maturity, strike);
+        }
+
         if (maturities.isEmpty() || (maturity < 1)) {
             return null;
         }
@@ -172,32 +169,12 @@ public class VolatilitySurface implements Volatility {
 
         // Find highest strike <= given strike
         public Map.Entry<Double, Double> getLowerBound(double strike) {
-            Map.Entry<Double, Double> lowerEntry = null;
-
-            for (Map.Entry<Double, Double> entry : entrySet()) {
-                if (entry.getKey() > strike) {
-                    break;
-                }
-
-                lowerEntry = entry;
-            }
-
-            return lowerEntry;
+            return floorEntry(strike);
         }
 
         // Find lowest strike >= given strike
         public Map.Entry<Double, Double> getUpperBound(double strike) {
-            Map.Entry<Double, Double> upperEntry = null;
-
-            for (Map.Entry<Double, Double> entry : descendingMap().entrySet()) {
-                if (entry.getKey() < strike) {
-                    break;
-                }
-
-                upperEntry = entry;
-            }
-
-            return upperEntry;
+            return ceilingEntry(strike);
         }
 
         public Double interpolate(Double strike) {
@@ -231,6 +208,7 @@ public class VolatilitySurface implements Volatility {
     }
 
     public void setForward(int maturity, double forward) {
+        compiled = null;
         StrikeVols strikeVols = maturities.get(maturity);
         if (null == strikeVols) {
             strikeVols = new StrikeVols();
@@ -241,34 +219,36 @@ public class VolatilitySurface implements Volatility {
     }
 
     public Double getInterest(int maturity) {
-        if (0 == maturities.size()) {
-            return null;
+        CompiledVolatilitySurface snapshot = compiled;
+        if (snapshot != null) {
+            return snapshot.getInterest(maturity);
         }
 
-        // Try exact
-        StrikeVols strikeVols = maturities.get(maturity);
-        if (null != strikeVols) {
-            return strikeVols.interest;
+        if (0 == maturities.size()) {
+            return null;
         }
 
-        // Find the closest maturity
-        Integer minDistance = null;
-        for (Map.Entry<Integer, StrikeVols> entry : maturities.entrySet()) {
-            int distance = Math.abs(entry.getKey() - maturity);
-            if ((null == minDistance) || (distance < minDistance)) {
-                minDistance = distance;
-                strikeVols = entry.getValue();
-            }
+        // Exact or closest maturity, the lower one if two are as close
+        Map.Entry<Integer, StrikeVols> lowerEntry = maturities.floorEntry(maturity);
+        Map.Entry<Integer, StrikeVols> upperEntry = maturities.ceilingEntry(maturity);
+        if (null == upperEntry) {
+            return lowerEntry.getValue().interest;
         }
-        if (strikeVols != null) {
-            return strikeVols.interest;
+        if (null == lowerEntry) {
+            return upperEntry.getValue().interest;
         }
 
-        return null;
+        boolean lowerIsCloser = (maturity - lowerEntry.getKey()) <= (upperEntry.getKey() - maturity);
+        return lowerIsCloser ? lowerEntry.getValue().interest : upperEntry.getValue().interest;
     }
 
     @Override
     public Double getForward(int maturity) {
+        CompiledVolatilitySurface snapshot = compiled;
+        if (snapshot != null) {
+            return snapshot.getForward(maturity);
+        }
+
         if (0 == maturities.size()) {
             return null;
         }
@@ -283,6 +263,7 @@ public class VolatilitySurface implements Volatility {
     }
 
     public void add(int maturity, VolatilitySurface.StrikeVols vols) {
+        compiled = null;
         maturities.put(maturity, vols);
     }
 
@@ -302,8 +283,6 @@ public class VolatilitySurface implements Volatility {
         VolatilitySurface resultSurface = new VolatilitySurface();
         resultSurface.setSpot(spot);
 
-        NormalDistribution stdDist = new NormalDistribution();
-
         for (Map.Entry<Integer, StrikeVols> maturityEntry : maturities.entrySet()) {
             Integer maturity = maturityEntry.getKey();
             StrikeVols strikeVols = maturityEntry.getValue();
@@ -326,7 +305,7 @@ public class VolatilitySurface implements Volatility {
                     continue;
                 }
 
-                double weight = stdDist.density(z);
+                double weight = Normal.pdf(z);
                 Double y = volEntry.getValue();
                 points.add(new WeightedObservedPoint(weight, z, y));
             }
@@ -0,0 +1,90 @@
+/*
+    MIT License
+
+    Copyright (c) 2020 Mihai Bunea
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+
+package com.aquarians.aqlib;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CsvRecordTest {
+
+    @Test
+    public void testColumns() {
+        CsvRecord record = new CsvRecord().parse("SPY,412.5,*,SPY230120C00400000,,call,01/20/2023,12/30/2022,400,,13.05,13.2,,,");
+        assertEquals(15, record.size());
+        assertEquals("SPY", record.getString(0));
+        assertTrue(record.isEmpty(4));
+        assertTrue(record.equalsIgnoreCase(5, "CALL"));
+        assertEquals(412.5, record.getDouble(1), 0.0);
+        assertEquals(new Day(2023, 1, 20), record.getDay(6, Day.US_FORMAT));
+        assertEquals(new Day(2022, 12, 30), record.getDay(7, Day.US_FORMAT));
+        assertEquals("", record.getString(14));
+
+        // The cached day is only used for the same text
+        record.parse("QQQ,1,*,X,,put,01/20/2023,01/03/2023,400,,1,2");
+        assertEquals(new Day(2023, 1, 20), record.getDay(6, Day.US_FORMAT));
+        assertEquals(new Day(2023, 1, 3), record.getDay(7, Day.US_FORMAT));
+    }
+
+    @Test
+    public void testParseDouble() {
+        String[] values = {"0", "-0", "1.", ".5", "+2.25", "-13.05", "0.0001", "400", "1e3", "1234567890123456789",
+                "0.1234567890123456789", "99999.999999", "1.5f"};
+        for (String value : values) {
+            assertEquals(value, Double.parseDouble(value), CsvRecord.parseDouble(value, 0, value.length()), 0.0);
+        }
+
+        Random random = new Random(7);
+        for (int i = 0; i < 100000; i++) {
+            String value = Long.toString(random.nextInt(10000000)) + "." + random.nextInt(10000);
+            double expected = Double.parseDouble(value);
+            assertEquals(value, Double.doubleToLongBits(expected), Double.doubleToLongBits(CsvRecord.parseDouble(value, 0, value.length())));
+        }
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testParseInvalidDouble() {
+        CsvRecord.parseDouble("abc", 0, 3);
+    }
+
+    @Test
+    public void testParseDay() {
+        String[][] days = {
+                {"01/20/2023", Day.US_FORMAT},
+                {"1/5/2020", Day.US_FORMAT},
+                {"2021-12-31", Day.FORMAT_YYYY_MM_DD},
+                {"20170120", Day.FORMAT_YYYYMMDD},
+                {"2016-Feb-29", Day.DEFAULT_FORMAT}
+        };
+
+        for (String[] day : days) {
+            String text = "x," + day[0] + ",y";
+            assertEquals(day[0], new Day(day[0], day[1]), Day.parse(text, 2, 2 + day[0].length(), day[1]));
+        }
+    }
+
+}
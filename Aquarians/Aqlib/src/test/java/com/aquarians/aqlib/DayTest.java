@@ -26,6 +26,8 @@ package com.aquarians.aqlib;
 
 import org.junit.Test;
 
+import java.util.Calendar;
+
 import static org.junit.Assert.assertEquals;
 
 public class DayTest {
@@ -84,4 +86,43 @@ public class DayTest {
         }
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testEpochDay() {
+        Day day = new Day(1970, 1, 1);
+        assertEquals(0, day.toEpochDay());
+        assertEquals(Calendar.THURSDAY, day.getDayOfWeek());
+
+        Day leap = new Day(2020, 2, 29);
+        assertEquals(leap, Day.fromEpochDay(leap.toEpochDay()));
+        assertEquals(new Day(2020, 3, 1), leap.next());
+        assertEquals(1, leap.countCalendarDays(new Day(2020, 3, 1)));
+
+        // Days past the end of the month roll over like in Calendar
+        assertEquals(new Day(2021, 3, 2), new Day(2021, 2, 30));
+    }
+
+    @Test
+    public void testFormat() {
+        Day[] days = {new Day(2006, 1, 3), new Day(2021, 12, 31), new Day(1999, 7, 9)};
+        for (Day day : days) {
+            assertEquals(day.format(Day.DEFAULT_FORMAT), day.toString());
+            assertEquals(day, new Day(day.toString()));
+        }
+    }
+
+    @Test
+    public void testTradingDaysOutsideTable() {
+        // Before and after the precomputed calendar the weekends are counted the same way
+        Day[] starts = {new Day(1900, 1, 1), new Day(1949, 12, 28), new Day(2100, 12, 27), new Day(2150, 6, 6)};
+        for (Day start : starts) {
+            Day tradingStart = start.ensureTradingDay();
+            for (int days = 0; days < 20; days++) {
+                Day end = tradingStart.addTradingDaysFast(days);
+                assertEquals(tradingStart.addTradingDaysSlow(days), end);
+                assertEquals(days, tradingStart.countTradingDays(end));
+                assertEquals(end, end.nextTradingDay().previousTradingDay());
+            }
+        }
+    }
+
+}
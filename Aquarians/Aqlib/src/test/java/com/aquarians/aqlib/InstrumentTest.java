@@ -0,0 +1,104 @@
+/*
+    MIT License
+
+    Copyright (c) 2024 Mihai Bunea
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+
+package com.aquarians.aqlib;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class InstrumentTest {
+
+    private static Instrument createOption(Double bid, Double ask) {
+        Instrument option = new Instrument(Instrument.Type.OPTION, "C100", true, new Day(2020, 1, 17), 100.0);
+        option.setBidPrice(bid);
+        option.setAskPrice(ask);
+        return option;
+    }
+
+    @Test
+    public void testMissingPrices() {
+        Instrument option = createOption(null, 2.0);
+        assertFalse(option.hasBid());
+        assertTrue(option.hasAsk());
+        assertNull(option.getBidPrice());
+        assertTrue(Double.isNaN(option.getBid()));
+        assertEquals(2.0, option.getPrice(), 0.0);
+        assertNull(option.getMidPrice());
+        assertNull(option.getSpread());
+
+        option.setBid(1.5);
+        assertEquals(1.75, option.getMidPrice(), 0.0);
+        assertEquals(0.5, option.getSpread(), 0.0);
+
+        option.setAsk(Double.NaN);
+        assertNull(option.getAskPrice());
+        assertEquals(1.5, option.getPrice(), 0.0);
+    }
+
+    @Test
+    public void testOptionalFields() {
+        Instrument stock = new Instrument(Instrument.Type.STOCK, "SPY", null, null, null);
+        assertNull(stock.isCall());
+        assertNull(stock.getStrike());
+        assertTrue(Double.isNaN(stock.getStrikeValue()));
+
+        Instrument put = new Instrument(Instrument.Type.OPTION, "P100", false, null, 100.0);
+        assertEquals(Boolean.FALSE, put.isCall());
+        assertEquals(100.0, put.getStrikeValue(), 0.0);
+    }
+
+    @Test
+    public void testQuote() {
+        Instrument option = createOption(1.0, 1.2);
+        Instrument.Quote quote = option.getQuote(new Instrument.Quote());
+        assertTrue(quote.hasBid() && quote.hasAsk());
+        assertEquals(1.1, quote.getMid(), Util.ZERO);
+        assertEquals(0.2, quote.getSpread(), Util.ZERO);
+
+        quote.set(Double.NaN, 1.4);
+        assertTrue(Double.isNaN(quote.getMid()));
+        assertEquals(1.4, quote.getPrice(), 0.0);
+
+        option.setQuote(quote);
+        assertFalse(option.hasBid());
+        assertEquals(1.4, option.getAsk(), 0.0);
+    }
+
+    @Test
+    public void testClone() {
+        Instrument option = createOption(1.0, null);
+        Instrument clone = option.clone();
+        assertEquals(option.getCode(), clone.getCode());
+        assertEquals(option.isCall(), clone.isCall());
+        assertEquals(option.getStrike(), clone.getStrike());
+        assertEquals(1.0, clone.getBid(), 0.0);
+        assertFalse(clone.hasAsk());
+
+        // The clone prices are independent
+        clone.setBid(Double.NaN);
+        assertTrue(option.hasBid());
+    }
+
+}
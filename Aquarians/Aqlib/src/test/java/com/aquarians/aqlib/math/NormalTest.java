@@ -0,0 +1,108 @@
+/*
+    MIT License
+
+    Copyright (c) 2020 Mihai Bunea
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+
+package com.aquarians.aqlib.math;
+
+import org.apache.commons.math3.special.Erf;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class NormalTest {
+
+    private static double expectedCdf(double z) {
+        return 0.5 * Erf.erfc(-z / Math.sqrt(2.0));
+    }
+
+    @Test
+    public void testCdf() {
+        for (double z = -10.0; z <= 10.0; z += 0.01) {
+            assertEquals("z=" + z, expectedCdf(z), Normal.cdf(z), 1e-15);
+        }
+    }
+
+    @Test
+    public void testCdfTail() {
+        // Relative error in the lower tail, where the upper tail of a call is priced
+        for (double z = -37.0; z <= -1.0; z += 0.05) {
+            double expected = expectedCdf(z);
+            // The rounding of z / sqrt(2) costs about z^2 * 1e-16
+            assertEquals("z=" + z, 1.0, Normal.cdf(z) / expected, 5e-15 + 4e-16 * z * z);
+        }
+
+        assertEquals(0.0, Normal.cdf(-40.0), 0.0);
+        assertEquals(1.0, Normal.cdf(40.0), 0.0);
+        assertEquals(0.5, Normal.cdf(0.0), 1e-16);
+    }
+
+    @Test
+    public void testSymmetry() {
+        for (double z = 0.0; z <= 8.0; z += 0.1) {
+            assertEquals("z=" + z, 1.0, Normal.cdf(z) + Normal.cdf(-z), 1e-15);
+        }
+    }
+
+    @Test
+    public void testPdf() {
+        assertEquals(1.0 / Math.sqrt(2.0 * Math.PI), Normal.pdf(0.0), 1e-16);
+        for (double z = -8.0; z <= 8.0; z += 0.1) {
+            assertEquals(Normal.pdf(z), Normal.pdf(-z), 0.0);
+            // Derivative of the CDF
+            double h = 1e-5;
+            double slope = (Normal.cdf(z + h) - Normal.cdf(z - h)) / (2.0 * h);
+            assertEquals("z=" + z, Normal.pdf(z), slope, 1e-9);
+        }
+    }
+
+    @Test
+    public void testInverseCdf() {
+        // Above the median p has lost the precision needed to recover z, the round trip is checked below instead
+        for (double z = -37.0; z <= 0.0; z += 0.01) {
+            double p = expectedCdf(z);
+            assertEquals("z=" + z, z, Normal.inverseCdf(p), 1e-12 * Math.max(1.0, Math.abs(z)));
+        }
+
+        for (double p = 0.001; p < 1.0; p += 0.001) {
+            assertEquals("p=" + p, p, Normal.cdf(Normal.inverseCdf(p)), 1e-15);
+        }
+    }
+
+    @Test
+    public void testNaN() {
+        assertTrue(Double.isNaN(Normal.erfc(Double.NaN)));
+        assertTrue(Double.isNaN(Normal.cdf(Double.NaN)));
+        assertTrue(Double.isNaN(Normal.pdf(Double.NaN)));
+    }
+
+    @Test
+    public void testInverseCdfLimits() {
+        assertEquals(0.0, Normal.inverseCdf(0.5), 1e-16);
+        assertEquals(Double.NEGATIVE_INFINITY, Normal.inverseCdf(0.0), 0.0);
+        assertEquals(Double.POSITIVE_INFINITY, Normal.inverseCdf(1.0), 0.0);
+        assertTrue(Double.isNaN(Normal.inverseCdf(-0.1)));
+        assertTrue(Double.isNaN(Normal.inverseCdf(1.1)));
+        assertTrue(Double.isNaN(Normal.inverseCdf(Double.NaN)));
+    }
+
+}
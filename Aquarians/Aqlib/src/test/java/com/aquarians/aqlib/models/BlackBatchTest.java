@@ -0,0 +1,159 @@
+/*
+    MIT License
+
+    Copyright (c) 2020 Mihai Bunea
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+
+package com.aquarians.aqlib.models;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BlackBatchTest {
+
+    private static final double FORWARD = 100.0;
+    private static final double TIME = 0.25;
+    private static final double RATE = 0.03;
+    private static final double[] STRIKES = {60.0, 80.0, 95.0, 100.0, 100.0, 105.0, 120.0, 150.0};
+    private static final double[] VOLS = {0.45, 0.35, 0.25, 0.2, 0.2, 0.22, 0.3, 0.5};
+    private static final boolean[] CALLS = {false, false, false, true, false, true, true, true};
+
+    private static final int COUNT = STRIKES.length;
+
+    private static BlackBatch.Results price(double forward, double time, double rate, double[] vols) {
+        BlackBatch.Results results = new BlackBatch.Results(COUNT);
+        BlackBatch.price(forward, time, rate, COUNT, STRIKES, vols, CALLS, results);
+        return results;
+    }
+
+    private static double[] prices(double forward, double time, double[] vols) {
+        return price(forward, time, RATE, vols).prices;
+    }
+
+    @Test
+    public void testMatchesBlackScholes() {
+        BlackBatch.Results results = price(FORWARD, TIME, RATE, VOLS);
+
+        for (int i = 0; i < COUNT; i++) {
+            BlackScholes pricer = new BlackScholes(CALLS[i], FORWARD, STRIKES[i], TIME, RATE, 0.0, VOLS[i]);
+            pricer.setBlack(true);
+            // Same digits, so switching the models to the batch doesn't move any price
+            assertEquals("K=" + STRIKES[i], pricer.price(), results.prices[i], 0.0);
+
+            Greeks expected = pricer.greeks(null);
+            Greeks actual = results.get(i, null);
+            String message = "K=" + STRIKES[i];
+            assertEquals(message, expected.price, actual.price, 1e-12);
+            assertEquals(message, expected.delta, actual.delta, 1e-12);
+            assertEquals(message, expected.gamma, actual.gamma, 1e-12);
+            assertEquals(message, expected.vega, actual.vega, 1e-12);
+            assertEquals(message, expected.theta, actual.theta, 1e-12);
+            assertEquals(message, expected.vanna, actual.vanna, 1e-12);
+            assertEquals(message, expected.volga, actual.volga, 1e-12);
+            assertEquals(message, expected.rho, actual.rho, 1e-12);
+        }
+    }
+
+    @Test
+    public void testGreeks() {
+        BlackBatch.Results results = price(FORWARD, TIME, RATE, VOLS);
+
+        double h = 1e-3;
+        BlackBatch.Results up = price(FORWARD + h, TIME, RATE, VOLS);
+        BlackBatch.Results down = price(FORWARD - h, TIME, RATE, VOLS);
+
+        double dv = 1e-4;
+        double[] volsUp = VOLS.clone();
+        double[] volsDown = VOLS.clone();
+        for (int i = 0; i < COUNT; i++) {
+            volsUp[i] += dv;
+            volsDown[i] -= dv;
+        }
+        BlackBatch.Results vegaUp = price(FORWARD, TIME, RATE, volsUp);
+        BlackBatch.Results vegaDown = price(FORWARD, TIME, RATE, volsDown);
+
+        double[] later = prices(FORWARD, TIME - 1e-5, VOLS);
+        double[] earlier = prices(FORWARD, TIME + 1e-5, VOLS);
+
+        double[] rateUp = price(FORWARD, TIME, RATE + 1e-5, VOLS).prices;
+        double[] rateDown = price(FORWARD, TIME, RATE - 1e-5, VOLS).prices;
+
+        for (int i = 0; i < COUNT; i++) {
+            String message = "K=" + STRIKES[i];
+            double price = results.prices[i];
+            assertEquals(message, (up.prices[i] - down.prices[i]) / (2.0 * h), results.deltas[i], 1e-8);
+            assertEquals(message, (up.prices[i] - 2.0 * price + down.prices[i]) / (h * h), results.gammas[i], 1e-5);
+            // Per volatility point
+            assertEquals(message, (vegaUp.prices[i] - vegaDown.prices[i]) / (2.0 * dv) / 100.0, results.vegas[i], 1e-8);
+            assertEquals(message, (vegaUp.deltas[i] - vegaDown.deltas[i]) / (2.0 * dv) / 100.0, results.vannas[i], 1e-8);
+            assertEquals(message, (vegaUp.vegas[i] - vegaDown.vegas[i]) / (2.0 * dv) / 100.0, results.volgas[i], 1e-8);
+            // Time passing shortens the time to expiration
+            assertEquals(message, (later[i] - earlier[i]) / 2e-5, results.thetas[i], 1e-5);
+            assertEquals(message, (rateUp[i] - rateDown[i]) / 2e-5 / 100.0, results.rhos[i], 1e-8);
+        }
+    }
+
+    @Test
+    public void testExpired() {
+        BlackBatch.Results results = price(110.0, 0.0, RATE, VOLS);
+        double[] prices = results.prices;
+        double[] deltas = results.deltas;
+        // Undiscounted intrinsic value like BlackScholes.price()
+        assertEquals(0.0, prices[2], 0.0);
+        assertEquals(0.0, deltas[2], 0.0);
+        assertEquals(10.0, prices[3], 0.0);
+        assertEquals(1.0, deltas[3], 0.0);
+        assertEquals(5.0, prices[5], 0.0);
+        assertEquals(0.0, prices[6], 0.0);
+        assertEquals(0.0, deltas[6], 0.0);
+    }
+
+    @Test
+    public void testMissingVolatility() {
+        double[] vols = VOLS.clone();
+        vols[3] = Double.NaN;
+        BlackBatch.Results results = price(FORWARD, TIME, RATE, vols);
+
+        // Not priced rather than worth nothing
+        assertTrue(Double.isNaN(results.prices[3]));
+        assertTrue(Double.isNaN(results.deltas[3]));
+        assertFalse(Double.isNaN(results.prices[4]));
+    }
+
+    @Test
+    public void testImpliedVolatility() {
+        double[] prices = prices(FORWARD, TIME, VOLS);
+        // More than the forward is worth
+        prices[6] = FORWARD;
+        double[] vols = new double[COUNT];
+        BlackBatch.impliedVolatility(FORWARD, TIME, RATE, COUNT, STRIKES, prices, CALLS, vols);
+
+        for (int i = 0; i < COUNT; i++) {
+            if (6 == i) {
+                continue;
+            }
+            assertEquals("K=" + STRIKES[i], VOLS[i], vols[i], 1e-9);
+        }
+        assertTrue(Double.isNaN(vols[6]));
+    }
+
+}
@@ -0,0 +1,110 @@
+/*
+    MIT License
+
+    Copyright (c) 2020 Mihai Bunea
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+
+package com.aquarians.aqlib.models;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BlackScholesTest {
+
+    private static final double SPOT = 100.0;
+    private static final double RATE = 0.03;
+    private static final double DIVIDEND = 0.01;
+    private static final double TIME = 0.5;
+
+    private static BlackScholes pricer(boolean isCall, double spot, double strike, double time, double rate, double vol) {
+        return new BlackScholes(isCall, spot, strike, time, rate, DIVIDEND, vol);
+    }
+
+    @Test
+    public void testGreeksMatchAnalytic() {
+        for (boolean isCall : new boolean[] {true, false}) {
+            for (double strike : new double[] {70.0, 95.0, 100.0, 110.0, 140.0}) {
+                BlackScholes pricer = pricer(isCall, SPOT, strike, TIME, RATE, 0.3);
+                Greeks greeks = pricer.greeks(null);
+                String message = "call=" + isCall + " K=" + strike;
+                assertEquals(message, pricer.price(), greeks.price, 1e-12);
+                assertEquals(message, pricer.analyticDelta(), greeks.delta, 1e-12);
+                assertEquals(message, pricer.analyticGamma(), greeks.gamma, 1e-12);
+                assertEquals(message, pricer.analyticVega(), greeks.vega, 1e-12);
+                assertEquals(message, pricer.analyticTheta(), greeks.theta, 1e-12);
+            }
+        }
+    }
+
+    @Test
+    public void testSecondOrderGreeks() {
+        double vol = 0.3;
+        double dv = 1e-4;
+        double dr = 1e-5;
+        for (boolean isCall : new boolean[] {true, false}) {
+            for (double strike : new double[] {70.0, 95.0, 100.0, 110.0, 140.0}) {
+                Greeks greeks = pricer(isCall, SPOT, strike, TIME, RATE, vol).greeks(null);
+                Greeks up = pricer(isCall, SPOT, strike, TIME, RATE, vol + dv).greeks(null);
+                Greeks down = pricer(isCall, SPOT, strike, TIME, RATE, vol - dv).greeks(null);
+                double rateUp = pricer(isCall, SPOT, strike, TIME, RATE + dr, vol).price();
+                double rateDown = pricer(isCall, SPOT, strike, TIME, RATE - dr, vol).price();
+
+                // Per volatility and rate point
+                String message = "call=" + isCall + " K=" + strike;
+                assertEquals(message, (up.delta - down.delta) / (2.0 * dv) / 100.0, greeks.vanna, 1e-8);
+                assertEquals(message, (up.vega - down.vega) / (2.0 * dv) / 100.0, greeks.volga, 1e-8);
+                assertEquals(message, (rateUp - rateDown) / (2.0 * dr) / 100.0, greeks.rho, 1e-8);
+            }
+        }
+    }
+
+    @Test
+    public void testGreeksReused() {
+        Greeks greeks = new Greeks();
+        assertSame(greeks, pricer(true, SPOT, 100.0, TIME, RATE, 0.3).greeks(greeks));
+
+        // Expired, nothing left of the previous values but the intrinsic value and delta
+        assertSame(greeks, pricer(false, SPOT, 110.0, 0.0, RATE, 0.3).greeks(greeks));
+        assertEquals(10.0, greeks.price, 0.0);
+        assertEquals(-1.0, greeks.delta, 0.0);
+        assertEquals(0.0, greeks.gamma, 0.0);
+        assertEquals(0.0, greeks.vega, 0.0);
+        assertEquals(0.0, greeks.theta, 0.0);
+    }
+
+    @Test
+    public void testPortfolioRisk() {
+        Greeks call = pricer(true, SPOT, 100.0, TIME, RATE, 0.3).greeks(null);
+        Greeks put = pricer(false, SPOT, 100.0, TIME, RATE, 0.3).greeks(null);
+
+        // Long a call and short a put is a forward: delta e^(-qt), no gamma nor vega
+        Greeks total = new Greeks();
+        total.add(call, 1.0);
+        total.add(put, -1.0);
+        assertEquals(Math.exp(-DIVIDEND * TIME), total.delta, 1e-12);
+        assertEquals(0.0, total.gamma, 1e-12);
+        assertEquals(0.0, total.vega, 1e-12);
+        assertEquals(0.0, total.vanna, 1e-12);
+        assertEquals(0.0, total.volga, 1e-12);
+    }
+
+}
@@ -0,0 +1,117 @@
+/*
+    MIT License
+
+    Copyright (c) 2020 Mihai Bunea
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+
+package com.aquarians.aqlib.models;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ImpliedVolatilityTest {
+
+    private static final double[] STRIKES = {50.0, 80.0, 95.0, 100.0, 105.0, 120.0, 150.0};
+    private static final double[] TIMES = {1.0 / 252.0, 0.1, 0.5, 2.0};
+    private static final double[] VOLS = {0.05, 0.15, 0.3, 0.8, 2.0};
+
+    private static BlackScholes pricer(boolean isCall, double strike, double time, double vol) {
+        return new BlackScholes(isCall, 100.0, strike, time, 0.02, 0.01, vol);
+    }
+
+    @Test
+    public void testRoundTrip() {
+        for (boolean isCall : new boolean[] {true, false}) {
+            for (double strike : STRIKES) {
+                for (double time : TIMES) {
+                    for (double vol : VOLS) {
+                        BlackScholes pricer = pricer(isCall, strike, time, vol);
+                        double price = pricer.price();
+                        // Too little time value left to tell the volatility apart
+                        if (pricer.analyticVega() * 100.0 < 1e-6) {
+                            continue;
+                        }
+
+                        Double implied = pricer.impliedVolatility(price);
+                        assertNotNull(implied);
+                        assertEquals("call=" + isCall + " K=" + strike + " t=" + time + " vol=" + vol, vol, implied, 1e-9);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMatchesBisection() {
+        for (boolean isCall : new boolean[] {true, false}) {
+            for (double strike : STRIKES) {
+                for (double time : TIMES) {
+                    for (double vol : VOLS) {
+                        BlackScholes pricer = pricer(isCall, strike, time, vol);
+                        double price = pricer.price();
+                        if (pricer.analyticVega() * 100.0 < 1e-6) {
+                            continue;
+                        }
+
+                        Double bisection = pricer.impliedVolatilityBisection(price);
+                        Double implied = pricer.impliedVolatility(price);
+                        assertNotNull(bisection);
+                        assertEquals(bisection, implied, 1e-6);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBlack() {
+        BlackScholes pricer = new BlackScholes(false, 2500.0, 2300.0, 0.25, 0.01, 0.0, 0.22);
+        pricer.setBlack(true);
+        assertEquals(0.22, pricer.impliedVolatility(pricer.price()), 1e-10);
+    }
+
+    @Test
+    public void testNormalized() {
+        // Deep out of the money, solved on the logarithm of the price
+        double s = 0.05;
+        double x = -0.5;
+        double beta = ImpliedVolatility.normalizedCall(x, s);
+        assertTrue(beta > 0.0);
+        assertEquals(s, ImpliedVolatility.solveNormalized(beta, x), 1e-12);
+
+        // At the money and far above the inflection point
+        assertEquals(0.2, ImpliedVolatility.solveNormalized(ImpliedVolatility.normalizedCall(0.0, 0.2), 0.0), 1e-13);
+        assertEquals(3.0, ImpliedVolatility.solveNormalized(ImpliedVolatility.normalizedCall(-0.1, 3.0), -0.1), 1e-10);
+    }
+
+    @Test
+    public void testNoSolution() {
+        BlackScholes call = pricer(true, 80.0, 0.5, 0.2);
+        // Below the intrinsic value
+        assertTrue(Double.isNaN(ImpliedVolatility.solve(true, 10.0, 100.0, 80.0, 0.5, 1.0)));
+        // Above the forward
+        assertTrue(Double.isNaN(ImpliedVolatility.solve(true, 101.0, 100.0, 80.0, 0.5, 1.0)));
+        assertTrue(Double.isNaN(ImpliedVolatility.solve(true, 0.0, 100.0, 80.0, 0.5, 1.0)));
+        assertNull(call.impliedVolatility(1.0));
+    }
+
+}
@@ -0,0 +1,121 @@
+/*
+    MIT License
+
+    Copyright (c) 2020 Mihai Bunea
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+
+package com.aquarians.aqlib.models;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class VolatilitySurfaceTest {
+
+    private static VolatilitySurface surface() {
+        VolatilitySurface surface = new VolatilitySurface();
+        surface.setSpot(100.0);
+
+        int[] maturities = {5, 21, 63, 126};
+        double[] strikes = {70.0, 85.0, 95.0, 100.0, 105.0, 115.0, 130.0};
+        for (int i = 0; i < maturities.length; i++) {
+            for (double strike : strikes) {
+                double moneyness = Math.log(strike / 100.0);
+                double vol = 0.2 + 0.02 * i + 0.5 * moneyness * moneyness - 0.1 * moneyness;
+                surface.add(maturities[i], strike, vol);
+            }
+            surface.getMaturities().get(maturities[i]).interest = 0.01 * (i + 1);
+        }
+        surface.setForward(21, 100.5);
+        surface.setForward(63, 101.0);
+
+        // A maturity with a forward but no volatilities
+        surface.setForward(200, 103.0);
+        surface.getMaturities().get(200).interest = 0.05;
+
+        return surface;
+    }
+
+    @Test
+    public void testCompiledMatchesSurface() {
+        VolatilitySurface surface = surface();
+        CompiledVolatilitySurface compiled = new CompiledVolatilitySurface(surface);
+
+        for (int maturity = -1; maturity <= 250; maturity++) {
+            for (double strike = 50.0; strike <= 150.0; strike += 2.5) {
+                String message = "maturity=" + maturity + " strike=" + strike;
+                assertEquals(message, surface.getVolatility(maturity, strike), compiled.getVolatility(maturity, strike));
+                // Second time from the memo
+                assertEquals(message, surface.getVolatility(maturity, strike), compiled.getVolatility(maturity, strike));
+            }
+
+            assertEquals("maturity=" + maturity, surface.getInterest(maturity), compiled.getInterest(maturity));
+            assertEquals("maturity=" + maturity, surface.getForward(maturity), compiled.getForward(maturity));
+        }
+    }
+
+    @Test
+    public void testInterestOfClosestMaturity() {
+        VolatilitySurface surface = surface();
+        assertEquals(0.01, surface.getInterest(1), 0.0);
+        assertEquals(0.01, surface.getInterest(13), 0.0);
+        assertEquals(0.02, surface.getInterest(14), 0.0);
+        assertEquals(0.05, surface.getInterest(1000), 0.0);
+    }
+
+    @Test
+    public void testInterpolation() {
+        VolatilitySurface surface = new VolatilitySurface();
+        surface.add(10, 90.0, 0.3);
+        surface.add(10, 110.0, 0.2);
+        surface.add(40, 90.0, 0.4);
+        surface.add(40, 110.0, 0.4);
+        surface.compile();
+
+        assertEquals(0.25, surface.getVolatility(10, 100.0), 1e-15);
+        // Flat beyond the strikes and maturities
+        assertEquals(0.3, surface.getVolatility(10, 50.0), 1e-15);
+        assertEquals(0.2, surface.getVolatility(5, 150.0), 1e-15);
+        assertEquals(0.4, surface.getVolatility(60, 100.0), 1e-15);
+        // Total variance is linear in time
+        double var = 0.5 * (0.25 * 0.25 * 10 + 0.4 * 0.4 * 40);
+        assertEquals(Math.sqrt(var / 25), surface.getVolatility(25, 100.0), 1e-15);
+        assertNull(surface.getVolatility(0, 100.0));
+    }
+
+    @Test
+    public void testChangeDropsCompiled() {
+        VolatilitySurface surface = new VolatilitySurface();
+        surface.add(10, 100.0, 0.3);
+        surface.compile();
+        assertEquals(0.3, surface.getVolatility(20, 100.0), 0.0);
+
+        surface.add(20, 100.0, 0.5);
+        assertEquals(0.5, surface.getVolatility(20, 100.0), 0.0);
+
+        surface.compile();
+        assertEquals(0.5, surface.getVolatility(20, 100.0), 0.0);
+        assertNull(surface.getForward(20));
+        surface.setForward(20, 101.0);
+        assertEquals(101.0, surface.getForward(20), 0.0);
+    }
+
+}
@@ -25,7 +25,9 @@
 package com.aquarians.backtester;
 
 import com.aquarians.aqlib.ApplicationModule;
+import com.aquarians.aqlib.Util;
 import com.aquarians.backtester.database.DatabaseModule;
+import com.aquarians.backtester.database.WriteBehindModule;
 import com.aquarians.backtester.gui.GuiModule;
 import com.aquarians.backtester.jobs.JobsModule;
 import com.aquarians.backtester.marketdata.MarketDataModule;
@@ -78,6 +80,7 @@ public class Application {
     private void createRegularModules() {
         // Module zero provided for global access
         modules.add(new DatabaseModule(0));
+        modules.add(new WriteBehindModule());
 
         // Singletons
         String marketDataType = properties.getProperty("MarketData.Type", HistoricalMarketDataModule.NAME);
@@ -213,9 +216,24 @@ public class Application {
             throw new RuntimeException(ex.getMessage(), ex);
         }
 
+        // Database modules don't depend on other modules, connect them all at the same time
+        List<Thread> threads = new ArrayList<>();
+        for (ApplicationModule module : modules) {
+            if (module instanceof DatabaseModule) {
+                Thread thread = new Thread(module::init, "INIT_" + module.getName());
+                threads.add(thread);
+                thread.start();
+            }
+        }
+        for (Thread thread : threads) {
+            Util.safeJoin(thread);
+        }
+
         // Don't catch any exception here, if one module fails, the whole application fails
         for (ApplicationModule module : modules) {
-            module.init();
+            if (!(module instanceof DatabaseModule)) {
+                module.init();
+            }
         }
     }
 
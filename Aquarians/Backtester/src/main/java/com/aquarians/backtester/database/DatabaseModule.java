@@ -25,11 +25,19 @@
 package com.aquarians.backtester.database;
 
 import com.aquarians.aqlib.ApplicationModule;
+import com.aquarians.aqlib.database.DbConnectionPool;
+import com.aquarians.aqlib.database.DbDialect;
+import com.aquarians.aqlib.database.DbExecute;
 import com.aquarians.backtester.Application;
+import com.aquarians.backtester.jobs.JobsModule;
 
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.util.Properties;
+import java.util.function.Consumer;
 
 public class DatabaseModule implements ApplicationModule {
 
@@ -38,33 +46,126 @@ public class DatabaseModule implements ApplicationModule {
 
     public static final String NAME = "Database";
 
+    public static final String TYPE_POSTGRESQL = "PostgreSQL";
+    public static final String TYPE_EMBEDDED = "Embedded";
+    // Schema of the embedded database, run on every start since all the statements are "IF NOT EXISTS"
+    private static final String EMBEDDED_SCHEMA = "/scripts/database_embedded.sql";
+
+    // Shared by all the modules
+    private static final Object poolLock = new Object();
+    private static DbConnectionPool pool;
+
     private final int index;
+    private final DbDialect dialect;
     private final String url;
     private final String user;
     private final String password;
+    private final int batchSize;
+    private final int idBlockSize;
+    private final boolean reWriteBatchedInserts;
+    private final int poolSize;
+    private final int validationTimeout;
 
+    private final Object lock = new Object();
     private Connection connection;
     private Procedures procedures;
+    private WriteBehindModule writer;
+    private boolean writerLookedUp;
 
     public DatabaseModule(int index) {
         this.index = index;
         Properties properties = Application.getInstance().getProperties();
-        url = properties.getProperty("Database.URL");
+        String type = properties.getProperty("Database.Type", TYPE_POSTGRESQL);
+        String url = properties.getProperty("Database.URL");
+        if (TYPE_EMBEDDED.equalsIgnoreCase(type) || ((url != null) && url.startsWith(DbDialect.H2_URL_PREFIX))) {
+            dialect = DbDialect.H2;
+            if ((null == url) || !url.startsWith(DbDialect.H2_URL_PREFIX)) {
+                url = DbDialect.H2_URL_PREFIX + properties.getProperty("Database.EmbeddedPath", "./aquarians") + DbDialect.H2_SETTINGS;
+            }
+        } else {
+            dialect = DbDialect.POSTGRESQL;
+        }
+        this.url = url;
         user = properties.getProperty("Database.User");
         password = properties.getProperty("Database.Password");
+        batchSize = Integer.parseInt(properties.getProperty("Database.BatchSize", "100"));
+        idBlockSize = Integer.parseInt(properties.getProperty("Database.IdBlockSize", "100"));
+        reWriteBatchedInserts = Boolean.parseBoolean(properties.getProperty("Database.ReWriteBatchedInserts", "false"));
+        poolSize = Integer.parseInt(properties.getProperty("Database.PoolSize", "0"));
+        validationTimeout = Integer.parseInt(properties.getProperty("Database.ValidationTimeout", "5"));
+
+        // Some connections are kept for the whole run, a smaller pool would block their init forever
+        int minPoolSize = countHeldConnections(properties) + 1;
+        if ((poolSize > 0) && (poolSize < minPoolSize)) {
+            throw new RuntimeException("Database.PoolSize = " + poolSize + " is too small, it must be 0 (no limit) or at least " +
+                    minPoolSize + ": one connection for each database module, market data loader and the write-behind thread" +
+                    " and one for the job workers and prefetch");
+        }
+    }
+
+    // Connections held for the whole run: one for the jobs, otherwise module zero, one for each processing thread,
+    // its market data loader if pipelined and the write-behind thread if enabled
+    private static int countHeldConnections(Properties properties) {
+        if (properties.getProperty(JobsModule.JOBS_PROPERTY) != null) {
+            return 1;
+        }
+
+        int threads = Integer.parseInt(properties.getProperty("Modules.Threads", "1"));
+        int count = threads + 1;
+        if (Integer.parseInt(properties.getProperty("MarketData.PipelineDepth", "0")) > 0) {
+            count += threads;
+        }
+        if (Boolean.parseBoolean(properties.getProperty("Database.WriteBehind", "false"))) {
+            count++;
+        }
+        return count;
     }
 
     @Override
     public void init() {
         try {
-            connection = DriverManager.getConnection(url, user, password);
+            connection = getPool().getConnection();
         } catch (Exception ex) {
             logger.warn("Database connection failed. Database-related functionality won't be available", ex);
             return;
         }
 
+        if ((DbDialect.H2 == dialect) && (0 == index)) {
+            try {
+                createEmbeddedSchema();
+            } catch (Exception ex) {
+                logger.warn("Creating the embedded database schema failed", ex);
+            }
+        }
+
         procedures = new Procedures(connection);
         procedures.init();
+        procedures.setBatchSize(batchSize);
+        procedures.setIdBlockSize(idBlockSize);
+    }
+
+    // Runs the statements of the script one by one, they are separated by ";" at the end of a line
+    private void createEmbeddedSchema() {
+        try (InputStream stream = DatabaseModule.class.getResourceAsStream(EMBEDDED_SCHEMA);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            StringBuilder statement = new StringBuilder();
+            String line;
+            while (null != (line = reader.readLine())) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("--")) {
+                    continue;
+                }
+
+                statement.append(line).append(' ');
+                if (line.endsWith(";")) {
+                    statement.setLength(statement.lastIndexOf(";"));
+                    new DbExecute(connection, statement.toString()).execute();
+                    statement.setLength(0);
+                }
+            }
+        } catch (Exception ex) {
+            throw new RuntimeException(ex.getMessage(), ex);
+        }
     }
 
     @Override
@@ -79,13 +180,53 @@ public class DatabaseModule implements ApplicationModule {
 
         try {
             if (connection != null) {
-                connection.close();
+                getPool().discard(connection);
+                connection = null;
             }
         } catch (Exception ex) {
             logger.warn(ex.getMessage(), ex);
         }
     }
 
+    private DbConnectionPool getPool() {
+        synchronized (poolLock) {
+            if (null == pool) {
+                pool = new DbConnectionPool(url, getConnectionProperties(), poolSize, validationTimeout);
+            }
+            return pool;
+        }
+    }
+
+    // Replaces a connection that was dropped, the statement that failed isn't retried
+    private void reconnect() {
+        synchronized (lock) {
+            if (!procedures.isConnectionLost()) {
+                return;
+            }
+
+            logger.warn("Database connection lost, reconnecting");
+            if (connection != null) {
+                getPool().discard(connection);
+                connection = null;
+            }
+
+            // Auto-commit is set back as it was, the statements keep their batch and fetch sizes
+            try {
+                connection = getPool().getConnection();
+                procedures.setConnection(connection);
+            } catch (Exception ex) {
+                logger.warn("Reconnecting failed, will retry on next use", ex);
+                if (connection != null) {
+                    getPool().discard(connection);
+                    connection = null;
+                }
+                return;
+            }
+
+            logger.info("Database connection restored");
+        }
+    }
+
     @Override
     public String getName() {
         return Application.buildModuleName(NAME, index);
@@ -93,7 +234,16 @@ public class DatabaseModule implements ApplicationModule {
 
     public void setAutoCommit(boolean autoCommit) {
         try {
-            connection.setAutoCommit(autoCommit);
+            getProcedures().setAutoCommit(autoCommit);
+        } catch (Exception ex) {
+            logger.warn(ex.getMessage(), ex);
+        }
+    }
+
+    // Sends the rows queued with addBatch() by all the statements
+    public void executeBatches() {
+        try {
+            getProcedures().executeBatches();
         } catch (Exception ex) {
             logger.warn(ex.getMessage(), ex);
         }
@@ -101,7 +251,7 @@ public class DatabaseModule implements ApplicationModule {
 
     public void commit() {
         try {
-            connection.commit();
+            getProcedures().commit();
         } catch (Exception ex) {
             logger.warn(ex.getMessage(), ex);
         }
@@ -109,13 +259,77 @@ public class DatabaseModule implements ApplicationModule {
 
     public void rollback() {
         try {
-            connection.rollback();
+            getProcedures().rollback();
         } catch (Exception ex) {
             logger.warn(ex.getMessage(), ex);
         }
     }
 
+    /**
+     * Connection from the shared pool, counted in Database.PoolSize, for a unit of work or for a thread that keeps it
+     * for the whole run. Waits if the pool is full, give it back with releaseConnection().
+     */
+    public Connection borrowConnection() {
+        return getPool().getConnection();
+    }
+
+    public void releaseConnection(Connection connection) {
+        getPool().release(connection);
+    }
+
+    private Properties getConnectionProperties() {
+        Properties properties = new Properties();
+        if (user != null) {
+            properties.setProperty("user", user);
+        }
+        if (password != null) {
+            properties.setProperty("password", password);
+        }
+        if (DbDialect.POSTGRESQL == dialect) {
+            // The driver sends the batched inserts as multi-row statements
+            properties.setProperty("reWriteBatchedInserts", Boolean.toString(reWriteBatchedInserts));
+        }
+        return properties;
+    }
+
+    private WriteBehindModule getWriter() {
+        synchronized (lock) {
+            if (!writerLookedUp) {
+                writer = (WriteBehindModule) Application.getInstance().getModule(Application.buildModuleName(WriteBehindModule.NAME));
+                writerLookedUp = true;
+            }
+            return writer;
+        }
+    }
+
+    /**
+     * Queued for the write-behind thread when it runs, otherwise written right away on this module's connection.
+     * The write must capture the values it needs, it may run after the caller has moved on.
+     */
+    public void write(Consumer<Procedures> write) {
+        WriteBehindModule writer = getWriter();
+        if ((null == writer) || (!writer.submit(write))) {
+            write.accept(getProcedures());
+        }
+    }
+
+    // Waits for the queued writes to reach the database
+    public void flushWrites() {
+        WriteBehindModule writer = getWriter();
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    public DbDialect getDialect() {
+        return dialect;
+    }
+
     public Procedures getProcedures() {
+        if ((procedures != null) && procedures.isConnectionLost()) {
+            reconnect();
+        }
+
         return procedures;
     }
 }
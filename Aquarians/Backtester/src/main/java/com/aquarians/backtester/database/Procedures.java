@@ -24,6 +24,7 @@
 
 package com.aquarians.backtester.database;
 
+import com.aquarians.aqlib.database.DbExecute;
 import com.aquarians.aqlib.database.DbProcedures;
 import com.aquarians.backtester.database.procedures.*;
 
@@ -36,6 +37,8 @@ public class Procedures extends DbProcedures {
     public static final String SQ_TRADES = "sq_trades";
     public static final String SQ_MTMS = "sq_mtm";
 
+    public static final String OPTION_PRICES = "option_prices";
+
     public final UnderlierSelect underlierSelect;
     public final UnderlierInsert underlierInsert;
     public final UnderlierGet underlierGet;
@@ -49,6 +52,8 @@ public class Procedures extends DbProcedures {
     public final StockPricesSelect stockPricesSelect;
     public final OptionPricesSelect optionPricesSelect;
     public final OptionPricesDeleteAll optionPricesDeleteAll;
+    public final OptionPricesPartitionSelect optionPricesPartitionSelect;
+    public final TableKindSelect tableKindSelect;
     public final StockSplitInsert stockSplitInsert;
     public final StockSplitsSelect stockSplitsSelect;
     public final StockDividendInsert stockDividendInsert;
@@ -56,6 +61,7 @@ public class Procedures extends DbProcedures {
     public final ForwardTermsSelect forwardTermsSelect;
     public final StockPricesSelectMinMaxDate stockPricesSelectMinMaxDate;
     public final StrategiesSelectIdsByUnderlier strategiesSelectIdsByUnderlier;
+    public final StrategiesSelectOpenWithTrades strategiesSelectOpenWithTrades;
     public final TradesSelectByStrategy tradesSelectByStrategy;
     public final TradeGet tradeGet;
     public final TradesDelete tradesDelete;
@@ -75,6 +81,7 @@ public class Procedures extends DbProcedures {
     public final MtmDelete mtmDelete;
     public final NavSelectLastDay navSelectLastDay;
     public final NavGetDay navGetDay;
+    public final NavGetLastByUnderlier navGetLastByUnderlier;
     public final NavInsert navInsert;
     public final NavDelete navDelete;
     public final NavSelectUnderliers navSelectUnderliers;
@@ -83,6 +90,8 @@ public class Procedures extends DbProcedures {
     public final StatisticsInsert statisticsInsert;
     public final StatisticsSelect statisticsSelect;
     public final StatisticsDelete statisticsDelete;
+    public final OptionPriceCopy optionPriceCopy;
+    public final StockPriceCopy stockPriceCopy;
 
     public Procedures(Connection connection) {
         super(connection);
@@ -100,6 +109,8 @@ public class Procedures extends DbProcedures {
         stockPricesDeleteAll = addProcedure(new StockPricesDeleteAll(connection));
         optionPricesSelect = addProcedure(new OptionPricesSelect(connection));
         optionPricesDeleteAll = addProcedure(new OptionPricesDeleteAll(connection));
+        optionPricesPartitionSelect = addProcedure(new OptionPricesPartitionSelect(connection));
+        tableKindSelect = addProcedure(new TableKindSelect(connection));
         stockSplitInsert = addProcedure(new StockSplitInsert(connection));
         stockSplitsSelect = addProcedure(new StockSplitsSelect(connection));
         stockDividendInsert = addProcedure(new StockDividendInsert(connection));
@@ -107,6 +118,7 @@ public class Procedures extends DbProcedures {
         forwardTermsSelect = addProcedure(new ForwardTermsSelect(connection));
         stockPricesSelectMinMaxDate = addProcedure(new StockPricesSelectMinMaxDate(connection));
         strategiesSelectIdsByUnderlier = addProcedure(new StrategiesSelectIdsByUnderlier(connection));
+        strategiesSelectOpenWithTrades = addProcedure(new StrategiesSelectOpenWithTrades(connection));
         tradesSelectByStrategy = addProcedure(new TradesSelectByStrategy(connection));
         tradeGet = addProcedure(new TradeGet(connection));
         tradesDelete = addProcedure(new TradesDelete(connection));
@@ -126,6 +138,7 @@ public class Procedures extends DbProcedures {
         mtmDelete = addProcedure(new MtmDelete(connection));
         navSelectLastDay = addProcedure(new NavSelectLastDay(connection));
         navGetDay = addProcedure(new NavGetDay(connection));
+        navGetLastByUnderlier = addProcedure(new NavGetLastByUnderlier(connection));
         navInsert = addProcedure(new NavInsert(connection));
         navDelete = addProcedure(new NavDelete(connection));
         navSelectUnderliers = addProcedure(new NavSelectUnderliers(connection));
@@ -134,5 +147,32 @@ public class Procedures extends DbProcedures {
         statisticsInsert = addProcedure(new StatisticsInsert(connection));
         statisticsSelect = addProcedure(new StatisticsSelect(connection));
         statisticsDelete = addProcedure(new StatisticsDelete(connection));
+        optionPriceCopy = addCopy(new OptionPriceCopy(connection));
+        stockPriceCopy = addCopy(new StockPriceCopy(connection));
     }
+
+    /**
+     * Removes all the option prices of the underlier. When its hash partition holds no other underlier
+     * the partition is truncated, which frees the space at once instead of leaving dead rows to vacuum.
+     */
+    public void deleteOptionPrices(Long underlier) {
+        if (!getDialect().supportsPartitions()) {
+            optionPricesDeleteAll.execute(underlier);
+            return;
+        }
+
+        String partition = optionPricesPartitionSelect.execute(underlier);
+        if (null == partition) {
+            return;
+        }
+
+        if (!partition.equals(OPTION_PRICES) &&
+                new OptionPricesPartitionIsExclusive(getConnection(), partition).execute(underlier)) {
+            new DbExecute(getConnection(), "TRUNCATE " + partition).execute();
+            return;
+        }
+
+        optionPricesDeleteAll.execute(underlier);
+    }
+
 }
@@ -0,0 +1,220 @@
+/*
+    MIT License
+
+    Copyright (c) 2020 Mihai Bunea
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+
+package com.aquarians.backtester.database;
+
+import com.aquarians.aqlib.ApplicationModule;
+import com.aquarians.aqlib.Util;
+import com.aquarians.backtester.Application;
+
+import java.sql.Connection;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Properties;
+import java.util.function.Consumer;
+
+/**
+ * Takes the writes of the positions off the pricing threads.
+ * Writes are queued and run in order by a single thread on its own connection, one transaction for all
+ * the writes pending at that time. If the transaction fails, its writes are replayed one at a time so the
+ * failing write only loses itself, like when writing directly.
+ */
+public class WriteBehindModule implements ApplicationModule {
+
+    private static org.apache.log4j.Logger logger =
+            org.apache.log4j.Logger.getLogger(WriteBehindModule.class);
+
+    public static final String NAME = "WriteBehind";
+
+    private final Object lock = new Object();
+    private final boolean enabled;
+    private final int capacity;
+    private final Deque<Consumer<Procedures>> queue = new ArrayDeque<>();
+    private DatabaseModule databaseModule;
+    private Connection connection;
+    private Procedures procedures;
+    private Thread thread;
+    private boolean running;
+    // Writes queued and written since start, a flush waits for the second to reach what the first was when it was called
+    private long submitted;
+    private long written;
+
+    public WriteBehindModule() {
+        Properties properties = Application.getInstance().getProperties();
+        enabled = Boolean.parseBoolean(properties.getProperty("Database.WriteBehind", "false"));
+        capacity = Integer.parseInt(properties.getProperty("Database.WriteBehindQueue", "10000"));
+    }
+
+    @Override
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+
+        databaseModule = (DatabaseModule) Application.getInstance().getModule(Application.buildModuleName(DatabaseModule.NAME));
+        try {
+            connection = databaseModule.borrowConnection();
+        } catch (Exception ex) {
+            logger.warn("Database connection failed, writing directly", ex);
+            return;
+        }
+
+        procedures = new Procedures(connection);
+        procedures.init();
+        procedures.setAutoCommit(false);
+
+        synchronized (lock) {
+            running = true;
+        }
+
+        thread = new Thread(() -> {
+            try {
+                run();
+            } catch (Exception ex) {
+                logger.warn(ex.getMessage(), ex);
+            }
+        }, "WRITER");
+        thread.start();
+    }
+
+    @Override
+    public void cleanup() {
+        synchronized (lock) {
+            if (!running) {
+                return;
+            }
+
+            running = false;
+            lock.notifyAll();
+        }
+
+        // The thread writes what's left before exiting
+        Util.safeJoin(thread);
+
+        procedures.cleanup();
+        databaseModule.releaseConnection(connection);
+    }
+
+    @Override
+    public String getName() {
+        return Application.buildModuleName(NAME);
+    }
+
+    public boolean isRunning() {
+        synchronized (lock) {
+            return running;
+        }
+    }
+
+    /**
+     * Queues the write, waits if the queue is full. Returns false if not running, the caller should write directly.
+     */
+    public boolean submit(Consumer<Procedures> write) {
+        synchronized (lock) {
+            while (running && (queue.size() >= capacity)) {
+                Util.safeWait(lock);
+            }
+
+            if (!running) {
+                return false;
+            }
+
+            queue.addLast(write);
+            submitted++;
+            lock.notifyAll();
+            return true;
+        }
+    }
+
+    /**
+     * Waits until all the writes queued so far are committed, not for those other threads queue meanwhile
+     */
+    public void flush() {
+        synchronized (lock) {
+            long target = submitted;
+            while ((written < target) && (thread != null) && thread.isAlive()) {
+                Util.safeWait(lock);
+            }
+        }
+    }
+
+    private void run() {
+        List<Consumer<Procedures>> writes = new ArrayList<>();
+        while (true) {
+            synchronized (lock) {
+                written += writes.size();
+                lock.notifyAll();
+
+                while (running && queue.isEmpty()) {
+                    Util.safeWait(lock);
+                }
+
+                if (queue.isEmpty()) {
+                    // Stopped with nothing left to write
+                    return;
+                }
+
+                writes.clear();
+                writes.addAll(queue);
+                queue.clear();
+            }
+
+            write(writes);
+        }
+    }
+
+    private void write(List<Consumer<Procedures>> writes) {
+        try {
+            for (Consumer<Procedures> write : writes) {
+                write.accept(procedures);
+            }
+            procedures.commit();
+            return;
+        } catch (Exception ex) {
+            logger.debug("Writing " + writes.size() + " records together failed, writing them one by one", ex);
+            rollback();
+        }
+
+        for (Consumer<Procedures> write : writes) {
+            try {
+                write.accept(procedures);
+                procedures.commit();
+            } catch (Exception ex) {
+                logger.warn(ex.getMessage(), ex);
+                rollback();
+            }
+        }
+    }
+
+    private void rollback() {
+        try {
+            procedures.rollback();
+        } catch (Exception ex) {
+            logger.warn(ex.getMessage(), ex);
+        }
+    }
+
+}
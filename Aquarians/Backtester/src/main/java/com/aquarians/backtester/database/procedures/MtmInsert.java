@@ -73,6 +73,32 @@ public class MtmInsert extends DbStatement {
             Double volatility,
             Double market_profit,
             Double theoretical_profit) {
+        set(id, strategy, day, delta_position, spot_price, volatility, market_profit, theoretical_profit);
+        super.executeUpdate();
+    }
+
+    public void addBatch(
+            Long id,
+            Long strategy,
+            Day day,
+            Double delta_position,
+            Double spot_price,
+            Double volatility,
+            Double market_profit,
+            Double theoretical_profit) {
+        set(id, strategy, day, delta_position, spot_price, volatility, market_profit, theoretical_profit);
+        super.addBatch();
+    }
+
+    private void set(
+            Long id,
+            Long strategy,
+            Day day,
+            Double delta_position,
+            Double spot_price,
+            Double volatility,
+            Double market_profit,
+            Double theoretical_profit) {
         this.id = id;
         this.strategy = strategy;
         this.day = day;
@@ -81,8 +107,6 @@ public class MtmInsert extends DbStatement {
         this.volatility = volatility;
         this.market_profit = market_profit;
         this.theoretical_profit = theoretical_profit;
-
-        super.executeUpdate();
     }
 
 }
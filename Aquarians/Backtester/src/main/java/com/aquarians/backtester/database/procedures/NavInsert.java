@@ -65,13 +65,31 @@ public class NavInsert extends DbStatement {
             Long underlier,
             Double available,
             Double allocated) {
+        set(day, strategy_type, underlier, available, allocated);
+        super.executeUpdate();
+    }
+
+    public void addBatch(
+            Day day,
+            String strategy_type,
+            Long underlier,
+            Double available,
+            Double allocated) {
+        set(day, strategy_type, underlier, available, allocated);
+        super.addBatch();
+    }
+
+    private void set(
+            Day day,
+            String strategy_type,
+            Long underlier,
+            Double available,
+            Double allocated) {
         this.day = day;
         this.strategy_type = strategy_type;
         this.underlier = underlier;
         this.available = available;
         this.allocated = allocated;
-
-        super.executeUpdate();
     }
 
 }
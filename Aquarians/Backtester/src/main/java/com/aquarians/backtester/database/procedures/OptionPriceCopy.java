@@ -0,0 +1,60 @@
+/*
+    MIT License
+
+    Copyright (c) 2020 Mihai Bunea
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+
+package com.aquarians.backtester.database.procedures;
+
+import com.aquarians.aqlib.Day;
+import com.aquarians.aqlib.database.DbCopy;
+
+import java.sql.Connection;
+
+public class OptionPriceCopy extends DbCopy {
+
+    private static final String COPY_STATEMENT = "COPY option_prices" +
+            " (underlier, code, day, is_call, strike, maturity, bid, ask)" +
+            " FROM STDIN (FORMAT binary)";
+
+    public OptionPriceCopy(Connection connection) {
+        super(connection);
+    }
+
+    @Override
+    protected String getCopyStatement() {
+        return COPY_STATEMENT;
+    }
+
+    public void add(long underlier, String code, Day day, boolean isCall, double strike, Day maturity, Double bid, Double ask) {
+        beginRow(8);
+        addLong(underlier);
+        addString(code);
+        addDay(day);
+        addBoolean(isCall);
+        addDouble(strike);
+        addDay(maturity);
+        addDouble(bid);
+        addDouble(ask);
+        endRow();
+    }
+
+}
@@ -77,6 +77,32 @@ public class OptionPriceInsert extends DbStatement {
             Day maturity,
             Double bid,
             Double ask) {
+        set(underlier, code, day, is_call, strike, maturity, bid, ask);
+        super.executeUpdate();
+    }
+
+    public void addBatch(
+            Long underlier,
+            String code,
+            Day day,
+            Boolean is_call,
+            Double strike,
+            Day maturity,
+            Double bid,
+            Double ask) {
+        set(underlier, code, day, is_call, strike, maturity, bid, ask);
+        super.addBatch();
+    }
+
+    private void set(
+            Long underlier,
+            String code,
+            Day day,
+            Boolean is_call,
+            Double strike,
+            Day maturity,
+            Double bid,
+            Double ask) {
         this.underlier = underlier;
         this.code = code.substring(0, Math.min(CODE_COLUMN_LENGTH, code.length()));
         this.day = day;
@@ -85,8 +111,6 @@ public class OptionPriceInsert extends DbStatement {
         this.maturity = maturity;
         this.bid = bid;
         this.ask = ask;
-
-        super.executeUpdate();
     }
 
 }
@@ -28,9 +28,10 @@ import com.aquarians.aqlib.database.DbStatement;
 
 import java.sql.Connection;
 
+// Row by row delete, see Procedures.deleteOptionPrices() for emptying a whole partition
 public class OptionPricesDeleteAll extends DbStatement {
 
-    private static final String SQL_STATEMENT = "DELETE FROM option_prices WHERE underlier = ?";
+    private static final String SQL_STATEMENT = "DELETE FROM option_prices WHERE underlier = ?::bigint";
 
     // Input
     private Long underlier;
@@ -0,0 +1,63 @@
+/*
+    MIT License
+
+    Copyright (c) 2020 Mihai Bunea
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+
+package com.aquarians.backtester.database.procedures;
+
+import com.aquarians.aqlib.database.DbStatement;
+
+import java.sql.Connection;
+
+// Moves the option prices of one underlier from the table left by PartitionOptionPricesJob into the partitioned one
+public class OptionPricesMigrate extends DbStatement {
+
+    public static final String SOURCE = "option_prices_source";
+
+    private static final String COLUMNS = "underlier, code, day, is_call, strike, maturity, bid, ask";
+    private static final String SQL_STATEMENT = "INSERT INTO option_prices (" + COLUMNS + ") " +
+            "SELECT " + COLUMNS + " FROM " + SOURCE + " WHERE underlier = ?";
+
+    // Input
+    private Long underlier;
+
+    public OptionPricesMigrate(Connection connection) {
+        super(connection);
+    }
+
+    @Override
+    protected String getSqlStatement() {
+        return SQL_STATEMENT;
+    }
+
+    @Override
+    public void setParameters() throws Exception {
+        setLong(1, underlier);
+    }
+
+    // Returns the number of rows copied
+    public int execute(Long underlier) {
+        this.underlier = underlier;
+        return executeUpdate();
+    }
+
+}
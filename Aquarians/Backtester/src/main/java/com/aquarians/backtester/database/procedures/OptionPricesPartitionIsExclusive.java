@@ -0,0 +1,83 @@
+/*
+    MIT License
+
+    Copyright (c) 2020 Mihai Bunea
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+
+package com.aquarians.backtester.database.procedures;
+
+import com.aquarians.aqlib.database.DbStatement;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+
+/**
+ * True if the given partition of option_prices holds no other underlier.
+ * Answered from the ends of the (underlier, day) index, without scanning the partition.
+ */
+public class OptionPricesPartitionIsExclusive extends DbStatement {
+
+    private final String partition;
+
+    // Input
+    private Long underlier;
+
+    // Output
+    private boolean exclusive;
+
+    public OptionPricesPartitionIsExclusive(Connection connection, String partition) {
+        super(connection);
+        this.partition = partition;
+    }
+
+    @Override
+    protected String getSqlStatement() {
+        return "SELECT min(underlier) = ? AND max(underlier) = ? FROM " + partition;
+    }
+
+    @Override
+    public void setParameters() throws Exception {
+        setLong(1, underlier);
+        setLong(2, underlier);
+    }
+
+    @Override
+    protected void process(ResultSet results) throws Exception {
+        if (results.next()) {
+            Boolean value = getBoolean(results, 1);
+            exclusive = (value != null) && value;
+        }
+    }
+
+    public boolean execute(Long underlier) {
+        this.underlier = underlier;
+        exclusive = false;
+
+        try {
+            super.executeQuery();
+        } finally {
+            cleanup();
+        }
+
+        return exclusive;
+    }
+
+}
@@ -0,0 +1,76 @@
+/*
+    MIT License
+
+    Copyright (c) 2020 Mihai Bunea
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+
+package com.aquarians.backtester.database.procedures;
+
+import com.aquarians.aqlib.database.DbStatement;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+
+/**
+ * The table that holds the option prices of an underlier: one of the partitions of option_prices,
+ * or option_prices itself if it wasn't partitioned yet. Null if the underlier has no option prices.
+ */
+public class OptionPricesPartitionSelect extends DbStatement {
+
+    private static final String SQL_STATEMENT = "SELECT tableoid::regclass::text FROM option_prices WHERE underlier = ? LIMIT 1";
+
+    // Input
+    private Long underlier;
+
+    // Output
+    private String partition;
+
+    public OptionPricesPartitionSelect(Connection connection) {
+        super(connection);
+    }
+
+    @Override
+    protected String getSqlStatement() {
+        return SQL_STATEMENT;
+    }
+
+    @Override
+    public void setParameters() throws Exception {
+        setLong(1, underlier);
+    }
+
+    @Override
+    protected void process(ResultSet results) throws Exception {
+        if (results.next()) {
+            partition = getString(results, 1);
+        }
+    }
+
+    public String execute(Long underlier) {
+        this.underlier = underlier;
+        partition = null;
+
+        super.executeQuery();
+
+        return partition;
+    }
+
+}
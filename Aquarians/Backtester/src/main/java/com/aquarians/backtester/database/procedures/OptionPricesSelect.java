@@ -35,9 +35,10 @@ import java.util.List;
 
 public class OptionPricesSelect extends DbStatement {
 
+    // Typed like the columns so the planner prunes to the partition of the underlier, also for generic plans
     private static final String SQL_STATEMENT = "SELECT day, code, is_call, strike, maturity, bid, ask " +
             "FROM option_prices " +
-            "WHERE underlier = ? AND day >= ? AND day <= ?";
+            "WHERE underlier = ?::bigint AND day >= ?::date AND day <= ?::date";
 
     // Input
     private Long underlier;
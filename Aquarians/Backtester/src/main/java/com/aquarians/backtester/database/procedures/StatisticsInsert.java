@@ -66,12 +66,30 @@ public class StatisticsInsert extends DbStatement {
             Double spot_fwd_diff,
             Double parity_total,
             Double option_total) {
+        set(underlier, day, spot_fwd_diff, parity_total, option_total);
+        super.executeUpdate();
+    }
+
+    public void addBatch(
+            Long underlier,
+            Day day,
+            Double spot_fwd_diff,
+            Double parity_total,
+            Double option_total) {
+        set(underlier, day, spot_fwd_diff, parity_total, option_total);
+        super.addBatch();
+    }
+
+    private void set(
+            Long underlier,
+            Day day,
+            Double spot_fwd_diff,
+            Double parity_total,
+            Double option_total) {
         this.underlier = underlier;
         this.day = day;
         this.spot_fwd_diff = spot_fwd_diff;
         this.parity_total = parity_total;
         this.option_total = option_total;
-
-        super.executeUpdate();
     }
 }
@@ -78,6 +78,36 @@ public class StockPriceInsert extends DbStatement {
             double close,
             double adjusted,
             long volume) {
+        set(underlier, day, open, high, low, close, adjusted, volume);
+        super.executeUpdate();
+    }
+
+    public void addBatch(Long underlier, Day day, double price) {
+        addBatch(underlier, day, price, price, price, price, price, 0);
+    }
+
+    public void addBatch(
+            Long underlier,
+            Day day,
+            double open,
+            double high,
+            double low,
+            double close,
+            double adjusted,
+            long volume) {
+        set(underlier, day, open, high, low, close, adjusted, volume);
+        super.addBatch();
+    }
+
+    private void set(
+            Long underlier,
+            Day day,
+            double open,
+            double high,
+            double low,
+            double close,
+            double adjusted,
+            long volume) {
         this.underlier = underlier;
         this.day = day;
         this.open = open;
@@ -86,7 +116,5 @@ public class StockPriceInsert extends DbStatement {
         this.close = close;
         this.adjusted = adjusted;
         this.volume = volume;
-
-        super.executeUpdate();
     }
 }
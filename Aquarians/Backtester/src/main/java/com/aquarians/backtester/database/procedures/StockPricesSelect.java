@@ -35,7 +35,29 @@ import java.util.List;
 
 public class StockPricesSelect extends DbStatement {
 
-    private static final String SQL_STATEMENT = "SELECT day, open, high, low, close, adjusted, implied, volume, volatility " +
+    /**
+     * One row of stream(), the same instance is refilled for every row so copy what needs to be kept.
+     * Missing prices are NaN, a missing volume is zero.
+     */
+    public static final class Row {
+        public int epochDay;
+        public double open;
+        public double high;
+        public double low;
+        public double close;
+        public double adjusted;
+        public double implied;
+        public long volume;
+        public double volatility;
+    }
+
+    public interface Handler {
+        // Returns false to stop reading
+        boolean process(Row row);
+    }
+
+    // Preceded by the day column, whose SQL depends on the database
+    private static final String SQL_COLUMNS = ", open, high, low, close, adjusted, implied, volume, volatility " +
             "FROM stock_prices " +
             "WHERE underlier = ? AND day >= ? AND day <= ? " +
             "ORDER BY day";
@@ -54,7 +76,7 @@ public class StockPricesSelect extends DbStatement {
 
     @Override
     protected String getSqlStatement() {
-        return SQL_STATEMENT;
+        return "SELECT " + epochDay("day") + SQL_COLUMNS;
     }
 
     @Override
@@ -68,7 +90,7 @@ public class StockPricesSelect extends DbStatement {
     public void process(ResultSet results) throws Exception {
         records = new ArrayList<>();
         while (results.next()) {
-            Day day = getDay(results, 1);
+            Day day = Day.fromEpochDay(getEpochDay(results, 1));
             Double open = getDouble(results, 2);
             Double high = getDouble(results, 3);
             Double low = getDouble(results, 4);
@@ -77,7 +99,7 @@ public class StockPricesSelect extends DbStatement {
             Double implied = getDouble(results, 7);
             Long volume = getLong(results, 8);
             Double volatility = getDouble(results, 9);
-            records .add(new StockPriceRecord(day, open, high, low, close, adjusted, implied, volume, volatility));
+            records.add(new StockPriceRecord(day, open, high, low, close, adjusted, implied, volume, volatility));
         }
     }
 
@@ -90,4 +112,27 @@ public class StockPricesSelect extends DbStatement {
 
         return records;
     }
+
+    /**
+     * Reads the prices in day order through a cursor, without building the list of records
+     */
+    public void stream(Long underlier, Day from, Day to, Handler handler) {
+        this.underlier = underlier;
+        this.from = from;
+        this.to = to;
+
+        Row row = new Row();
+        super.executeQuery(results -> {
+            row.epochDay = getEpochDay(results, 1);
+            row.open = getDouble(results, 2, Double.NaN);
+            row.high = getDouble(results, 3, Double.NaN);
+            row.low = getDouble(results, 4, Double.NaN);
+            row.close = getDouble(results, 5, Double.NaN);
+            row.adjusted = getDouble(results, 6, Double.NaN);
+            row.implied = getDouble(results, 7, Double.NaN);
+            row.volume = getLong(results, 8, 0L);
+            row.volatility = getDouble(results, 9, Double.NaN);
+            return handler.process(row);
+        });
+    }
 }
@@ -0,0 +1,145 @@
+/*
+    MIT License
+
+    Copyright (c) 2020 Mihai Bunea
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+
+package com.aquarians.backtester.database.procedures;
+
+import com.aquarians.aqlib.Day;
+import com.aquarians.aqlib.Instrument;
+import com.aquarians.aqlib.Util;
+import com.aquarians.aqlib.database.DbStatement;
+import com.aquarians.aqlib.positions.Strategy;
+import com.aquarians.aqlib.positions.Trade;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.util.*;
+
+/**
+ * Open strategies of several underliers with all their trades in a single query, replacing
+ * StrategiesSelectIdsByUnderlier + StrategyGet for each strategy + TradesSelectByStrategy + TradeGet for each trade.
+ */
+public class StrategiesSelectOpenWithTrades extends DbStatement {
+
+    private static final String SQL_STATEMENT = "SELECT " +
+            "s.id, s.type, s.number, s.multiplier, s.underlier, s.execution_day, s.maturity_day, s.volatility, " +
+            "s.execution_spot, s.expected_pnl_mean, s.expected_pnl_dev, s.realized_pnl, s.capital, s.data, " +
+            "t.id, t.execution_day, t.instr_type, t.instr_code, t.instr_is_call, t.instr_maturity, t.instr_strike, " +
+            "t.quantity, t.price, t.tv, t.commission, t.label, t.is_static " +
+            "FROM strategies s LEFT JOIN trades t ON t.strategy = s.id " +
+            "WHERE s.underlier = ANY(?) AND s.realized_pnl IS NULL " +
+            "ORDER BY s.underlier, s.id, t.execution_day, t.id";
+
+    private Collection<Long> underliers;
+    // Open strategies of each underlier, ordered by id
+    private Map<Long, List<Strategy>> strategies;
+
+    public StrategiesSelectOpenWithTrades(Connection connection) {
+        super(connection);
+    }
+
+    @Override
+    protected String getSqlStatement() {
+        return SQL_STATEMENT;
+    }
+
+    @Override
+    public void setParameters() throws Exception {
+        setLongArray(1, underliers);
+    }
+
+    @Override
+    public void process(ResultSet results) throws Exception {
+        Strategy strategy = null;
+        while (results.next()) {
+            Long id = getLong(results, 1);
+            if ((null == strategy) || (!strategy.id.equals(id))) {
+                strategy = readStrategy(results, id);
+                List<Strategy> list = strategies.get(strategy.underlier);
+                if (null == list) {
+                    list = new ArrayList<>();
+                    strategies.put(strategy.underlier, list);
+                }
+                list.add(strategy);
+            }
+
+            // No trades
+            Long tradeId = getLong(results, 15);
+            if (null == tradeId) {
+                continue;
+            }
+
+            strategy.trades.add(readTrade(results, tradeId));
+        }
+    }
+
+    private static Strategy readStrategy(ResultSet results, Long id) throws Exception {
+        Strategy strategy = new Strategy();
+        strategy.id = id;
+        strategy.type = getString(results, 2);
+        strategy.number = getInt(results, 3);
+        strategy.multiplier = getDouble(results, 4);
+        strategy.underlier = getLong(results, 5);
+        strategy.executionDay = getDay(results, 6);
+        strategy.maturityDay = getDay(results, 7);
+        strategy.volatility = getDouble(results, 8);
+        strategy.executionSpot = getDouble(results, 9);
+        strategy.expectedPnlMean = getDouble(results, 10);
+        strategy.expectedPnlDev = getDouble(results, 11);
+        Double realizedPnl = getDouble(results, 12);
+        strategy.realizedPnl = (realizedPnl != null) ? realizedPnl : 0.0;
+        strategy.capital = getDouble(results, 13);
+        strategy.data = getString(results, 14);
+        strategy.trades = new ArrayList<>();
+        return strategy;
+    }
+
+    private static Trade readTrade(ResultSet results, Long id) throws Exception {
+        Day executionDay = getDay(results, 16);
+        Instrument instrument = new Instrument(
+                Instrument.Type.valueOf(getString(results, 17)),
+                getString(results, 18),
+                getBoolean(results, 19),
+                getDay(results, 20),
+                getDouble(results, 21));
+        Trade trade = new Trade(executionDay, instrument, getDouble(results, 22), getDouble(results, 23), getDouble(results, 24));
+        trade.id = id;
+        trade.commission = getDouble(results, 25);
+        trade.label = getString(results, 26);
+        trade.isStatic = Util.safeEquals(getBoolean(results, 27), true);
+        return trade;
+    }
+
+    public Map<Long, List<Strategy>> execute(Collection<Long> underliers) {
+        this.underliers = underliers;
+        strategies = new HashMap<>();
+        executeQuery();
+        return strategies;
+    }
+
+    public List<Strategy> execute(Long underlier) {
+        List<Strategy> list = execute(Collections.singletonList(underlier)).get(underlier);
+        return (list != null) ? list : new ArrayList<>();
+    }
+
+}
@@ -0,0 +1,75 @@
+/*
+    MIT License
+
+    Copyright (c) 2020 Mihai Bunea
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+
+package com.aquarians.backtester.database.procedures;
+
+import com.aquarians.aqlib.database.DbStatement;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+
+/**
+ * The pg_class.relkind of a table: "r" for an ordinary table, "p" for a partitioned one, null if it doesn't exist
+ */
+public class TableKindSelect extends DbStatement {
+
+    private static final String SQL_STATEMENT = "SELECT relkind FROM pg_class WHERE oid = to_regclass(?)";
+
+    // Input
+    private String table;
+
+    // Output
+    private String kind;
+
+    public TableKindSelect(Connection connection) {
+        super(connection);
+    }
+
+    @Override
+    protected String getSqlStatement() {
+        return SQL_STATEMENT;
+    }
+
+    @Override
+    public void setParameters() throws Exception {
+        setString(1, table);
+    }
+
+    @Override
+    protected void process(ResultSet results) throws Exception {
+        if (results.next()) {
+            kind = getString(results, 1);
+        }
+    }
+
+    public String execute(String table) {
+        this.table = table;
+        kind = null;
+
+        super.executeQuery();
+
+        return kind;
+    }
+
+}
@@ -93,6 +93,44 @@ public class TradeInsert extends DbStatement {
             Double commission,
             String label,
             Boolean is_static) {
+        set(id, strategy, execution_day, instr_type, instr_code, instr_is_call, instr_maturity, instr_strike, quantity, price, tv, commission, label, is_static);
+        super.executeUpdate();
+    }
+
+    public void addBatch(
+            Long id,
+            Long strategy,
+            Day execution_day,
+            String instr_type,
+            String instr_code,
+            Boolean instr_is_call,
+            Day instr_maturity,
+            Double instr_strike,
+            Double quantity,
+            Double price,
+            Double tv,
+            Double commission,
+            String label,
+            Boolean is_static) {
+        set(id, strategy, execution_day, instr_type, instr_code, instr_is_call, instr_maturity, instr_strike, quantity, price, tv, commission, label, is_static);
+        super.addBatch();
+    }
+
+    private void set(
+            Long id,
+            Long strategy,
+            Day execution_day,
+            String instr_type,
+            String instr_code,
+            Boolean instr_is_call,
+            Day instr_maturity,
+            Double instr_strike,
+            Double quantity,
+            Double price,
+            Double tv,
+            Double commission,
+            String label,
+            Boolean is_static) {
         this.id = id;
         this.strategy = strategy;
         this.execution_day = execution_day;
@@ -107,7 +145,5 @@ public class TradeInsert extends DbStatement {
         this.commission = commission;
         this.label = label;
         this.is_static = is_static;
-
-        executeUpdate();
     }
 }
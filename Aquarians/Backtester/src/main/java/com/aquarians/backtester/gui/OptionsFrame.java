@@ -115,7 +115,8 @@ public class OptionsFrame extends MdiFrame implements PricingListener {
     }
 
     private void extractTerm(Day maturity, OptionTerm optionTerm, Map<Day, List<OptionsTableRow>> guiTerms, Map<Day, Double> forwards) {
-        List<OptionsTableRow> rows = new ArrayList<>(optionTerm.getStrikes().size() * 2);
+        OptionChain chain = optionTerm.getChain();
+        List<OptionsTableRow> rows = new ArrayList<>(chain.size() * 2);
         guiTerms.put(maturity, rows);
 
         PricingModel model = pricingModule.getPricingModel();
@@ -125,7 +126,8 @@ public class OptionsFrame extends MdiFrame implements PricingListener {
         Double atmStrike = null;
         if (forward != null) {
             Double minDistance = null;
-            for (double strike : optionTerm.getStrikes().keySet()) {
+            for (int i = 0; i < chain.size(); i++) {
+                double strike = chain.getStrike(i);
                 double distance = Math.abs(strike - forward);
                 if ((null == minDistance) || (distance < minDistance)) {
                     minDistance = distance;
@@ -134,8 +136,10 @@ public class OptionsFrame extends MdiFrame implements PricingListener {
             }
         }
 
-        for (Map.Entry<Double, OptionPair> entry : optionTerm.getStrikes().entrySet()) {
-            OptionPair pair = entry.getValue();
+        for (int i = 0; i < chain.size(); i++) {
+            double strike = chain.getStrike(i);
+            Instrument call = chain.getCall(i);
+            Instrument put = chain.getPut(i);
 
             Double callValue = null;
             Double callBid = null;
@@ -145,19 +149,19 @@ public class OptionsFrame extends MdiFrame implements PricingListener {
             Double callExtrinsicValue = null;
             Double callExtrinsicBid = null;
             Double callExtrinsicAsk = null;
-            if (pair.call != null) {
-                PricingResult result = model.price(pair.call);
+            if (call != null) {
+                PricingResult result = model.price(call);
                 if (null != result) {
                     callValue = result.price;
-                    callExtrinsicValue = Util.extrinsicValue(pair.call, callValue, forward);
-                    Pair<Double, Double> pnls = pricingModule.getExpectedPnl(pair.call, result.price);
+                    callExtrinsicValue = Util.extrinsicValue(call, callValue, forward);
+                    Pair<Double, Double> pnls = pricingModule.getExpectedPnl(call, result.price);
                     callBidPnl = pnls.getKey();
                     callAskPnl = pnls.getValue();
                 }
-                callBid = pair.call.getBidPrice();
-                callAsk = pair.call.getAskPrice();
-                callExtrinsicBid = Util.extrinsicValue(pair.call, callBid, forward);
-                callExtrinsicAsk = Util.extrinsicValue(pair.call, callAsk, forward);
+                callBid = call.getBidPrice();
+                callAsk = call.getAskPrice();
+                callExtrinsicBid = Util.extrinsicValue(call, callBid, forward);
+                callExtrinsicAsk = Util.extrinsicValue(call, callAsk, forward);
             }
 
             Double putValue = null;
@@ -168,31 +172,31 @@ public class OptionsFrame extends MdiFrame implements PricingListener {
             Double putExtrinsicValue = null;
             Double putExtrinsicBid = null;
             Double putExtrinsicAsk = null;
-            if (pair.put != null) {
-                PricingResult result = pricingModule.getPricingModel().price(pair.put);
+            if (put != null) {
+                PricingResult result = pricingModule.getPricingModel().price(put);
                 if (null != result) {
                     putValue = result.price;
-                    putExtrinsicValue = Util.extrinsicValue(pair.put, putValue, forward);
-                    Pair<Double, Double> pnls = pricingModule.getExpectedPnl(pair.put, result.price);
+                    putExtrinsicValue = Util.extrinsicValue(put, putValue, forward);
+                    Pair<Double, Double> pnls = pricingModule.getExpectedPnl(put, result.price);
                     putBidPnl = pnls.getKey();
                     putAskPnl = pnls.getValue();
                 }
-                putBid = pair.put.getBidPrice();
-                putAsk = pair.put.getAskPrice();
-                putExtrinsicBid = Util.extrinsicValue(pair.put, putBid, forward);
-                putExtrinsicAsk = Util.extrinsicValue(pair.put, putAsk, forward);
+                putBid = put.getBidPrice();
+                putAsk = put.getAskPrice();
+                putExtrinsicBid = Util.extrinsicValue(put, putBid, forward);
+                putExtrinsicAsk = Util.extrinsicValue(put, putAsk, forward);
             }
 
-            boolean atm = (null != atmStrike) && (Math.abs(atmStrike - pair.strike) < Util.ZERO);
+            boolean atm = (null != atmStrike) && (Math.abs(atmStrike - strike) < Util.ZERO);
 
             double parityPrice = 0.0;
-            Instrument parityInstrument = new Instrument(Instrument.Type.PARITY, null, null, optionTerm.maturity, pair.strike);
+            Instrument parityInstrument = new Instrument(Instrument.Type.PARITY, null, null, optionTerm.maturity, strike);
             PricingResult parityResult = pricingModule.getPricingModel().price(parityInstrument);
             if (parityResult != null) {
                 parityPrice = parityResult.price;
             }
 
-            OptionsTableRow row = new OptionsTableRow(pair.strike,
+            OptionsTableRow row = new OptionsTableRow(strike,
                     callValue, callBid, callAsk,
                     putValue, putBid, putAsk,
                     (rows.size() % 2 == 0) ? EVEN_ROW_BACKGROUND_COLOR : ODD_ROW_BACKGROUND_COLOR,
@@ -31,7 +31,6 @@ import com.aquarians.aqlib.math.PriceRecord;
 import com.aquarians.backtester.Application;
 import com.aquarians.backtester.database.DatabaseModule;
 import com.aquarians.backtester.database.procedures.StatisticsSelect;
-import com.aquarians.backtester.database.records.StockPriceRecord;
 import org.jfree.chart.ChartPanel;
 import org.jfree.chart.JFreeChart;
 import org.jfree.chart.renderer.xy.XYItemRenderer;
@@ -222,16 +221,23 @@ public class StocksFrame extends MdiFrame {
 
     private List<PriceRecord> loadRecords(String content, Long id, Day from, Day to) {
         if (content.equals(CONTENT_CLOSE_PRICE)) {
-            List<StockPriceRecord> stocks =  databaseModule.getProcedures().stockPricesSelect.execute(id, from, to);
-            return StockPriceRecord.toPriceRecords(stocks);
+            // Streamed straight into the chart points, the history can span decades
+            List<PriceRecord> records = new ArrayList<>();
+            databaseModule.getProcedures().stockPricesSelect.stream(id, from, to, row -> {
+                if (!Double.isNaN(row.close)) {
+                    records.add(new PriceRecord(Day.fromEpochDay(row.epochDay), row.close));
+                }
+                return true;
+            });
+            return records;
         } else if (content.equals(CONTENT_FORWARD_PRICE)) {
-            List<StockPriceRecord> stocks =  databaseModule.getProcedures().stockPricesSelect.execute(id, from, to);
-            List<PriceRecord> records = new ArrayList<>(stocks.size());
-            for (StockPriceRecord stock : stocks) {
-                if (stock.implied != null) {
-                    records.add(new PriceRecord(stock.day, stock.implied));
+            List<PriceRecord> records = new ArrayList<>();
+            databaseModule.getProcedures().stockPricesSelect.stream(id, from, to, row -> {
+                if (!Double.isNaN(row.implied)) {
+                    records.add(new PriceRecord(Day.fromEpochDay(row.epochDay), row.implied));
                 }
-            }
+                return true;
+            });
             return records;
         } else if (content.equals(CONTENT_CLOSE_FWD_DIFF)) {
             List<StatisticsSelect.Record> stats = databaseModule.getProcedures().statisticsSelect.execute(id, from, to);
@@ -184,7 +184,9 @@ public class VolatilityFrame extends MdiFrame implements PricingListener {
             OptionTerm pricingTerm = termEntry.getValue();
 
             Map<Double, Double> guiVols = new TreeMap<>();
-            for (Double strike : pricingTerm.getStrikes().keySet()) {
+            OptionChain chain = pricingTerm.getChain();
+            for (int i = 0; i < chain.size(); i++) {
+                double strike = chain.getStrike(i);
                 // Make sure the surface has the maturity
                 if (null == surface.getMaturities().get(pricingTerm.daysToExpiry)) {
                     continue;
@@ -0,0 +1,518 @@
+/*
+    MIT License
+
+    Copyright (c) 2020 Mihai Bunea
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+
+package com.aquarians.backtester.jobs;
+
+import com.aquarians.aqlib.CsvFileReader;
+import com.aquarians.aqlib.CsvRecord;
+import com.aquarians.aqlib.Day;
+import com.aquarians.aqlib.Util;
+import com.aquarians.backtester.Application;
+import com.aquarians.backtester.database.DatabaseModule;
+import com.aquarians.backtester.database.procedures.OptionPriceBulkInsert;
+import com.aquarians.backtester.database.procedures.OptionPricesStream;
+import com.aquarians.backtester.database.procedures.StockPricesStream;
+import com.aquarians.backtester.database.records.OptionPriceRecord;
+import com.aquarians.backtester.database.records.StockPriceRecord;
+import com.aquarians.backtester.database.records.UnderlierRecord;
+import com.aquarians.backtester.marketdata.columnar.ColumnarFormat;
+import com.aquarians.backtester.marketdata.columnar.ColumnarWriter;
+
+import java.io.File;
+import java.sql.Connection;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Compiles the option and stock prices into the columnar replay files (see ColumnarFormat), reading either
+// from the database or straight from the CSV files of ImportHistoricalOptionPricesJob.
+// Only days after the last one already exported are appended.
+public class ExportColumnarDataJob implements Runnable {
+
+    private static org.apache.log4j.Logger logger =
+            org.apache.log4j.Logger.getLogger(ExportColumnarDataJob.class.getSimpleName());
+
+    private static final int FETCH_SIZE = 10000;
+    // Days buffered for a CSV worker before the reader waits for it
+    private static final int MAX_QUEUED_DAYS = 16;
+    private static final Day LAST_DAY = new Day(2100, 1, 1);
+
+    private enum Source {
+        Database,
+        Csv
+    }
+
+    private final Object lock = new Object();
+    private final DatabaseModule owner;
+    private final File folder;
+    private final Source source;
+    private final int threads;
+    private final Set<String> underliersFilter = new TreeSet<>();
+
+    // Database export: underliers not taken yet by a worker
+    private final LinkedList<UnderlierRecord> pendingUnderliers = new LinkedList<>();
+
+    // CSV export settings, same meaning as for ImportHistoricalOptionPricesJob
+    private final String csvFolder;
+    private final String csvRegex;
+    private final ImportHistoricalOptionPricesJob.DataFormat dataFormat;
+    private final Set<ImportHistoricalOptionPricesJob.Source> sources = new TreeSet<>();
+    private final Map<String, String> aliases = new TreeMap<>();
+
+    public ExportColumnarDataJob(DatabaseModule owner) {
+        this.owner = owner;
+        Properties properties = Application.getInstance().getProperties();
+        folder = new File(Application.getInstance().getFolderProperty("ExportColumnarDataJob.Folder"));
+        source = Source.valueOf(properties.getProperty("ExportColumnarDataJob.Source", Source.Database.name()));
+        threads = Integer.parseInt(properties.getProperty("ExportColumnarDataJob.Threads",
+                Integer.toString(Runtime.getRuntime().availableProcessors())));
+
+        for (String underlier : properties.getProperty("ExportColumnarDataJob.Underliers", "").split(",")) {
+            underlier = underlier.trim();
+            if (underlier.length() > 0) {
+                underliersFilter.add(underlier);
+            }
+        }
+
+        String underliersFile = properties.getProperty("ExportColumnarDataJob.UnderliersFile");
+        if (null != underliersFile) {
+            loadUnderliersFromFile(underliersFile);
+        }
+
+        csvFolder = Application.getInstance().getFolderProperty("ImportHistoricalOptionPricesJob.Folder");
+        csvRegex = properties.getProperty("ImportHistoricalOptionPricesJob.Regex");
+        dataFormat = ImportHistoricalOptionPricesJob.DataFormat.valueOf(
+                properties.getProperty("ImportHistoricalOptionPricesJob.DataFormat", ImportHistoricalOptionPricesJob.DataFormat.Default.name()));
+
+        for (String value : properties.getProperty("ImportHistoricalOptionPricesJob.Sources", "Composite").split(",")) {
+            sources.add(ImportHistoricalOptionPricesJob.Source.valueOf(value.trim()));
+        }
+
+        String aliases = properties.getProperty("ImportHistoricalOptionPricesJob.Aliases");
+        if (null != aliases) {
+            for (String mapping : aliases.split(",")) {
+                String[] tagvalue = mapping.split(":");
+                this.aliases.put(tagvalue[0], tagvalue[1]);
+            }
+        }
+    }
+
+    private void loadUnderliersFromFile(String filename) {
+        CsvFileReader reader = null;
+        try {
+            reader = new CsvFileReader(filename);
+            String code = null;
+            while (null != (code = reader.readLine())) {
+                code = code.trim();
+                if (code.length() > 0) {
+                    underliersFilter.add(code);
+                }
+            }
+        } finally {
+            if (reader != null) {
+                reader.close();
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        logger.info("Running from " + source + " to " + folder.getAbsolutePath() + " with threads: " + threads);
+        try {
+            if (source.equals(Source.Database)) {
+                exportDatabase();
+            } else {
+                exportCsv();
+            }
+        } catch (Exception ex) {
+            logger.warn(ex.getMessage(), ex);
+        }
+        logger.info("Finished");
+    }
+
+    private void runWorkers(String name, Runnable work) {
+        List<Thread> workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    work.run();
+                } catch (Exception ex) {
+                    logger.warn(ex.getMessage(), ex);
+                }
+            }, name + "_" + i);
+            workers.add(worker);
+            worker.start();
+        }
+
+        for (Thread worker : workers) {
+            Util.safeJoin(worker);
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Database export: each worker streams whole underliers on its own connection
+
+    private void exportDatabase() {
+        for (UnderlierRecord record : owner.getProcedures().underliersSelectAll.execute()) {
+            if ((underliersFilter.size() == 0) || underliersFilter.contains(record.code)) {
+                pendingUnderliers.add(record);
+            }
+        }
+
+        logger.info("Exporting underliers: " + pendingUnderliers.size());
+        runWorkers("EXPORT", this::exportDatabaseWorker);
+    }
+
+    private UnderlierRecord takeUnderlier() {
+        synchronized (lock) {
+            return pendingUnderliers.pollFirst();
+        }
+    }
+
+    private void exportDatabaseWorker() {
+        Connection connection = owner.borrowConnection();
+        try {
+            // Cursors stream only outside auto-commit
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+
+            UnderlierRecord underlier;
+            while (null != (underlier = takeUnderlier())) {
+                try {
+                    exportUnderlier(connection, underlier);
+                } catch (Exception ex) {
+                    logger.warn("Exporting underlier: " + underlier.code, ex);
+                    connection.rollback();
+                }
+            }
+        } catch (Exception ex) {
+            throw new RuntimeException(ex.getMessage(), ex);
+        } finally {
+            owner.releaseConnection(connection);
+        }
+    }
+
+    private void exportUnderlier(Connection connection, UnderlierRecord underlier) {
+        ColumnarWriter writer = new ColumnarWriter(ColumnarFormat.getUnderlierFolder(folder, underlier.code));
+        StockPricesStream stocks = new StockPricesStream(connection);
+        OptionPricesStream options = new OptionPricesStream(connection);
+        try {
+            Day from = (writer.getLastDay() != null) ? writer.getLastDay().next() : new Day(1900, 1, 1);
+
+            stocks.init();
+            stocks.setFetchSize(FETCH_SIZE);
+            stocks.open(underlier.id, from, LAST_DAY);
+
+            options.init();
+            options.setFetchSize(FETCH_SIZE);
+            options.open(underlier.id, from, LAST_DAY);
+
+            // Merge the two streams by day
+            int days = 0;
+            StockPriceRecord stock = stocks.next();
+            OptionPriceRecord option = options.next();
+            List<OptionPriceRecord> dayOptions = new ArrayList<>();
+            while ((stock != null) || (option != null)) {
+                Day day;
+                if (null == stock) {
+                    day = option.day;
+                } else if (null == option) {
+                    day = stock.day;
+                } else {
+                    day = (stock.day.compareTo(option.day) <= 0) ? stock.day : option.day;
+                }
+
+                Double close = null;
+                while ((stock != null) && stock.day.equals(day)) {
+                    if (null == close) {
+                        close = stock.close;
+                    }
+                    stock = stocks.next();
+                }
+
+                dayOptions.clear();
+                while ((option != null) && option.day.equals(day)) {
+                    if (isValid(option)) {
+                        dayOptions.add(option);
+                    }
+                    option = options.next();
+                }
+
+                writer.appendDay(day, close, dayOptions);
+                days++;
+            }
+
+            // Commit the transaction holding the cursors
+            connection.commit();
+            logger.info("Underlier: " + underlier.code + " exported days: " + days + " after: " + from);
+        } catch (Exception ex) {
+            throw new RuntimeException(ex.getMessage(), ex);
+        } finally {
+            stocks.cleanup();
+            options.cleanup();
+            writer.close();
+        }
+    }
+
+    private static boolean isValid(OptionPriceRecord record) {
+        return (record.strike != null) && (record.maturity != null) && (record.is_call != null) && (record.code != null);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // CSV export: files hold all the underliers of a day. They're read in day order while the workers append,
+    // each underlier belongs to one worker so its days stay in order.
+
+    private static final class DayBatch {
+        final Day day;
+        final Map<String, Double> stockPrices = new HashMap<>();
+        final Map<String, List<OptionPriceRecord>> options = new HashMap<>();
+
+        DayBatch(Day day) {
+            this.day = day;
+        }
+    }
+
+    private final class CsvWorker implements Runnable {
+        private final LinkedList<DayBatch> batches = new LinkedList<>();
+        private final Map<String, ColumnarWriter> writers = new HashMap<>();
+        private final int index;
+        private boolean finished;
+
+        CsvWorker(int index) {
+            this.index = index;
+        }
+
+        void add(DayBatch batch) {
+            synchronized (lock) {
+                while (batches.size() >= MAX_QUEUED_DAYS) {
+                    Util.safeWait(lock);
+                }
+
+                batches.add(batch);
+                lock.notifyAll();
+            }
+        }
+
+        void finish() {
+            synchronized (lock) {
+                finished = true;
+                lock.notifyAll();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    DayBatch batch;
+                    synchronized (lock) {
+                        while (batches.isEmpty() && !finished) {
+                            Util.safeWait(lock);
+                        }
+
+                        if (batches.isEmpty()) {
+                            break;
+                        }
+
+                        batch = batches.removeFirst();
+                        lock.notifyAll();
+                    }
+
+                    appendBatch(batch);
+                }
+            } finally {
+                for (ColumnarWriter writer : writers.values()) {
+                    try {
+                        writer.close();
+                    } catch (Exception ex) {
+                        logger.warn(ex.getMessage(), ex);
+                    }
+                }
+            }
+        }
+
+        private void appendBatch(DayBatch batch) {
+            Set<String> underliers = new TreeSet<>(batch.options.keySet());
+            underliers.addAll(batch.stockPrices.keySet());
+            for (String underlier : underliers) {
+                if (Math.floorMod(underlier.hashCode(), threads) != index) {
+                    continue;
+                }
+
+                try {
+                    ColumnarWriter writer = writers.get(underlier);
+                    if (null == writer) {
+                        writer = new ColumnarWriter(ColumnarFormat.getUnderlierFolder(folder, underlier));
+                        writers.put(underlier, writer);
+                    }
+
+                    // Already exported
+                    Day lastDay = writer.getLastDay();
+                    if ((lastDay != null) && (batch.day.compareTo(lastDay) <= 0)) {
+                        continue;
+                    }
+
+                    List<OptionPriceRecord> options = batch.options.get(underlier);
+                    writer.appendDay(batch.day, batch.stockPrices.get(underlier), (options != null) ? options : new ArrayList<>());
+                    writer.flush();
+                } catch (Exception ex) {
+                    logger.warn("Day: " + batch.day + " underlier: " + underlier, ex);
+                }
+            }
+        }
+    }
+
+    private void exportCsv() {
+        List<CsvWorker> workers = new ArrayList<>(threads);
+        List<Thread> workerThreads = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            CsvWorker worker = new CsvWorker(i);
+            workers.add(worker);
+            Thread thread = new Thread(worker, "EXPORT_" + i);
+            workerThreads.add(thread);
+            thread.start();
+        }
+
+        try {
+            for (Map.Entry<Day, String> entry : getCsvFiles().entrySet()) {
+                try {
+                    DayBatch batch = readCsvFile(entry.getKey(), entry.getValue());
+                    for (CsvWorker worker : workers) {
+                        worker.add(batch);
+                    }
+                } catch (Exception ex) {
+                    logger.warn("Reading file: " + entry.getValue(), ex);
+                }
+            }
+        } finally {
+            for (CsvWorker worker : workers) {
+                worker.finish();
+            }
+
+            for (Thread thread : workerThreads) {
+                Util.safeJoin(thread);
+            }
+        }
+    }
+
+    private Map<Day, String> getCsvFiles() {
+        Map<Day, String> paths = new TreeMap<>();
+        File[] files = new File(csvFolder).listFiles();
+        if (null == files) {
+            logger.info("No files");
+            return paths;
+        }
+
+        Pattern pattern = Pattern.compile(csvRegex);
+        for (File file : files) {
+            Matcher matcher = pattern.matcher(file.getName());
+            if (matcher.find()) {
+                paths.put(new Day(matcher.group(1), Day.FORMAT_YYYYMMDD), file.getPath());
+            }
+        }
+
+        return paths;
+    }
+
+    private DayBatch readCsvFile(Day day, String path) {
+        logger.info("Reading file: " + path + " for day:" + day);
+
+        DayBatch batch = new DayBatch(day);
+        CsvRecord columns = new CsvRecord();
+        CsvFileReader reader = null;
+        try {
+            reader = new CsvFileReader(path);
+            String line = null;
+            boolean first = true;
+            while (null != (line = reader.readLine())) {
+                // Avoid parsing the CSV if filtering is enabled
+                if ((underliersFilter.size() > 0) && !isProcessingEnabled(line)) {
+                    continue;
+                }
+
+                columns.parse(line);
+
+                if (dataFormat.equals(ImportHistoricalOptionPricesJob.DataFormat.Default)) {
+                    // Some files contain a header with the first column being 'UnderlyingSymbol'
+                    if (first && columns.getString(0).equals(ImportHistoricalOptionPricesJob.UNDERLYING_SYMBOL)) {
+                        first = false;
+                        continue;
+                    }
+                    first = false;
+
+                    addRecord(batch, ImportHistoricalOptionPricesJob.parseDefaultFileRecord(columns));
+                } else {
+                    addRecord(batch, ImportHistoricalOptionPricesJob.parseOratsFileRecord(columns, true));
+                    addRecord(batch, ImportHistoricalOptionPricesJob.parseOratsFileRecord(columns, false));
+                }
+            }
+        } finally {
+            if (null != reader) {
+                reader.close();
+            }
+        }
+
+        return batch;
+    }
+
+    private boolean isProcessingEnabled(String line) {
+        int pos = line.indexOf(',');
+        String symbol = (pos < 0) ? "" : line.substring(0, pos);
+        return underliersFilter.contains(symbol) || aliases.containsKey(symbol);
+    }
+
+    // Same filtering as ImportHistoricalOptionPricesJob.importRecord()
+    private void addRecord(DayBatch batch, ImportHistoricalOptionPricesJob.FileRecord record) {
+        String alias = aliases.get(record.underlyingSymbol);
+        if (alias != null) {
+            record.underlyingSymbol = alias;
+        }
+
+        if ((underliersFilter.size() > 0) && !underliersFilter.contains(record.underlyingSymbol)) {
+            return;
+        }
+
+        if (!record.recordDay.equals(batch.day)) {
+            throw new RuntimeException("DATE mismatch: refDay=" + batch.day + " recordDay=" + record.recordDay);
+        }
+
+        batch.stockPrices.putIfAbsent(record.underlyingSymbol, record.stockPrice);
+
+        if ((null == record.bid) && (null == record.ask)) {
+            return;
+        }
+
+        if ((null == record.source) || (!sources.contains(record.source))) {
+            return;
+        }
+
+        String code = record.optionSymbol;
+        if (code.length() >= OptionPriceBulkInsert.CODE_COLUMN_LENGTH) {
+            code = code.substring(0, OptionPriceBulkInsert.CODE_COLUMN_LENGTH);
+        }
+
+        batch.options.computeIfAbsent(record.underlyingSymbol, key -> new ArrayList<>()).add(
+                new OptionPriceRecord(batch.day, code, record.isCall, record.strike, record.expiration, record.bid, record.ask));
+    }
+}
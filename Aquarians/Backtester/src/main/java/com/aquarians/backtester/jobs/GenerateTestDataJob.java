@@ -163,7 +163,7 @@ public class GenerateTestDataJob implements Runnable {
 
         // Clear it's data
         logger.debug("Clearing old data...");
-        owner.getProcedures().optionPricesDeleteAll.execute(underlier);
+        owner.getProcedures().deleteOptionPrices(underlier);
         owner.getProcedures().stockPricesDeleteAll.execute(underlier);
         logger.debug("Old data cleared");
 
@@ -174,6 +174,9 @@ public class GenerateTestDataJob implements Runnable {
         for (PriceRecord stockRecord : stockRecords) {
             generate(stockRecord);
         }
+
+        // Send the rows still queued
+        owner.getProcedures().executeBatches();
     }
 
     private void generateStockPrices() {
@@ -192,7 +195,7 @@ public class GenerateTestDataJob implements Runnable {
     private void generate(PriceRecord stockRecord) {
         // Stock
         logger.debug("Day: " + stockRecord.day + " stock price: " + Application.DOUBLE_DIGIT_FORMAT.format(stockRecord.price));
-        owner.getProcedures().stockPriceInsert.execute(
+        owner.getProcedures().stockPriceInsert.addBatch(
                 underlier,
                 stockRecord.day,
                 stockRecord.price, // open
@@ -385,7 +388,7 @@ public class GenerateTestDataJob implements Runnable {
                 }
                 double callAsk = callPrice + OPTION_PRICE_TICK;
 
-                owner.getProcedures().optionPriceInsert.execute(underlier, pair.call.getCode(), stockRecord.day, true, pair.strike, maturity, callBid, callAsk);
+                owner.getProcedures().optionPriceInsert.addBatch(underlier, pair.call.getCode(), stockRecord.day, true, pair.strike, maturity, callBid, callAsk);
                 logger.debug("Day: " + stockRecord.day + " Call: " + pair.call.getCode() + " Price: " + Application.FOUR_DIGIT_FORMAT.format(callPrice));
 
                 BlackScholes putPricer = new BlackScholes(false, stockRecord.price, pair.strike, yf, 0.0, 0.0, volatility);
@@ -398,7 +401,7 @@ public class GenerateTestDataJob implements Runnable {
                 }
                 double putAsk = putPrice + OPTION_PRICE_TICK;
 
-                owner.getProcedures().optionPriceInsert.execute(underlier, pair.put.getCode(), stockRecord.day, false, pair.strike, maturity, putBid, putAsk);
+                owner.getProcedures().optionPriceInsert.addBatch(underlier, pair.put.getCode(), stockRecord.day, false, pair.strike, maturity, putBid, putAsk);
                 logger.debug("Day: " + stockRecord.day + " Put: " + pair.call.getCode() + " Price: " + Application.FOUR_DIGIT_FORMAT.format(putPrice));
             }
         }
@@ -3,12 +3,10 @@ package com.aquarians.backtester.jobs;
 import com.aquarians.aqlib.*;
 import com.aquarians.aqlib.math.DefaultProbabilityFitter;
 import com.aquarians.aqlib.math.LinearIterator;
+import com.aquarians.aqlib.math.Normal;
 import com.aquarians.backtester.database.DatabaseModule;
-import com.aquarians.backtester.database.records.StockPriceRecord;
-import org.apache.commons.math3.distribution.NormalDistribution;
 
 import java.util.Iterator;
-import java.util.List;
 
 public class GeometricBrownianMotionStudyJob implements Runnable {
 
@@ -23,8 +21,9 @@ public class GeometricBrownianMotionStudyJob implements Runnable {
         this.database = database;
     }
 
-    static boolean isNullOrZero(Double value) {
-        if ((null == value) || (value < Util.ZERO)) {
+    // Missing prices are NaN
+    static boolean isNullOrZero(double value) {
+        if (Double.isNaN(value) || (value < Util.ZERO)) {
             return true;
         }
 
@@ -41,21 +40,24 @@ public class GeometricBrownianMotionStudyJob implements Runnable {
         Day startDay = interval.getKey();
         Day endDay = interval.getValue();
 
-        List<StockPriceRecord> records =  database.getProcedures().stockPricesSelect.execute(id, startDay, endDay);
-
-        // Collect log returns
-        DefaultProbabilityFitter rets = new DefaultProbabilityFitter(records.size());
-
-        for (int i = days; i < records.size(); i += days) {
-            StockPriceRecord curr = records.get(i);
-            StockPriceRecord prev = records.get(i - days);
-            if (isNullOrZero(curr.close) || isNullOrZero(prev.close)) {
-                continue;
+        // Collect log returns between every days-th price, streaming the history instead of loading it
+        DefaultProbabilityFitter rets = new DefaultProbabilityFitter();
+        // Single element arrays, updated from the lambda without boxing
+        int[] count = {0};
+        double[] prevClose = {Double.NaN};
+        database.getProcedures().stockPricesSelect.stream(id, startDay, endDay, row -> {
+            int i = count[0]++;
+            if (i % days != 0) {
+                return true;
             }
 
-            double ret = Math.log(curr.close / prev.close);
-            rets.addSample(ret);
-        }
+            double prev = prevClose[0];
+            prevClose[0] = row.close;
+            if ((i > 0) && !isNullOrZero(row.close) && !isNullOrZero(prev)) {
+                rets.addSample(Math.log(row.close / prev));
+            }
+            return true;
+        });
 
         return rets;
     }
@@ -116,8 +118,6 @@ public class GeometricBrownianMotionStudyJob implements Runnable {
         double mu = 0.05;
         double sigma = 0.35;
 
-        NormalDistribution std = new NormalDistribution();
-
         DefaultProbabilityFitter zs = new DefaultProbabilityFitter();
         DefaultProbabilityFitter forward1s = new DefaultProbabilityFitter();
         DefaultProbabilityFitter forward2s = new DefaultProbabilityFitter();
@@ -125,7 +125,7 @@ public class GeometricBrownianMotionStudyJob implements Runnable {
         Iterator<Double> it = new LinearIterator(0.0, 1.0, 100000);
         while (it.hasNext()) {
             double probability = Util.limitProbability(it.next());
-            double z = std.inverseCumulativeProbability(probability);
+            double z = Normal.inverseCdf(probability);
             zs.addSample(z);
 
             double forward1 = spot + spot * (mu * t + sigma * Math.sqrt(t) * z);
@@ -25,6 +25,7 @@
 package com.aquarians.backtester.jobs;
 
 import com.aquarians.aqlib.CsvFileReader;
+import com.aquarians.aqlib.CsvRecord;
 import com.aquarians.aqlib.Day;
 import com.aquarians.aqlib.Util;
 import com.aquarians.backtester.Application;
@@ -35,7 +36,9 @@ import com.aquarians.backtester.database.records.StockPriceRecord;
 import com.aquarians.backtester.database.records.UnderlierRecord;
 
 import java.io.File;
+import java.sql.Connection;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -45,14 +48,14 @@ public class ImportHistoricalOptionPricesJob implements Runnable {
             org.apache.log4j.Logger.getLogger(ImportHistoricalOptionPricesJob.class.getSimpleName());
 
     private static final long BULK_IMPORT_COUNT = 100000;
-    private static final String UNDERLYING_SYMBOL = "UnderlyingSymbol";
+    static final String UNDERLYING_SYMBOL = "UnderlyingSymbol";
 
-    private enum DataFormat {
+    enum DataFormat {
         Default,
         Orats
     }
 
-    private enum Source {
+    enum Source {
         Composite("*"), // Asterisk means it is a composite price, including all option exchanges
         NonStandard("N"), // This is a non-standard, or special settlement option situations, and not used in back testing
         Binary("B"), // Binary option
@@ -86,12 +89,18 @@ public class ImportHistoricalOptionPricesJob implements Runnable {
     private Set<Source> sources = new TreeSet<>();
     private Map<String, String> aliases = new TreeMap<>();
     private Set<String> underliersFilter = new HashSet<>();
-    private final Map<String, Long> underlierIds = new HashMap<>();
+    // Shared by the import threads, new underliers are created under the lock
+    private final Map<String, Long> underlierIds = new ConcurrentHashMap<>();
+    private final Object underliersLock = new Object();
     private final boolean clearPreviousData;
     private final boolean importStockPrice;
     private final DataFormat dataFormat;
     private final boolean runFilter;
     private final Day startDay;
+    private final int threads;
+    private final boolean useCopy;
+    private final Object lock = new Object();
+    private final Deque<Map.Entry<Day, String>> pendingFiles = new ArrayDeque<>();
 
     public ImportHistoricalOptionPricesJob(DatabaseModule owner) {
         this.owner = owner;
@@ -101,6 +110,9 @@ public class ImportHistoricalOptionPricesJob implements Runnable {
                 "ImportHistoricalOptionPricesJob.ClearPreviousData", "false"));
         importStockPrice = Boolean.parseBoolean(Application.getInstance().getProperties().getProperty(
                 "ImportHistoricalOptionPricesJob.ImportStockPrice", "false"));
+        // COPY is PostgreSQL only, the embedded database gets the inserts
+        useCopy = Boolean.parseBoolean(Application.getInstance().getProperties().getProperty(
+                "ImportHistoricalOptionPricesJob.UseCopy", "false")) && owner.getDialect().supportsCopy();
         dataFormat = DataFormat.valueOf(Application.getInstance().getProperties().getProperty("ImportHistoricalOptionPricesJob.DataFormat"));
 
         String[] sources = Application.getInstance().getProperties().getProperty("ImportHistoricalOptionPricesJob.Sources").split(",");
@@ -128,6 +140,8 @@ public class ImportHistoricalOptionPricesJob implements Runnable {
         } else {
             this.startDay = null;
         }
+
+        threads = Integer.parseInt(Application.getInstance().getProperties().getProperty("ImportHistoricalOptionPricesJob.Threads", "1"));
     }
 
     private void loadUnderliers() {
@@ -185,7 +199,7 @@ public class ImportHistoricalOptionPricesJob implements Runnable {
             }
 
             logger.info("Clearing data for underlier: " + code);
-            owner.getProcedures().optionPricesDeleteAll.execute(id);
+            owner.getProcedures().deleteOptionPrices(id);
             logger.info("Delete of data completed");
         }
     }
@@ -222,14 +236,8 @@ public class ImportHistoricalOptionPricesJob implements Runnable {
             return;
         }
 
-        // Enable bulk operations
-        owner.setAutoCommit(false);
-
-        // Process files
-        RowInfo rowInfo = new RowInfo();
-
-        List<Map.Entry<Day, String>> entries = getFiles();
-        for (Map.Entry<Day, String> entry : entries) {
+        List<Map.Entry<Day, String>> entries = new ArrayList<>();
+        for (Map.Entry<Day, String> entry : getFiles()) {
             Day day = entry.getKey();
             String path = entry.getValue();
 
@@ -238,21 +246,153 @@ public class ImportHistoricalOptionPricesJob implements Runnable {
                 continue;
             }
 
-            try {
-                loadFile(rowInfo, day, path);
-                logger.debug("Total rows read: " + rowInfo.totalRows + ", processed: " + rowInfo.processedRows
-                        + ", imported: " + rowInfo.importedRows + " on day " + day);
-                owner.commit();
-            } catch (Exception ex) {
-                logger.warn("Reading file: " + path, ex);
-            }
+            entries.add(entry);
+        }
+
+        if (threads > 1) {
+            internalRunParallel(entries);
+            return;
+        }
+
+        // Enable bulk operations
+        owner.setAutoCommit(false);
+
+        // Process files
+        RowInfo rowInfo = new RowInfo(owner.getProcedures(), null);
+        for (Map.Entry<Day, String> entry : entries) {
+            importFile(rowInfo, entry.getKey(), entry.getValue());
         }
 
         // Disable bulk operations
         owner.setAutoCommit(true);
     }
 
-    private static final class FileRecord {
+    private void importFile(RowInfo rowInfo, Day day, String path) {
+        rowInfo.stockPrices.clear();
+        try {
+            loadFile(rowInfo, day, path);
+            logger.debug("Total rows read: " + rowInfo.totalRows + ", processed: " + rowInfo.processedRows
+                    + ", imported: " + rowInfo.importedRows + " on day " + day);
+            commit(rowInfo);
+        } catch (Exception ex) {
+            logger.warn("Reading file: " + path, ex);
+            rollback(rowInfo);
+            rowInfo.records.clear();
+        }
+    }
+
+    // Each thread takes the next file and imports it on its own connection, committing once per file.
+    // The module connection stays in auto-commit and is used only to create new underliers.
+    private void internalRunParallel(List<Map.Entry<Day, String>> entries) {
+        pendingFiles.addAll(entries);
+        logger.info("Importing " + entries.size() + " files on " + threads + " threads");
+
+        List<Thread> workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    importWorker();
+                } catch (Exception ex) {
+                    logger.warn(ex.getMessage(), ex);
+                }
+            }, "IMPORT_" + i);
+            workers.add(worker);
+            worker.start();
+        }
+
+        for (Thread worker : workers) {
+            Util.safeJoin(worker);
+        }
+    }
+
+    private Map.Entry<Day, String> takeFile() {
+        synchronized (lock) {
+            return pendingFiles.pollFirst();
+        }
+    }
+
+    private void importWorker() {
+        Connection connection = owner.borrowConnection();
+        Procedures procedures = null;
+        try {
+            // Enable bulk operations
+            connection.setAutoCommit(false);
+            procedures = new Procedures(connection);
+            procedures.init();
+
+            RowInfo rowInfo = new RowInfo(procedures, connection);
+            Map.Entry<Day, String> entry;
+            while (null != (entry = takeFile())) {
+                importFile(rowInfo, entry.getKey(), entry.getValue());
+            }
+        } catch (Exception ex) {
+            throw new RuntimeException(ex.getMessage(), ex);
+        } finally {
+            if (procedures != null) {
+                procedures.cleanup();
+            }
+
+            owner.releaseConnection(connection);
+        }
+    }
+
+    private void commit(RowInfo rowInfo) {
+        if (null == rowInfo.connection) {
+            owner.commit();
+            rowInfo.createdUnderliers.clear();
+            return;
+        }
+
+        rowInfo.procedures.commit();
+    }
+
+    private void rollback(RowInfo rowInfo) {
+        if (null == rowInfo.connection) {
+            owner.rollback();
+
+            // Created in the transaction that was rolled back
+            for (String symbol : rowInfo.createdUnderliers) {
+                underlierIds.remove(symbol);
+            }
+            rowInfo.createdUnderliers.clear();
+            return;
+        }
+
+        try {
+            rowInfo.procedures.rollback();
+        } catch (Exception ex) {
+            logger.warn(ex.getMessage(), ex);
+        }
+    }
+
+    // Creates the underlier once even if several threads see it at the same time
+    private Long getUnderlierId(RowInfo rowInfo, String symbol) {
+        Long underlier = underlierIds.get(symbol);
+        if (underlier != null) {
+            return underlier;
+        }
+
+        synchronized (underliersLock) {
+            underlier = underlierIds.get(symbol);
+            if (underlier != null) {
+                return underlier;
+            }
+
+            // Single threaded the underlier is committed with the file, otherwise right away on the module connection
+            Procedures procedures = (threads > 1) ? owner.getProcedures() : rowInfo.procedures;
+            procedures.finishCopies();
+            underlier = procedures.sequenceNextVal.execute(Procedures.SQ_UNDERLIERS);
+            procedures.underlierInsert.execute(underlier, symbol);
+            underlierIds.put(symbol, underlier);
+            if (threads <= 1) {
+                rowInfo.createdUnderliers.add(symbol);
+            }
+            logger.info("Created underlier: " + symbol + " with id: " + underlier);
+            return underlier;
+        }
+    }
+
+    static final class FileRecord {
         String underlyingSymbol;
         Double stockPrice;
         Source source;
@@ -266,7 +406,7 @@ public class ImportHistoricalOptionPricesJob implements Runnable {
     }
 
     // https://www.historicaloptiondata.com/content/historical-options-data-file-structures-0
-    private static FileRecord parseDefaultFileRecord(String[] columns) {
+    static FileRecord parseDefaultFileRecord(CsvRecord columns) {
         // 0 UnderlyingSymbol
         // 1 UnderlyingPrice
         // 2 Flags
@@ -284,20 +424,19 @@ public class ImportHistoricalOptionPricesJob implements Runnable {
         // 14 T1OpenInterest
         FileRecord record = new FileRecord();
 
-        record.underlyingSymbol = columns[0];
-        record.stockPrice = Double.parseDouble(columns[1]);
-        record.source = Source.parseSource(columns[2]);
-        record.optionSymbol = columns[3];
-        String optionType = columns[5].toLowerCase();
-        record.isCall = optionType.equals("call") || optionType.equals("c");
-        record.expiration = new Day(columns[6], Day.US_FORMAT);
-        record.recordDay = new Day(columns[7], Day.US_FORMAT);
-        record.strike = Double.parseDouble(columns[8]);
-        record.bid = Double.parseDouble(columns[10]);
+        record.underlyingSymbol = columns.getString(0);
+        record.stockPrice = columns.getDouble(1);
+        record.source = Source.parseSource(columns.getString(2));
+        record.optionSymbol = columns.getString(3);
+        record.isCall = columns.equalsIgnoreCase(5, "call") || columns.equalsIgnoreCase(5, "c");
+        record.expiration = columns.getDay(6, Day.US_FORMAT);
+        record.recordDay = columns.getDay(7, Day.US_FORMAT);
+        record.strike = columns.getDouble(8);
+        record.bid = columns.getDouble(10);
         if (record.bid < Util.ZERO) {
             record.bid = null;
         }
-        record.ask = Double.parseDouble(columns[11]);
+        record.ask = columns.getDouble(11);
         if (record.ask < Util.ZERO) {
             record.ask = null;
         }
@@ -306,7 +445,7 @@ public class ImportHistoricalOptionPricesJob implements Runnable {
     }
 
     // https://docs.orats.io/datav2-api-guide/definitions.html
-    private static FileRecord parseOratsFileRecord(String[] columns, boolean isCall) {
+    static FileRecord parseOratsFileRecord(CsvRecord columns, boolean isCall) {
         // 0 ticker
         // 1 stkPx
         // 2 expirDate
@@ -327,21 +466,21 @@ public class ImportHistoricalOptionPricesJob implements Runnable {
         // 36 trade_date
         FileRecord record = new FileRecord();
 
-        record.underlyingSymbol = columns[0];
-        record.stockPrice = Double.parseDouble(columns[1]);
-        record.expiration = new Day(columns[2], Day.US_FORMAT);
-        record.strike = Double.parseDouble(columns[4]);
+        record.underlyingSymbol = columns.getString(0);
+        record.stockPrice = columns.getDouble(1);
+        record.expiration = columns.getDay(2, Day.US_FORMAT);
+        record.strike = columns.getDouble(4);
         record.source = Source.Composite;
         record.isCall = isCall;
         record.optionSymbol = (isCall ? "C" : "P") + " " + record.expiration.toString() + " " + Application.DOUBLE_DIGIT_FORMAT.format(record.stockPrice);
-        record.recordDay = new Day(columns[36], Day.US_FORMAT);
+        record.recordDay = columns.getDay(36, Day.US_FORMAT);
 
         if (isCall) {
-            record.bid = Double.parseDouble(columns[9]);
-            record.ask = Double.parseDouble(columns[11]);
+            record.bid = columns.getDouble(9);
+            record.ask = columns.getDouble(11);
         } else {
-            record.bid = Double.parseDouble(columns[12]);
-            record.ask = Double.parseDouble(columns[14]);
+            record.bid = columns.getDouble(12);
+            record.ask = columns.getDouble(14);
         }
 
         if (record.bid < Util.ZERO) {
@@ -358,6 +497,7 @@ public class ImportHistoricalOptionPricesJob implements Runnable {
         logger.info("Loading file: " + path + " for day:" + refDay);
 
         boolean first = true;
+        CsvRecord columns = new CsvRecord();
         CsvFileReader reader = null;
         try {
             reader = new CsvFileReader(path);
@@ -370,22 +510,20 @@ public class ImportHistoricalOptionPricesJob implements Runnable {
                     continue;
                 }
 
-                String[] columns = line.split(",");
+                columns.parse(line);
 
                 if (dataFormat.equals(DataFormat.Default)) {
-                    FileRecord record = parseDefaultFileRecord(columns);
-
                     boolean skip = false;
                     if (first) {
                         // Some files contain a header with the first column being 'UnderlyingSymbol'
                         first = false;
-                        if (record.underlyingSymbol.equals(UNDERLYING_SYMBOL)) {
+                        if (columns.getString(0).equals(UNDERLYING_SYMBOL)) {
                             skip = true;
                         }
                     }
 
                     if (!skip) {
-                        importRecord(rowInfo, refDay, record);
+                        importRecord(rowInfo, refDay, parseDefaultFileRecord(columns));
                     }
                 } else if (dataFormat.equals(DataFormat.Orats)) {
                     FileRecord callRecord = parseOratsFileRecord(columns, true);
@@ -401,7 +539,7 @@ public class ImportHistoricalOptionPricesJob implements Runnable {
 
             // Add remaining records that didn't add up to a batch
             for (OptionPriceBulkInsert.Record record : rowInfo.records) {
-                owner.getProcedures().optionPriceInsert.execute(
+                rowInfo.procedures.optionPriceInsert.execute(
                         record.underlier,
                         record.code,
                         refDay,
@@ -439,30 +577,39 @@ public class ImportHistoricalOptionPricesJob implements Runnable {
             return;
         }
 
-        Long underlier = underlierIds.get(record.underlyingSymbol);
-        if (null == underlier) {
-            underlier = owner.getProcedures().sequenceNextVal.execute(Procedures.SQ_UNDERLIERS);
-            owner.getProcedures().underlierInsert.execute(underlier, record.underlyingSymbol);
-            underlierIds.put(record.underlyingSymbol, underlier);
-            logger.info("Created underlier: " + record.underlyingSymbol + " with id: " + underlier);
-        }
+        Long underlier = getUnderlierId(rowInfo, record.underlyingSymbol);
 
-        if (importStockPrice) {
-            List<StockPriceRecord> stockPrices = owner.getProcedures().stockPricesSelect.execute(underlier, refDay, refDay);
+        // The stock price is the same on every row of the underlier, write it once per file
+        if (importStockPrice && isNewStockPrice(rowInfo, underlier, record.stockPrice)) {
+            rowInfo.procedures.finishCopies();
+            List<StockPriceRecord> stockPrices = rowInfo.procedures.stockPricesSelect.execute(underlier, refDay, refDay);
             if (stockPrices.size() == 0) {
-                owner.getProcedures().stockPriceInsert.execute(underlier, refDay, record.stockPrice);
+                rowInfo.procedures.stockPriceInsert.execute(underlier, refDay, record.stockPrice);
             } else {
-                owner.getProcedures().stockPriceUpdate.execute(underlier, refDay, record.stockPrice, null);
+                rowInfo.procedures.stockPriceUpdate.execute(underlier, refDay, record.stockPrice, null);
             }
         }
 
+        String code = record.optionSymbol;
+        if (code.length() >= OptionPriceBulkInsert.CODE_COLUMN_LENGTH) {
+            code = code.substring(0, OptionPriceBulkInsert.CODE_COLUMN_LENGTH);
+        }
+
+        if (useCopy) {
+            // Streamed to the server, finished on commit
+            rowInfo.procedures.optionPriceCopy.add(underlier, code, refDay, record.isCall, record.strike,
+                    record.expiration, record.bid, record.ask);
+            rowInfo.importedRows++;
+            if (rowInfo.importedRows % BULK_IMPORT_COUNT == 0) {
+                commit(rowInfo);
+                logger.debug("Imported so far: " + rowInfo.importedRows + " records on day " + refDay);
+            }
+            return;
+        }
+
         OptionPriceBulkInsert.Record dbRecord = new OptionPriceBulkInsert.Record();
         dbRecord.underlier = underlier;
-        if (record.optionSymbol.length() < OptionPriceBulkInsert.CODE_COLUMN_LENGTH) {
-            dbRecord.code = record.optionSymbol;
-        } else {
-            dbRecord.code = record.optionSymbol.substring(0, OptionPriceBulkInsert.CODE_COLUMN_LENGTH);
-        }
+        dbRecord.code = code;
         dbRecord.day = refDay;
         dbRecord.is_call = record.isCall;
         dbRecord.strike = record.strike;
@@ -475,16 +622,22 @@ public class ImportHistoricalOptionPricesJob implements Runnable {
 
         // Insert in batches of  OptionPriceBulkInsert.RECORDS
         if (rowInfo.records.size() == OptionPriceBulkInsert.RECORDS) {
-            owner.getProcedures().optionPriceBulkInsert.execute(rowInfo.records);
+            rowInfo.procedures.optionPriceBulkInsert.execute(rowInfo.records);
             rowInfo.records.clear();
         }
 
         if (rowInfo.importedRows % BULK_IMPORT_COUNT == 0) {
-            owner.commit();
+            commit(rowInfo);
             logger.debug("Imported so far: " + rowInfo.importedRows + " records on day " + refDay);
         }
     }
 
+    private static boolean isNewStockPrice(RowInfo rowInfo, Long underlier, Double stockPrice) {
+        boolean written = rowInfo.stockPrices.containsKey(underlier);
+        Double previous = rowInfo.stockPrices.put(underlier, stockPrice);
+        return !written || !Objects.equals(previous, stockPrice);
+    }
+
     private void loadUnderliersFromFile(String filename) {
         CsvFileReader reader = null;
         try {
@@ -506,7 +659,7 @@ public class ImportHistoricalOptionPricesJob implements Runnable {
     }
 
     private void internalRunFilter() {
-        RowInfo rowInfo = new RowInfo();
+        RowInfo rowInfo = new RowInfo(owner.getProcedures(), null);
 
         List<Map.Entry<Day, String>> entries = getFiles();
         for (Map.Entry<Day, String> entry : entries) {
@@ -522,6 +675,7 @@ public class ImportHistoricalOptionPricesJob implements Runnable {
     private void filterFile(RowInfo rowInfo, Day refDay, String path) {
         logger.info("Filtering file: " + path + " for day:" + refDay);
 
+        CsvRecord values = new CsvRecord();
         CsvFileReader reader = null;
         try {
             reader = new CsvFileReader(path);
@@ -533,7 +687,7 @@ public class ImportHistoricalOptionPricesJob implements Runnable {
                     continue;
                 }
 
-                String[] values = line.split(",");
+                values.parse(line);
                 FileRecord record = parseDefaultFileRecord(values);
 
                 rowInfo.processedRows++;
@@ -559,11 +713,24 @@ public class ImportHistoricalOptionPricesJob implements Runnable {
         return false;
     }
 
+    // Import state of one thread
     private static final class RowInfo {
+        final Procedures procedures;
+        // Null when importing on the module connection
+        final Connection connection;
         long totalRows;
         long processedRows;
         long importedRows;
         List<OptionPriceBulkInsert.Record> records = new ArrayList<>(OptionPriceBulkInsert.RECORDS);
+        // Not committed yet, single threaded only
+        List<String> createdUnderliers = new ArrayList<>();
+        // Stock price written for each underlier of the current file
+        Map<Long, Double> stockPrices = new HashMap<>();
+
+        RowInfo(Procedures procedures, Connection connection) {
+            this.procedures = procedures;
+            this.connection = connection;
+        }
     }
 
 }
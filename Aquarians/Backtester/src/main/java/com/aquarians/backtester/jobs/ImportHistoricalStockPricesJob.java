@@ -25,7 +25,9 @@
 package com.aquarians.backtester.jobs;
 
 import com.aquarians.aqlib.CsvFileReader;
+import com.aquarians.aqlib.CsvRecord;
 import com.aquarians.aqlib.Day;
+import com.aquarians.aqlib.Pair;
 import com.aquarians.backtester.Application;
 import com.aquarians.backtester.database.DatabaseModule;
 import com.aquarians.backtester.database.Procedures;
@@ -50,6 +52,10 @@ public class ImportHistoricalStockPricesJob implements Runnable {
     private final String folder;
     private final String regex;
     private Set<String> underliersFilter = new TreeSet<>();
+    private final boolean useCopy;
+    private final Map<String, Long> underlierIds = new HashMap<>();
+    // Days already in the database for each underlier, rows outside the range can be copied without checking
+    private final Map<Long, Pair<Day, Day>> storedDays = new HashMap<>();
 
     private long importedCount = 0;
 
@@ -57,6 +63,9 @@ public class ImportHistoricalStockPricesJob implements Runnable {
         this.owner = owner;
         folder = Application.getInstance().getFolderProperty("ImportHistoricalStockPricesJob.Folder");
         regex = Application.getInstance().getProperties().getProperty("ImportHistoricalStockPricesJob.Regex");
+        // COPY is PostgreSQL only, the embedded database gets the inserts
+        useCopy = Boolean.parseBoolean(Application.getInstance().getProperties().getProperty(
+                "ImportHistoricalStockPricesJob.UseCopy", "false")) && owner.getDialect().supportsCopy();
 
         String[] underliers = Application.getInstance().getProperties().getProperty("ImportHistoricalStockPricesJob.Underliers" , "").split(",");
         for (String underlier : underliers) {
@@ -120,6 +129,8 @@ public class ImportHistoricalStockPricesJob implements Runnable {
                 loadFile(path);
             } catch (Exception ex) {
                 logger.warn("Reading file: " + path, ex);
+                owner.rollback();
+                storedDays.clear();
             }
         }
 
@@ -134,36 +145,36 @@ public class ImportHistoricalStockPricesJob implements Runnable {
         try {
             reader = new CsvFileReader(path);
 
-            String[] columns = null;
+            CsvRecord columns = new CsvRecord();
             Day prevDay = null;
-            while (null != (columns = reader.readRecord())) {
-                String symbol = columns[0];
+            while (null != reader.readRecord(columns)) {
+                String symbol = columns.getString(0);
                 if ((underliersFilter.size() > 0) && (!underliersFilter.contains(symbol))) {
                     continue;
                 }
 
-                Day day = new Day(columns[1], Day.US_FORMAT);
-                double open = Double.parseDouble(columns[2]);
-                double high = Double.parseDouble(columns[3]);
-                double low = Double.parseDouble(columns[4]);
-                double close = Double.parseDouble(columns[5]);
-                double adjusted = Double.parseDouble(columns[6]);
-                long volume = Long.parseLong(columns[7]);
-
-                Long underlier = owner.getProcedures().underlierSelect.execute(symbol);
-                if (null == underlier) {
-                    underlier = owner.getProcedures().sequenceNextVal.execute(Procedures.SQ_UNDERLIERS);
-                    owner.getProcedures().underlierInsert.execute(underlier, symbol);
-                    logger.info("Created underlier: " + symbol + " with id: " + underlier);
-                }
+                Day day = columns.getDay(1, Day.US_FORMAT);
+                double open = columns.getDouble(2);
+                double high = columns.getDouble(3);
+                double low = columns.getDouble(4);
+                double close = columns.getDouble(5);
+                double adjusted = columns.getDouble(6);
+                long volume = columns.getLong(7);
+
+                Long underlier = getUnderlierId(symbol);
 
                 if ((null == prevDay) || (!day.equals(prevDay))) {
                     logger.debug("Importing day: " + day);
                     prevDay = day;
                 }
 
-                if (!owner.getProcedures().stockPriceExists.execute(underlier, day)) {
-                    owner.getProcedures().stockPriceInsert.execute(underlier, day, open, high, low, close, adjusted, volume);
+                if (useCopy && isNewDay(underlier, day)) {
+                    owner.getProcedures().stockPriceCopy.add(underlier, day, open, high, low, close, adjusted, volume);
+                } else {
+                    owner.getProcedures().finishCopies();
+                    if (!owner.getProcedures().stockPriceExists.execute(underlier, day)) {
+                        owner.getProcedures().stockPriceInsert.execute(underlier, day, open, high, low, close, adjusted, volume);
+                    }
                 }
 
                 importedCount++;
@@ -173,6 +184,7 @@ public class ImportHistoricalStockPricesJob implements Runnable {
                 }
             }
 
+            owner.commit();
         } finally {
             if (null != reader) {
                 reader.close();
@@ -180,6 +192,53 @@ public class ImportHistoricalStockPricesJob implements Runnable {
         }
     }
 
+    private Long getUnderlierId(String symbol) {
+        Long underlier = underlierIds.get(symbol);
+        if (underlier != null) {
+            return underlier;
+        }
+
+        owner.getProcedures().finishCopies();
+        underlier = owner.getProcedures().underlierSelect.execute(symbol);
+        if (null == underlier) {
+            underlier = owner.getProcedures().sequenceNextVal.execute(Procedures.SQ_UNDERLIERS);
+            owner.getProcedures().underlierInsert.execute(underlier, symbol);
+            logger.info("Created underlier: " + symbol + " with id: " + underlier);
+        }
+
+        underlierIds.put(symbol, underlier);
+        return underlier;
+    }
+
+    // True if the day is before or after all the stored days of the underlier, extending the range with it
+    private boolean isNewDay(Long underlier, Day day) {
+        Pair<Day, Day> range = storedDays.get(underlier);
+        if (null == range) {
+            owner.getProcedures().finishCopies();
+            range = owner.getProcedures().stockPricesSelectMinMaxDate.execute(underlier);
+            storedDays.put(underlier, range);
+        }
+
+        Day min = range.getKey();
+        Day max = range.getValue();
+        if ((null == min) || (null == max)) {
+            storedDays.put(underlier, new Pair<>(day, day));
+            return true;
+        }
+
+        if (day.compareTo(min) < 0) {
+            storedDays.put(underlier, new Pair<>(day, max));
+            return true;
+        }
+
+        if (day.compareTo(max) > 0) {
+            storedDays.put(underlier, new Pair<>(min, day));
+            return true;
+        }
+
+        return false;
+    }
+
     private void loadUnderliersFromFile(String filename) {
         CsvFileReader reader = null;
         try {
@@ -84,6 +84,10 @@ public class JobsModule implements ApplicationModule {
             return new GeometricBrownianMotionStudyJob(databaseModule);
         } else if (name.equals(OptionPricingStudyJob.class.getSimpleName())) {
             return new OptionPricingStudyJob();
+        } else if (name.equals(ExportColumnarDataJob.class.getSimpleName())) {
+            return new ExportColumnarDataJob(databaseModule);
+        } else if (name.equals(PartitionOptionPricesJob.class.getSimpleName())) {
+            return new PartitionOptionPricesJob(databaseModule);
         }
 
         throw new RuntimeException("Unknown job: " + name);
@@ -5,6 +5,7 @@ import com.aquarians.aqlib.Instrument;
 import com.aquarians.aqlib.Util;
 import com.aquarians.aqlib.math.DefaultProbabilityFitter;
 import com.aquarians.aqlib.math.LinearIterator;
+import com.aquarians.aqlib.math.Normal;
 import com.aquarians.aqlib.math.PriceRecord;
 import com.aquarians.aqlib.models.BlackScholes;
 import com.aquarians.aqlib.models.MonteCarloPricer;
@@ -17,7 +18,6 @@ import com.aquarians.backtester.positions.Portfolio;
 import com.aquarians.backtester.pricing.MonteCarloPricingModel;
 import com.aquarians.backtester.pricing.NormalDistributionModel;
 import com.aquarians.backtester.pricing.PricingModel;
-import org.apache.commons.math3.distribution.NormalDistribution;
 
 import java.util.Iterator;
 import java.util.List;
@@ -41,8 +41,6 @@ public class OptionPricingStudyJob implements Runnable {
         double strike = 100.0;
         boolean isCall = true;
 
-        NormalDistribution std = new NormalDistribution();
-
         DefaultProbabilityFitter forwards = new DefaultProbabilityFitter(SIMULATIONS);
         DefaultProbabilityFitter values = new DefaultProbabilityFitter(SIMULATIONS);
         DefaultProbabilityFitter pnls = new DefaultProbabilityFitter(SIMULATIONS);
@@ -55,7 +53,7 @@ public class OptionPricingStudyJob implements Runnable {
         Iterator<Double> it = new LinearIterator(0.0, 1.0, SIMULATIONS);
         while (it.hasNext()) {
             double probability = Util.limitProbability(it.next());
-            double z = std.inverseCumulativeProbability(probability);
+            double z = Normal.inverseCdf(probability);
 
             // Forward price
             double forward = spot * Math.exp((growth - volatility * volatility * 0.5) * t + volatility * Math.sqrt(t) * z);
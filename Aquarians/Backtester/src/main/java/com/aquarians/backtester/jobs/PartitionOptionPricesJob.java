@@ -0,0 +1,225 @@
+/*
+    MIT License
+
+    Copyright (c) 2020 Mihai Bunea
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+
+package com.aquarians.backtester.jobs;
+
+import com.aquarians.aqlib.Util;
+import com.aquarians.aqlib.database.DbExecute;
+import com.aquarians.backtester.Application;
+import com.aquarians.backtester.database.DatabaseModule;
+import com.aquarians.backtester.database.Procedures;
+import com.aquarians.backtester.database.procedures.OptionPricesMigrate;
+import com.aquarians.backtester.database.records.UnderlierRecord;
+
+import java.sql.Connection;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Converts an unpartitioned option_prices table into the hash partitioned one of database.sql.
+ * The old table is renamed and its rows are copied one underlier at a time by several threads, each underlier
+ * committed on its own. If interrupted, running the job again copies only the underliers still missing.
+ */
+public class PartitionOptionPricesJob implements Runnable {
+
+    private static org.apache.log4j.Logger logger =
+            org.apache.log4j.Logger.getLogger(PartitionOptionPricesJob.class);
+
+    private static final String KIND_TABLE = "r";
+    private static final String KIND_PARTITIONED = "p";
+
+    private final DatabaseModule owner;
+    private final int partitions;
+    private final int threads;
+    private final boolean dropSource;
+    private final Object lock = new Object();
+    private final Deque<UnderlierRecord> pendingUnderliers = new ArrayDeque<>();
+    private final List<UnderlierRecord> failedUnderliers = new ArrayList<>();
+
+    public PartitionOptionPricesJob(DatabaseModule owner) {
+        this.owner = owner;
+        Properties properties = Application.getInstance().getProperties();
+        partitions = Integer.parseInt(properties.getProperty("PartitionOptionPricesJob.Partitions", "16"));
+        threads = Integer.parseInt(properties.getProperty("PartitionOptionPricesJob.Threads", "4"));
+        dropSource = Boolean.parseBoolean(properties.getProperty("PartitionOptionPricesJob.DropSource", "false"));
+    }
+
+    @Override
+    public void run() {
+        logger.info("OPTION PRICES PARTITIONING running");
+        if (!owner.getDialect().supportsPartitions()) {
+            logger.info("Partitions are not supported by the " + owner.getDialect() + " database");
+            return;
+        }
+
+        Procedures procedures = owner.getProcedures();
+        String kind = procedures.tableKindSelect.execute(Procedures.OPTION_PRICES);
+        String sourceKind = procedures.tableKindSelect.execute(OptionPricesMigrate.SOURCE);
+        if (KIND_PARTITIONED.equals(kind) && (null == sourceKind)) {
+            logger.info("Table " + Procedures.OPTION_PRICES + " is already partitioned");
+            return;
+        }
+
+        if (KIND_TABLE.equals(kind)) {
+            if (sourceKind != null) {
+                throw new RuntimeException("Table " + OptionPricesMigrate.SOURCE + " exists, drop or rename it first");
+            }
+
+            createPartitions();
+        } else if (!KIND_PARTITIONED.equals(kind)) {
+            throw new RuntimeException("Unexpected table " + Procedures.OPTION_PRICES + " of kind: " + kind);
+        }
+
+        pendingUnderliers.addAll(procedures.underliersSelectAll.execute());
+        copyParallel();
+
+        // Indexing once at the end is faster than maintaining the index while copying
+        logger.info("Creating index");
+        execute("CREATE INDEX IF NOT EXISTS ix_option_prices_underlier_day ON option_prices(underlier, day)");
+        execute("ANALYZE option_prices");
+
+        if (dropSource) {
+            logger.info("Dropping " + OptionPricesMigrate.SOURCE);
+            execute("DROP TABLE " + OptionPricesMigrate.SOURCE);
+        }
+
+        logger.info("OPTION PRICES PARTITIONING completed");
+    }
+
+    // Renames the old table and creates the partitioned one in its place, in one transaction
+    private void createPartitions() {
+        logger.info("Creating " + partitions + " partitions");
+
+        owner.setAutoCommit(false);
+        try {
+            execute("ALTER TABLE option_prices RENAME TO " + OptionPricesMigrate.SOURCE);
+            execute("ALTER INDEX IF EXISTS ix_option_prices_underlier_day RENAME TO ix_option_prices_source_underlier_day");
+            execute("ALTER INDEX IF EXISTS ix_option_prices_underlier RENAME TO ix_option_prices_source_underlier");
+            execute("CREATE TABLE option_prices " +
+                    "(LIKE " + OptionPricesMigrate.SOURCE + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS, " +
+                    "CONSTRAINT fk_option_prices_underlier FOREIGN KEY(underlier) REFERENCES underliers) " +
+                    "PARTITION BY HASH (underlier)");
+            for (int i = 0; i < partitions; i++) {
+                execute("CREATE TABLE option_prices_p" + i + " PARTITION OF option_prices " +
+                        "FOR VALUES WITH (MODULUS " + partitions + ", REMAINDER " + i + ")");
+            }
+            owner.commit();
+        } catch (Exception ex) {
+            owner.rollback();
+            throw new RuntimeException(ex.getMessage(), ex);
+        } finally {
+            owner.setAutoCommit(true);
+        }
+    }
+
+    private void execute(String sql) {
+        new DbExecute(owner.getProcedures().getConnection(), sql).execute();
+    }
+
+    private void copyParallel() {
+        logger.info("Copying " + pendingUnderliers.size() + " underliers on " + threads + " threads");
+
+        List<Thread> workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    copyWorker();
+                } catch (Exception ex) {
+                    logger.warn(ex.getMessage(), ex);
+                }
+            }, "PARTITION_" + i);
+            workers.add(worker);
+            worker.start();
+        }
+
+        for (Thread worker : workers) {
+            Util.safeJoin(worker);
+        }
+
+        // Left for the next run, so the source isn't dropped
+        int missing = pendingUnderliers.size() + failedUnderliers.size();
+        if (missing > 0) {
+            throw new RuntimeException(missing + " underliers were not copied, run the job again");
+        }
+    }
+
+    private UnderlierRecord takeUnderlier() {
+        synchronized (lock) {
+            return pendingUnderliers.pollFirst();
+        }
+    }
+
+    private void copyWorker() {
+        Connection connection = owner.borrowConnection();
+        Procedures procedures = null;
+        OptionPricesMigrate migrate = null;
+        try {
+            connection.setAutoCommit(false);
+            procedures = new Procedures(connection);
+            migrate = new OptionPricesMigrate(connection);
+
+            UnderlierRecord underlier;
+            while (null != (underlier = takeUnderlier())) {
+                copy(procedures, migrate, underlier);
+            }
+        } catch (Exception ex) {
+            throw new RuntimeException(ex.getMessage(), ex);
+        } finally {
+            if (migrate != null) {
+                migrate.cleanup();
+            }
+
+            if (procedures != null) {
+                procedures.cleanup();
+            }
+
+            owner.releaseConnection(connection);
+        }
+    }
+
+    private void copy(Procedures procedures, OptionPricesMigrate migrate, UnderlierRecord underlier) {
+        try {
+            // Copied by a previous run
+            if (procedures.optionPricesPartitionSelect.execute(underlier.id) != null) {
+                logger.debug("Already copied: " + underlier.code);
+                procedures.commit();
+                return;
+            }
+
+            int rows = migrate.execute(underlier.id);
+            procedures.commit();
+            logger.debug("Copied " + rows + " option prices of " + underlier.code);
+        } catch (Exception ex) {
+            logger.warn("Copying " + underlier.code, ex);
+            procedures.rollback();
+            synchronized (lock) {
+                failedUnderliers.add(underlier);
+            }
+        }
+    }
+
+}
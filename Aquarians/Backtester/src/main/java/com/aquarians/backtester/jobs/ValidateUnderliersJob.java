@@ -28,7 +28,7 @@ import com.aquarians.aqlib.*;
 import com.aquarians.aqlib.math.DefaultProbabilityFitter;
 import com.aquarians.backtester.Application;
 import com.aquarians.backtester.database.DatabaseModule;
-import com.aquarians.backtester.database.records.StockPriceRecord;
+import com.aquarians.backtester.database.procedures.StockPricesSelect;
 import com.aquarians.backtester.database.records.UnderlierRecord;
 
 import java.util.*;
@@ -168,58 +168,82 @@ public class ValidateUnderliersJob implements Runnable {
             }
         }
 
-        List<StockPriceRecord> records = owner.getProcedures().stockPricesSelect.execute(underlier.id, startDay, endDay);
-        if (records.size() < Util.TRADING_DAYS_IN_YEAR) {
+        PriceChecks checks = new PriceChecks();
+        owner.getProcedures().stockPricesSelect.stream(underlier.id, startDay, endDay, checks);
+        if (checks.count < Util.TRADING_DAYS_IN_YEAR) {
             return "not enough data";
         }
 
-        int consecutiveIdenticalPrices = 0;
-        ArrayList<StockPriceRecord> jumps = new ArrayList<>(Util.TRADING_DAYS_IN_WEEK);
+        return checks.error;
+    }
+
+    // Checks the prices as they are streamed, stops reading at the first error once there are enough rows
+    private static final class PriceChecks implements StockPricesSelect.Handler {
+        int count;
+        String error;
+        private int consecutiveIdenticalPrices;
+        private Day prevDay;
+        private double prevClose;
+        private final List<Day> jumps = new ArrayList<>(Util.TRADING_DAYS_IN_WEEK);
+
+        @Override
+        public boolean process(StockPricesSelect.Row row) {
+            count++;
+            if (null == error) {
+                error = check(row);
+            }
 
-        for (int i = 0; i < records.size(); i++) {
-            StockPriceRecord record = records.get(i);
-            StockPriceRecord prevRecord = (i > 0) ? records.get(i - 1) : null;
+            // Keep counting until it's known whether there's enough data
+            return (null == error) || (count < Util.TRADING_DAYS_IN_YEAR);
+        }
+
+        private String check(StockPricesSelect.Row row) {
+            Day day = Day.fromEpochDay(row.epochDay);
+            Day prevDay = this.prevDay;
+            double prevClose = this.prevClose;
+            this.prevDay = day;
+            this.prevClose = row.close;
 
-            // Price is zero
-            if (record.close < Util.ZERO) {
-                return "invalid price: " + Util.format(record.close) + " on day " + record.day;
+            // Price is zero or missing
+            if (!(row.close >= Util.ZERO)) {
+                return "invalid price: " + Util.format(row.close) + " on day " + day;
             }
 
-            if (null == prevRecord) {
-                continue;
+            if (null == prevDay) {
+                return null;
             }
 
             // Price doesn't move
-            if (Math.abs(record.close - prevRecord.close) < Util.ZERO) {
+            if (Math.abs(row.close - prevClose) < Util.ZERO) {
                 consecutiveIdenticalPrices++;
             } else {
                 consecutiveIdenticalPrices = 0;
             }
             if (consecutiveIdenticalPrices > Util.TRADING_DAYS_IN_WEEK) {
-                return "stale data on day " + record.day;
+                return "stale data on day " + day;
             }
 
             // Gaps in the data
-            if (Util.maturity(prevRecord.day, record.day) > Util.TRADING_DAYS_IN_WEEK) {
-                return "gaps in the data on day " + record.day;
+            if (Util.maturity(prevDay, day) > Util.TRADING_DAYS_IN_WEEK) {
+                return "gaps in the data on day " + day;
             }
 
             // Jumps
-            if (Util.ratio(record.close, prevRecord.close) > 1.99) {
-                jumps.add(record);
+            if (Util.ratio(row.close, prevClose) > 1.99) {
+                jumps.add(day);
                 if (jumps.size() == Util.TRADING_DAYS_IN_WEEK) {
-                    StockPriceRecord first = jumps.get(0);
-                    StockPriceRecord last = jumps.get(jumps.size() - 1);
-                    if (Util.maturity(first.day, last.day) < Util.TRADING_DAYS_IN_MONTH) {
-                        return "jumps in the data on day " + record.day;
+                    Day first = jumps.get(0);
+                    Day last = jumps.get(jumps.size() - 1);
+                    if (Util.maturity(first, last) < Util.TRADING_DAYS_IN_MONTH) {
+                        return "jumps in the data on day " + day;
                     }
 
                     jumps.remove(0);
                 }
             }
-        }
 
-        return null;
+            return null;
+        }
     }
 
     private void identifyHolidays() {
@@ -247,25 +271,24 @@ public class ValidateUnderliersJob implements Runnable {
     }
 
     private List<Day> loadHolidays(UnderlierRecord underlier, Set<Day> weekdays) {
-        List<StockPriceRecord> records = owner.getProcedures().stockPricesSelect.execute(underlier.id, startDay, endDay);
-        if (records.size() < 1) {
+        TreeSet<Day> tradeDays = new TreeSet<>();
+        owner.getProcedures().stockPricesSelect.stream(underlier.id, startDay, endDay, row -> {
+            tradeDays.add(Day.fromEpochDay(row.epochDay));
+            return true;
+        });
+        if (tradeDays.isEmpty()) {
             return new ArrayList<>();
         }
 
-        Set<Day> tradeDays = new TreeSet<>();
-        for (StockPriceRecord record : records) {
-            tradeDays.add(record.day);
-        }
-
         int years = endDay.getYear() - startDay.getYear();
         List<Day> holidays = new ArrayList<>((years + 1) * 20);
-        StockPriceRecord first = records.get(0);
-        StockPriceRecord last = records.get(records.size() - 1);
+        Day first = tradeDays.first();
+        Day last = tradeDays.last();
         for (Day weekday : weekdays) {
-            if (weekday.compareTo(first.day) < 0) {
+            if (weekday.compareTo(first) < 0) {
                 continue;
             }
-            if (weekday.compareTo(last.day) > 0) {
+            if (weekday.compareTo(last) > 0) {
                 break;
             }
 
@@ -159,6 +159,36 @@ public abstract class MarketDataControl implements ApplicationModule {
         }
     }
 
+    public void notifyUnderlierEvent(MarketEventListener.MarketEvent event, Day day, UnderlierRecord underlier, DatabaseModule databaseModule) {
+        List<MarketEventListener> listeners = null;
+        synchronized (lock) {
+            listeners = new ArrayList<>(marketEventListeners);
+        }
+
+        for (MarketEventListener listener : listeners) {
+            try {
+                listener.processUnderlierEvent(event, day, underlier, databaseModule);
+            } catch (Exception ex) {
+                logger.warn(ex.getMessage(), ex);
+            }
+        }
+    }
+
+    protected boolean isDayBarrierRequired() {
+        List<MarketEventListener> listeners = null;
+        synchronized (lock) {
+            listeners = new ArrayList<>(marketEventListeners);
+        }
+
+        for (MarketEventListener listener : listeners) {
+            if (listener.requiresDayBarrier()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     @Override
     public String getName() {
         return Application.buildModuleName(NAME);
@@ -24,6 +24,7 @@
 
 package com.aquarians.backtester.marketdata;
 
+import com.aquarians.backtester.marketdata.columnar.ColumnarMarketDataModule;
 import com.aquarians.backtester.marketdata.historical.HistoricalDataControl;
 import com.aquarians.backtester.marketdata.historical.HistoricalMarketDataModule;
 
@@ -44,11 +45,16 @@ public class MarketDataModuleFactory {
             return new HistoricalMarketDataModule(index);
         }
 
+        if (type.equals(ColumnarMarketDataModule.TYPE)) {
+            return new ColumnarMarketDataModule(index);
+        }
+
         throw new RuntimeException("Unknown market data module type: " + type);
     }
 
     public MarketDataControl buildMarketDataControl(String type) {
-        if (type.equals(HistoricalMarketDataModule.TYPE)) {
+        // Same playback, only the source of the market data differs
+        if (type.equals(HistoricalMarketDataModule.TYPE) || type.equals(ColumnarMarketDataModule.TYPE)) {
             return new HistoricalDataControl();
         }
 
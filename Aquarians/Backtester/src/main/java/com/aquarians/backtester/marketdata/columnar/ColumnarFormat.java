@@ -0,0 +1,64 @@
+/*
+    MIT License
+
+    Copyright (c) 2020 Mihai Bunea
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+
+package com.aquarians.backtester.marketdata.columnar;
+
+import java.io.File;
+
+// Layout of the columnar replay store. Each underlier has its own folder holding one file per column.
+// All values are big endian, rows of a day are contiguous and days are in ascending order.
+//
+// days.bin     - the day index, one DAY_RECORD_SIZE record per day:
+//                int epoch day, long first option row, int option row count, double stock close (NaN if none)
+// strike.bin   - double per option row
+// maturity.bin - int epoch day per option row
+// call.bin     - byte per option row, 1 for call and 0 for put
+// bid.bin      - double per option row, NaN if none
+// ask.bin      - double per option row, NaN if none
+// code.bin     - int per option row, line number in codes.txt
+// codes.txt    - the option codes, one per line
+public final class ColumnarFormat {
+
+    public static final String DAYS_FILE = "days.bin";
+    public static final String STRIKE_FILE = "strike.bin";
+    public static final String MATURITY_FILE = "maturity.bin";
+    public static final String CALL_FILE = "call.bin";
+    public static final String BID_FILE = "bid.bin";
+    public static final String ASK_FILE = "ask.bin";
+    public static final String CODE_FILE = "code.bin";
+    public static final String CODES_FILE = "codes.txt";
+
+    public static final int DAY_RECORD_SIZE = 4 + 8 + 4 + 8;
+    public static final int DAY_OFFSET = 0;
+    public static final int FIRST_ROW_OFFSET = 4;
+    public static final int ROW_COUNT_OFFSET = 12;
+    public static final int STOCK_CLOSE_OFFSET = 16;
+
+    private ColumnarFormat() {
+    }
+
+    public static File getUnderlierFolder(File root, String underlierCode) {
+        return new File(root, underlierCode);
+    }
+}
@@ -0,0 +1,156 @@
+/*
+    MIT License
+
+    Copyright (c) 2020 Mihai Bunea
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+
+package com.aquarians.backtester.marketdata.columnar;
+
+import com.aquarians.aqlib.Day;
+import com.aquarians.aqlib.Instrument;
+import com.aquarians.aqlib.Util;
+import com.aquarians.backtester.Application;
+import com.aquarians.backtester.database.records.UnderlierRecord;
+import com.aquarians.backtester.marketdata.historical.HistoricalMarketDataModule;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+// Replays from memory mapped column files (see ColumnarFormat) instead of querying the database
+public class ColumnarMarketDataModule extends HistoricalMarketDataModule {
+
+    private static org.apache.log4j.Logger logger =
+            org.apache.log4j.Logger.getLogger(ColumnarMarketDataModule.class);
+
+    public static final String TYPE = "Columnar";
+
+    private final File folder;
+    // Only accessed from the processing thread. Null value if the underlier has no files.
+    private final Map<Long, ColumnarUnderlierFile> files = new HashMap<>();
+
+    public ColumnarMarketDataModule(int index) {
+        super(index);
+        folder = new File(Application.getInstance().getProperties().getProperty("MarketData.ColumnarFolder", "columnar"));
+    }
+
+    @Override
+    protected void loadInstruments(Day day, UnderlierRecord underlier, List<Instrument> instruments) {
+        ColumnarUnderlierFile file = getFile(underlier);
+        if (null == file) {
+            return;
+        }
+
+        int dayIndex = file.findDay(day);
+        if (dayIndex < 0) {
+            return;
+        }
+
+        double close = file.getStockClose(dayIndex);
+        if (!Double.isNaN(close)) {
+            Instrument stock = new Instrument(Instrument.Type.STOCK, underlier.code, false, null, null);
+            stock.setPrice(close);
+            instruments.add(stock);
+        }
+
+        loadOptions(file, dayIndex, day, instruments);
+    }
+
+    private void loadOptions(ColumnarUnderlierFile file, int dayIndex, Day day, List<Instrument> instruments) {
+        long firstRow = file.getFirstRow(dayIndex);
+        long endRow = firstRow + file.getRowCount(dayIndex);
+
+        Set<Day> allowedTerms = null;
+        if (hasConfiguredTerms()) {
+            Set<Day> allTerms = new TreeSet<>();
+            int lastMaturity = Integer.MIN_VALUE;
+            for (long row = firstRow; row < endRow; row++) {
+                int maturity = file.getMaturity(row);
+                if (maturity != lastMaturity) {
+                    allTerms.add(Day.fromEpochDay(maturity));
+                    lastMaturity = maturity;
+                }
+            }
+
+            allowedTerms = getAllowedTerms(day, allTerms);
+        }
+
+        // Same rules as OptionPriceRecord.buildOption()
+        int epochDay = day.toEpochDay();
+        int lastMaturity = Integer.MIN_VALUE;
+        Day maturity = null;
+        for (long row = firstRow; row < endRow; row++) {
+            // Ignore if expiring today
+            int maturityDay = file.getMaturity(row);
+            if (maturityDay <= epochDay) {
+                continue;
+            }
+
+            // Roll to previous trading day, rows of a maturity are usually together so reuse it
+            if (maturityDay != lastMaturity) {
+                maturity = Day.fromEpochDay(maturityDay).rollToTradingDay(false);
+                lastMaturity = maturityDay;
+            }
+
+            if ((allowedTerms != null) && (!allowedTerms.contains(maturity))) {
+                continue;
+            }
+
+            Instrument instrument = new Instrument(Instrument.Type.OPTION, file.getCode(row), file.isCall(row), maturity, file.getStrike(row));
+            instrument.setBid(toPrice(file.getBid(row)));
+            instrument.setAsk(toPrice(file.getAsk(row)));
+            instruments.add(instrument);
+        }
+    }
+
+    private static double toPrice(double value) {
+        if (value < Util.ZERO) {
+            return Double.NaN;
+        }
+
+        return value;
+    }
+
+    private ColumnarUnderlierFile getFile(UnderlierRecord underlier) {
+        if (files.containsKey(underlier.id)) {
+            return files.get(underlier.id);
+        }
+
+        ColumnarUnderlierFile file = null;
+        File underlierFolder = ColumnarFormat.getUnderlierFolder(folder, underlier.code);
+        if (new File(underlierFolder, ColumnarFormat.DAYS_FILE).exists()) {
+            try {
+                file = new ColumnarUnderlierFile(underlierFolder);
+            } catch (Exception ex) {
+                logger.warn("Mapping files of underlier: " + underlier.code, ex);
+            }
+        } else {
+            logger.warn("No columnar data for underlier: " + underlier.code + " in folder: " + folder.getAbsolutePath());
+        }
+
+        files.put(underlier.id, file);
+        return file;
+    }
+
+}
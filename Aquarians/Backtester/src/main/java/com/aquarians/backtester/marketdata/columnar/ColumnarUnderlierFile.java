@@ -0,0 +1,149 @@
+/*
+    MIT License
+
+    Copyright (c) 2020 Mihai Bunea
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+
+package com.aquarians.backtester.marketdata.columnar;
+
+import com.aquarians.aqlib.Day;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Memory mapped view over the columnar files of one underlier, see ColumnarFormat for the layout
+public class ColumnarUnderlierFile {
+
+    private final MappedColumn days;
+    private final MappedColumn strikes;
+    private final MappedColumn maturities;
+    private final MappedColumn calls;
+    private final MappedColumn bids;
+    private final MappedColumn asks;
+    private final MappedColumn codes;
+    private final String[] codeNames;
+    // Days with all their rows present in every column
+    private final int dayCount;
+
+    public ColumnarUnderlierFile(File folder) {
+        days = new MappedColumn(new File(folder, ColumnarFormat.DAYS_FILE), ColumnarFormat.DAY_RECORD_SIZE);
+        strikes = new MappedColumn(new File(folder, ColumnarFormat.STRIKE_FILE), 8);
+        maturities = new MappedColumn(new File(folder, ColumnarFormat.MATURITY_FILE), 4);
+        calls = new MappedColumn(new File(folder, ColumnarFormat.CALL_FILE), 1);
+        bids = new MappedColumn(new File(folder, ColumnarFormat.BID_FILE), 8);
+        asks = new MappedColumn(new File(folder, ColumnarFormat.ASK_FILE), 8);
+        codes = new MappedColumn(new File(folder, ColumnarFormat.CODE_FILE), 4);
+        codeNames = loadCodes(new File(folder, ColumnarFormat.CODES_FILE));
+
+        // The day index is written last, but an interrupted append could still leave it ahead of a column
+        long rows = Math.min(Math.min(Math.min(strikes.size(), maturities.size()), Math.min(calls.size(), bids.size())),
+                Math.min(asks.size(), codes.size()));
+        int count = (int) days.size();
+        while ((count > 0) && (getFirstRow(count - 1) + getRowCount(count - 1) > rows)) {
+            count--;
+        }
+        dayCount = count;
+    }
+
+    private static String[] loadCodes(File file) {
+        List<String> names = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while (null != (line = reader.readLine())) {
+                names.add(line);
+            }
+        } catch (Exception ex) {
+            throw new RuntimeException(ex.getMessage(), ex);
+        }
+
+        return names.toArray(new String[names.size()]);
+    }
+
+    public int getDayCount() {
+        return dayCount;
+    }
+
+    // Position of the day in the index, -1 if not found
+    public int findDay(Day day) {
+        int epochDay = day.toEpochDay();
+        int low = 0;
+        int high = dayCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int value = getEpochDay(middle);
+            if (value < epochDay) {
+                low = middle + 1;
+            } else if (value > epochDay) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+
+        return -1;
+    }
+
+    public int getEpochDay(int dayIndex) {
+        return days.getInt(dayIndex, ColumnarFormat.DAY_OFFSET);
+    }
+
+    public long getFirstRow(int dayIndex) {
+        return days.getLong(dayIndex, ColumnarFormat.FIRST_ROW_OFFSET);
+    }
+
+    public int getRowCount(int dayIndex) {
+        return days.getInt(dayIndex, ColumnarFormat.ROW_COUNT_OFFSET);
+    }
+
+    // NaN if no stock price that day
+    public double getStockClose(int dayIndex) {
+        return days.getDouble(dayIndex, ColumnarFormat.STOCK_CLOSE_OFFSET);
+    }
+
+    public double getStrike(long row) {
+        return strikes.getDouble(row);
+    }
+
+    public int getMaturity(long row) {
+        return maturities.getInt(row);
+    }
+
+    public boolean isCall(long row) {
+        return calls.getByte(row) != 0;
+    }
+
+    public double getBid(long row) {
+        return bids.getDouble(row);
+    }
+
+    public double getAsk(long row) {
+        return asks.getDouble(row);
+    }
+
+    public String getCode(long row) {
+        return codeNames[codes.getInt(row)];
+    }
+}
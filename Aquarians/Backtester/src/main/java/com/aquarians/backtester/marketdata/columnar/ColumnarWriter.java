@@ -0,0 +1,255 @@
+/*
+    MIT License
+
+    Copyright (c) 2020 Mihai Bunea
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+
+package com.aquarians.backtester.marketdata.columnar;
+
+import com.aquarians.aqlib.Day;
+import com.aquarians.backtester.database.records.OptionPriceRecord;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Appends days to the columnar files of one underlier, see ColumnarFormat for the layout.
+// The day index is written last on flush, so an interrupted export leaves the previously flushed days readable.
+public class ColumnarWriter {
+
+    private final File folder;
+    private final Map<String, Integer> codeIndexes = new HashMap<>();
+    private final DataOutputStream strikes;
+    private final DataOutputStream maturities;
+    private final DataOutputStream calls;
+    private final DataOutputStream bids;
+    private final DataOutputStream asks;
+    private final DataOutputStream codes;
+    private final BufferedOutputStream codeNames;
+    // Day records not flushed yet
+    private final ByteArrayOutputStream pendingDays = new ByteArrayOutputStream();
+    private final DataOutputStream pendingDaysOutput = new DataOutputStream(pendingDays);
+
+    private Integer lastEpochDay;
+    private long rowCount;
+
+    public ColumnarWriter(File folder) {
+        this.folder = folder;
+
+        try {
+            if (!folder.exists() && !folder.mkdirs()) {
+                throw new RuntimeException("Can't create folder: " + folder.getAbsolutePath());
+            }
+
+            recover();
+
+            strikes = openColumn(ColumnarFormat.STRIKE_FILE);
+            maturities = openColumn(ColumnarFormat.MATURITY_FILE);
+            calls = openColumn(ColumnarFormat.CALL_FILE);
+            bids = openColumn(ColumnarFormat.BID_FILE);
+            asks = openColumn(ColumnarFormat.ASK_FILE);
+            codes = openColumn(ColumnarFormat.CODE_FILE);
+            codeNames = new BufferedOutputStream(new FileOutputStream(new File(folder, ColumnarFormat.CODES_FILE), true));
+        } catch (RuntimeException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new RuntimeException(ex.getMessage(), ex);
+        }
+    }
+
+    // Drops whatever an interrupted export wrote past the last complete day
+    private void recover() throws Exception {
+        File daysFile = new File(folder, ColumnarFormat.DAYS_FILE);
+        try (RandomAccessFile days = new RandomAccessFile(daysFile, "rw")) {
+            long count = days.length() / ColumnarFormat.DAY_RECORD_SIZE;
+            days.setLength(count * ColumnarFormat.DAY_RECORD_SIZE);
+            if (count > 0) {
+                days.seek((count - 1) * ColumnarFormat.DAY_RECORD_SIZE);
+                lastEpochDay = days.readInt();
+                long firstRow = days.readLong();
+                int rows = days.readInt();
+                rowCount = firstRow + rows;
+            }
+        }
+
+        truncate(ColumnarFormat.STRIKE_FILE, rowCount * 8);
+        truncate(ColumnarFormat.MATURITY_FILE, rowCount * 4);
+        truncate(ColumnarFormat.CALL_FILE, rowCount);
+        truncate(ColumnarFormat.BID_FILE, rowCount * 8);
+        truncate(ColumnarFormat.ASK_FILE, rowCount * 8);
+        truncate(ColumnarFormat.CODE_FILE, rowCount * 4);
+
+        File codesFile = new File(folder, ColumnarFormat.CODES_FILE);
+        if (codesFile.exists()) {
+            byte[] content = Files.readAllBytes(codesFile.toPath());
+            List<String> lines = new ArrayList<>();
+            int start = 0;
+            for (int i = 0; i < content.length; i++) {
+                if (content[i] == '\n') {
+                    lines.add(new String(content, start, i - start, StandardCharsets.UTF_8));
+                    start = i + 1;
+                }
+            }
+
+            // Partially written code at the end
+            if (start < content.length) {
+                try (RandomAccessFile file = new RandomAccessFile(codesFile, "rw")) {
+                    file.setLength(start);
+                }
+            }
+
+            for (String line : lines) {
+                codeIndexes.put(line, codeIndexes.size());
+            }
+        }
+    }
+
+    private void truncate(String name, long length) throws Exception {
+        File file = new File(folder, name);
+        if (!file.exists()) {
+            return;
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            if (raf.length() > length) {
+                raf.setLength(length);
+            }
+        }
+    }
+
+    private DataOutputStream openColumn(String name) throws Exception {
+        return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(new File(folder, name), true), 1 << 16));
+    }
+
+    // Last day written, null if none
+    public Day getLastDay() {
+        return (lastEpochDay != null) ? Day.fromEpochDay(lastEpochDay) : null;
+    }
+
+    // Days must come in ascending order. Stock close can be null.
+    public void appendDay(Day day, Double stockClose, List<OptionPriceRecord> options) {
+        int epochDay = day.toEpochDay();
+        if ((lastEpochDay != null) && (epochDay <= lastEpochDay)) {
+            throw new RuntimeException("Day " + day + " not after last day " + getLastDay() + " in " + folder.getAbsolutePath());
+        }
+
+        // Keep the rows of a maturity together, the reader takes advantage of it
+        List<OptionPriceRecord> sorted = new ArrayList<>(options);
+        Collections.sort(sorted, (left, right) -> {
+            int result = left.maturity.compareTo(right.maturity);
+            if (result != 0) {
+                return result;
+            }
+
+            result = Double.compare(left.strike, right.strike);
+            if (result != 0) {
+                return result;
+            }
+
+            return Boolean.compare(right.is_call, left.is_call);
+        });
+
+        try {
+            for (OptionPriceRecord record : sorted) {
+                strikes.writeDouble(record.strike);
+                maturities.writeInt(record.maturity.toEpochDay());
+                calls.writeByte(record.is_call ? 1 : 0);
+                bids.writeDouble((record.bid != null) ? record.bid : Double.NaN);
+                asks.writeDouble((record.ask != null) ? record.ask : Double.NaN);
+                codes.writeInt(getCodeIndex(record.code));
+            }
+
+            pendingDaysOutput.writeInt(epochDay);
+            pendingDaysOutput.writeLong(rowCount);
+            pendingDaysOutput.writeInt(sorted.size());
+            pendingDaysOutput.writeDouble((stockClose != null) ? stockClose : Double.NaN);
+        } catch (Exception ex) {
+            throw new RuntimeException(ex.getMessage(), ex);
+        }
+
+        rowCount += sorted.size();
+        lastEpochDay = epochDay;
+    }
+
+    private int getCodeIndex(String code) throws Exception {
+        Integer index = codeIndexes.get(code);
+        if (null == index) {
+            index = codeIndexes.size();
+            codeIndexes.put(code, index);
+            codeNames.write((code + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+
+        return index;
+    }
+
+    public void flush() {
+        try {
+            strikes.flush();
+            maturities.flush();
+            calls.flush();
+            bids.flush();
+            asks.flush();
+            codes.flush();
+            codeNames.flush();
+
+            // The columns are complete, now the days can point to them
+            if (pendingDays.size() > 0) {
+                try (FileOutputStream days = new FileOutputStream(new File(folder, ColumnarFormat.DAYS_FILE), true)) {
+                    pendingDays.writeTo(days);
+                }
+                pendingDays.reset();
+            }
+        } catch (Exception ex) {
+            throw new RuntimeException(ex.getMessage(), ex);
+        }
+    }
+
+    public void close() {
+        try {
+            flush();
+        } finally {
+            closeQuietly(strikes);
+            closeQuietly(maturities);
+            closeQuietly(calls);
+            closeQuietly(bids);
+            closeQuietly(asks);
+            closeQuietly(codes);
+            closeQuietly(codeNames);
+        }
+    }
+
+    private static void closeQuietly(java.io.Closeable stream) {
+        try {
+            stream.close();
+        } catch (Exception ignored) {
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+    MIT License
+
+    Copyright (c) 2020 Mihai Bunea
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+
+package com.aquarians.backtester.marketdata.columnar;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+// Read-only memory mapping of a column file. A single buffer can't exceed 2 GB so large files are mapped in segments.
+public class MappedColumn {
+
+    private static final long SEGMENT_SIZE = 1L << 30;
+
+    private final int elementSize;
+    private final long size;
+    // Whole elements per segment, so that an element never spans two segments
+    private final long segmentRows;
+    private final MappedByteBuffer[] segments;
+
+    public MappedColumn(File file, int elementSize) {
+        this.elementSize = elementSize;
+        segmentRows = SEGMENT_SIZE / elementSize;
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            FileChannel channel = raf.getChannel();
+            // Ignore a partial element left by an interrupted append
+            size = channel.size() / elementSize;
+
+            int count = (int) ((size + segmentRows - 1) / segmentRows);
+            segments = new MappedByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+                long rows = Math.min(segmentRows, size - i * segmentRows);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, i * segmentRows * elementSize, rows * elementSize);
+            }
+        } catch (Exception ex) {
+            throw new RuntimeException(ex.getMessage(), ex);
+        }
+    }
+
+    // Number of elements
+    public long size() {
+        return size;
+    }
+
+    private MappedByteBuffer segment(long row) {
+        return segments[(int) (row / segmentRows)];
+    }
+
+    private int position(long row, int offset) {
+        return (int) (row % segmentRows) * elementSize + offset;
+    }
+
+    public double getDouble(long row) {
+        return segment(row).getDouble(position(row, 0));
+    }
+
+    public int getInt(long row) {
+        return segment(row).getInt(position(row, 0));
+    }
+
+    public byte getByte(long row) {
+        return segment(row).get(position(row, 0));
+    }
+
+    // Reads a field of a fixed size record
+    public int getInt(long row, int offset) {
+        return segment(row).getInt(position(row, offset));
+    }
+
+    public long getLong(long row, int offset) {
+        return segment(row).getLong(position(row, offset));
+    }
+
+    public double getDouble(long row, int offset) {
+        return segment(row).getDouble(position(row, offset));
+    }
+}
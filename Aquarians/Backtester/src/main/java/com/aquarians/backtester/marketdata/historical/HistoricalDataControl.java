@@ -32,7 +32,10 @@ import com.aquarians.backtester.marketdata.MarketDataControl;
 import sun.security.krb5.internal.APRep;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -52,13 +55,52 @@ public class HistoricalDataControl extends MarketDataControl implements GuiDataC
     private boolean nextRequested;
     private boolean stopRequested;
     private List<HistoricalMarketDataModule> modules = new ArrayList<>();
-    private int waitingCount;
     private Listener listener;
 
+    // Work queue shared by the market data modules, each takes the next task when done with the previous one
+    private final LinkedList<DispatchTask> tasks = new LinkedList<>();
+    // Tasks queued or being processed
+    private int pendingTasks;
+
+    // Playback without day barrier: how many underliers still have to process each day
+    private List<Day> days = new ArrayList<>();
+    private int[] remainingPerDay;
+    private int completedDays;
+    // Last day played by each underlier, so a stopped playback resumes every underlier from its own next day
+    private final Map<Long, Day> playedDays = new HashMap<>();
+
+    // Prefetch: one query per underlier for a window of days instead of a query per day
+    private final boolean prefetch;
+    private final int prefetchFetchSize;
+    private final int prefetchDays;
+    private final Map<Long, UnderlierPrefetch> prefetches = new HashMap<>();
+
+    // Replay given day for given underlier
+    public static final class DispatchTask {
+        public final UnderlierRecord underlier;
+        public final Day day;
+        // Position in the playback days if underliers advance independently, negative when under day barrier
+        final int dayIndex;
+
+        DispatchTask(UnderlierRecord underlier, Day day, int dayIndex) {
+            this.underlier = underlier;
+            this.day = day;
+            this.dayIndex = dayIndex;
+        }
+
+        public boolean isIndependent() {
+            return dayIndex >= 0;
+        }
+    }
+
     public HistoricalDataControl() {
         startDay = new Day(properties.getProperty("MarketData.StartDay"));
         endDay = new Day(properties.getProperty("MarketData.EndDay"));
         currentDay = startDay;
+        prefetch = Boolean.parseBoolean(properties.getProperty("MarketData.Prefetch", "false"));
+        prefetchFetchSize = Integer.parseInt(properties.getProperty("MarketData.PrefetchFetchSize", "10000"));
+        prefetchDays = Integer.parseInt(properties.getProperty("MarketData.PrefetchDays", "5"));
+        logger.info("Prefetch: " + prefetch + " fetch size: " + prefetchFetchSize + " days: " + prefetchDays);
         processorThread = new Thread(new Runnable() {
             @Override
             public void run() {
@@ -131,6 +173,10 @@ public class HistoricalDataControl extends MarketDataControl implements GuiDataC
 
     public void setCurrentDay(Day currentDay) {
         synchronized (lock) {
+            // Moved by hand, all underliers play from there
+            if (!currentDay.equals(this.currentDay)) {
+                playedDays.clear();
+            }
             this.currentDay = currentDay;
         }
     }
@@ -197,19 +243,84 @@ public class HistoricalDataControl extends MarketDataControl implements GuiDataC
 
     private void iterateDays() {
         if (currentDay.equals(startDay)) {
+            synchronized (lock) {
+                playedDays.clear();
+            }
             notifyMarketEvent(MarketEventListener.MarketEvent.StartOfBatch, currentDay);
         }
 
-        boolean first = true;
-        while (hasMoreDays()) {
-            // Increment day
+        List<Day> days = new ArrayList<>();
+        for (Day day = currentDay.ensureTradingDay(); day.compareTo(endDay) <= 0; day = day.nextTradingDay()) {
+            days.add(day);
+        }
+
+        boolean completed = false;
+        if (days.size() > 0) {
+            // Underliers are independent unless somebody (like group capital allocation) needs them in lockstep
+            if (getPlaybackMode().equals(PlaybackMode.SingleStep) || isDayBarrierRequired()) {
+                logger.info("Playing " + days.size() + " days with day barrier");
+                completed = iterateSynchronizedDays(days);
+            } else {
+                logger.info("Playing " + days.size() + " days without day barrier");
+                completed = iterateIndependentDays(days);
+            }
+        }
+
+        // Next playback might start from another day, drop what was read ahead
+        closePrefetches();
+
+        if (completed) {
+            notifyMarketEvent(MarketEventListener.MarketEvent.EndOfBatch, currentDay);
+        }
+    }
+
+    public boolean isPrefetch() {
+        return prefetch;
+    }
+
+    // Created on first use, reads its windows on connections from the pool
+    public UnderlierPrefetch getPrefetch(UnderlierRecord underlier) {
+        synchronized (lock) {
+            UnderlierPrefetch prefetch = prefetches.get(underlier.id);
+            if (prefetch != null) {
+                return prefetch;
+            }
+        }
+
+        // An underlier has a single day in flight, nobody else can be creating it now
+        UnderlierPrefetch prefetch = new UnderlierPrefetch(databaseModule, underlier, endDay, prefetchFetchSize, prefetchDays);
+        synchronized (lock) {
+            prefetches.put(underlier.id, prefetch);
+        }
+
+        return prefetch;
+    }
+
+    private void closePrefetches() {
+        List<UnderlierPrefetch> closed;
+        synchronized (lock) {
+            closed = new ArrayList<>(prefetches.values());
+            prefetches.clear();
+        }
+
+        for (UnderlierPrefetch prefetch : closed) {
+            try {
+                prefetch.close();
+            } catch (Exception ex) {
+                logger.warn("Closing prefetch for underlier: " + prefetch.getUnderlier().code, ex);
+            }
+        }
+    }
+
+    private boolean iterateSynchronizedDays(List<Day> days) {
+        for (Day day : days) {
             synchronized (lock) {
-                if (!first) {
-                    currentDay = currentDay.nextTradingDay();
-                } else {
-                    first = false;
+                if (stopRequested || shutdownRequested) {
+                    return false;
                 }
 
+                currentDay = day;
+
                 // Notify running
                 if (null != listener) {
                     listener.playbackRunning(currentDay);
@@ -217,72 +328,134 @@ public class HistoricalDataControl extends MarketDataControl implements GuiDataC
             }
 
             // Day starts for all underliers
-            notifyMarketEvent(MarketEventListener.MarketEvent.StartOfDay, currentDay);
+            notifyMarketEvent(MarketEventListener.MarketEvent.StartOfDay, day);
 
             // Dispatch market data for each underlier on this day
-            dispatch();
+            dispatch(day);
 
             // Day ends for all underliers
-            notifyMarketEvent(MarketEventListener.MarketEvent.EndOfDay, currentDay);
+            notifyMarketEvent(MarketEventListener.MarketEvent.EndOfDay, day);
         }
 
-        if (currentDay.equals(endDay)) {
-            notifyMarketEvent(MarketEventListener.MarketEvent.EndOfBatch, currentDay);
-        }
+        return !hasStopRequest();
     }
 
-    private boolean hasMoreDays() {
-        // Check if we reached end of playback or were signalled to stop
-        synchronized (lock) {
-            return !(stopRequested || shutdownRequested || (currentDay.compareTo(endDay) > 0));
-        }
-    }
+    private void dispatch(Day day) {
+        logger.debug("Play day: " + day);
 
-    private void dispatch() {
-        logger.debug("Play day: " + currentDay);
+        // In stepping (debug) mode one batch is as large as the number of threads, otherwise the whole day
+        // is queued and each thread takes the next underlier as soon as it's done with the previous one
+        int batchSize = playbackMode.equals(PlaybackMode.SingleStep) ? modules.size() : underliers.size();
 
         // Forall underliers
-        for (int i = 0; i < underliers.size(); i += modules.size()) {
-            // Reset the flag used by modules to acknowledge having processed the data
+        for (int i = 0; i < underliers.size(); i += batchSize) {
             synchronized (lock) {
                 if (stopRequested || shutdownRequested) {
                     break;
                 }
-                waitingCount = modules.size();
-                logger.debug("Waiting count: " + waitingCount);
+
+                int end = Math.min(i + batchSize, underliers.size());
+                for (int pos = i; pos < end; pos++) {
+                    // Already played before a stop
+                    UnderlierRecord underlier = underliers.get(pos);
+                    if (isPlayed(underlier, day)) {
+                        continue;
+                    }
+                    tasks.add(new DispatchTask(underlier, day, -1));
+                    pendingTasks++;
+                }
+                logger.debug("Pending tasks: " + pendingTasks);
+                lock.notifyAll();
+
+                // Wait until the modules have processed all the tasks
+                waitPendingTasks();
+            }
+
+            // In stepping (debug) mode, wait for user input before proceeding further
+            if (playbackMode.equals(PlaybackMode.SingleStep)) {
+                waitRequestToContinue();
             }
+        } // End forall underliers
+    }
 
-            // Dispatch signal to modules to process the current day, splitting the underliers among them
-            for (int k = 0; k < modules.size(); k++) {
-                HistoricalMarketDataModule module = modules.get(k);
-                int pos = i + k;
+    // Each underlier walks through the days on its own, a slow one doesn't hold the others
+    private boolean iterateIndependentDays(List<Day> days) {
+        synchronized (lock) {
+            this.days = days;
+            remainingPerDay = new int[days.size()];
+            completedDays = 0;
+
+            // After a stop each underlier resumes from its own next day, the faster ones don't play days twice
+            for (UnderlierRecord underlier : underliers) {
+                int first = 0;
+                while ((first < days.size()) && isPlayed(underlier, days.get(first))) {
+                    first++;
+                }
 
-                // At the very end of the list we may have more processing threads than remaining underliers to process
-                if (pos >= underliers.size()) {
-                    finishedDispatching();
-                    continue;
+                for (int index = first; index < days.size(); index++) {
+                    remainingPerDay[index]++;
                 }
 
-                UnderlierRecord underlier = underliers.get(pos);
-                try {
-                    module.requestDispatch(currentDay, underlier);
-                } catch (Exception ex) {
-                    logger.warn(ex.getMessage(), ex);
+                if (first < days.size()) {
+                    tasks.add(new DispatchTask(underlier, days.get(first), first));
+                    pendingTasks++;
                 }
             }
+            lock.notifyAll();
 
-            // Wait until all modules have processed the signal
-            synchronized (lock) {
-                while (!((waitingCount <= 0) || stopRequested || shutdownRequested)) {
-                    Util.safeWait(lock);
-                }
+            // Wait until all the underliers reach the end (or are stopped)
+            waitPendingTasks();
+            advanceCompletedDays();
+
+            // On stop resume from the first day not completed by all underliers, the others skip what they played
+            boolean completed = (completedDays == days.size());
+            if (!completed) {
+                currentDay = days.get(completedDays);
             }
 
-            // In stepping (debug) mode, wait for user input before proceeding further
-            if (playbackMode.equals(PlaybackMode.SingleStep)) {
-                waitRequestToContinue();
+            this.days = new ArrayList<>();
+            remainingPerDay = null;
+            return completed;
+        }
+    }
+
+    // Called with the lock held
+    private void waitPendingTasks() {
+        while (!((pendingTasks <= 0) || stopRequested || shutdownRequested)) {
+            Util.safeWait(lock);
+        }
+
+        // Drop what wasn't started, wait for what's running to finish
+        pendingTasks -= tasks.size();
+        tasks.clear();
+        while (!((pendingTasks <= 0) || shutdownRequested)) {
+            Util.safeWait(lock);
+        }
+    }
+
+    // Called with the lock held
+    private boolean isPlayed(UnderlierRecord underlier, Day day) {
+        Day played = playedDays.get(underlier.id);
+        return (played != null) && (day.compareTo(played) <= 0);
+    }
+
+    // Called with the lock held
+    private void advanceCompletedDays() {
+        while ((completedDays < days.size()) && (remainingPerDay[completedDays] <= 0)) {
+            currentDay = days.get(completedDays);
+            completedDays++;
+
+            // Notify running
+            if (null != listener) {
+                listener.playbackRunning(currentDay);
             }
-        } // End forall underliers
+        }
+    }
+
+    private boolean hasStopRequest() {
+        synchronized (lock) {
+            return stopRequested || shutdownRequested;
+        }
     }
 
     private void waitRequestToContinue() {
@@ -294,10 +467,45 @@ public class HistoricalDataControl extends MarketDataControl implements GuiDataC
         }
     }
 
-    public void finishedDispatching() {
+    // Blocks until there's something to process, returns null when the module should terminate
+    public DispatchTask takeTask(HistoricalMarketDataModule module) {
+        synchronized (lock) {
+            while (tasks.isEmpty() && !(shutdownRequested || module.isShutdownRequested())) {
+                Util.safeWait(lock);
+            }
+
+            if (shutdownRequested || module.isShutdownRequested()) {
+                return null;
+            }
+
+            return tasks.removeFirst();
+        }
+    }
+
+    public void finishedDispatching(DispatchTask task) {
+        synchronized (lock) {
+            playedDays.put(task.underlier.id, task.day);
+
+            if (task.isIndependent()) {
+                remainingPerDay[task.dayIndex]--;
+                advanceCompletedDays();
+
+                // Queue the next day of this underlier at the back, so all underliers get their turn
+                int nextIndex = task.dayIndex + 1;
+                if ((nextIndex < days.size()) && !(stopRequested || shutdownRequested)) {
+                    tasks.add(new DispatchTask(task.underlier, days.get(nextIndex), nextIndex));
+                    lock.notifyAll();
+                    return;
+                }
+            }
+
+            pendingTasks--;
+            lock.notifyAll();
+        }
+    }
+
+    public void wakeUp() {
         synchronized (lock) {
-            waitingCount--;
-            logger.debug("Waiting count: " + waitingCount);
             lock.notifyAll();
         }
     }
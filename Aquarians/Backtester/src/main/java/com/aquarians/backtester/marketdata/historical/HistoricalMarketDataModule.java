@@ -30,6 +30,7 @@ import com.aquarians.aqlib.Period;
 import com.aquarians.aqlib.Util;
 import com.aquarians.backtester.Application;
 import com.aquarians.backtester.database.DatabaseModule;
+import com.aquarians.backtester.database.Procedures;
 import com.aquarians.backtester.database.records.OptionPriceRecord;
 import com.aquarians.backtester.database.records.StockPriceRecord;
 import com.aquarians.backtester.database.records.UnderlierRecord;
@@ -37,6 +38,7 @@ import com.aquarians.backtester.marketdata.MarketDataControl;
 import com.aquarians.backtester.marketdata.MarketDataListener;
 import com.aquarians.backtester.marketdata.MarketDataModule;
 
+import java.sql.Connection;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
@@ -52,11 +54,27 @@ public class HistoricalMarketDataModule extends MarketDataModule {
     private final Thread processorThread;
     private final DatabaseModule databaseModule;
     private boolean shutdownRequested;
-    private boolean dispatchRequested;
-    private Day day;
-    private UnderlierRecord underlier;
     private final HistoricalDataControl dataControl;
 
+    // Pipelined mode: a loader thread fills a ring of buffers with the next days while the processor thread
+    // runs pricing and positions on the current one. Zero depth means load and process on the same thread.
+    private final int pipelineDepth;
+    private final Thread loaderThread;
+    private final LoadBuffer[] buffers;
+    // First buffer ready for processing and how many are ready
+    private int bufferHead;
+    private int bufferCount;
+    private boolean loaderFinished;
+    // The database module belongs to the processor thread (pricing and positions use it), the loader has its own
+    private Connection loaderConnection;
+    private Procedures loaderProcedures;
+
+    // Reused from one day to the next, listeners don't keep the instruments list
+    private static final class LoadBuffer {
+        HistoricalDataControl.DispatchTask task;
+        final List<Instrument> instruments = new ArrayList<>();
+    }
+
     public HistoricalMarketDataModule(int index) {
         super(index);
         processorThread = new Thread(new Runnable() {
@@ -70,6 +88,29 @@ public class HistoricalMarketDataModule extends MarketDataModule {
             }
         }, "MDATA_" + index);
 
+        pipelineDepth = Integer.parseInt(Application.getInstance().getProperties().getProperty("MarketData.PipelineDepth", "0"));
+        buffers = new LoadBuffer[pipelineDepth];
+        for (int i = 0; i < pipelineDepth; i++) {
+            buffers[i] = new LoadBuffer();
+        }
+
+        if (pipelineDepth > 0) {
+            loaderThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        load();
+                    } catch (Exception ex) {
+                        logger.warn(ex.getMessage(), ex);
+                    } finally {
+                        loaderFinished();
+                    }
+                }
+            }, "MDLOAD_" + index);
+        } else {
+            loaderThread = null;
+        }
+
         Application app = Application.getInstance();
         databaseModule = (DatabaseModule) app.getModule(Application.buildModuleName(DatabaseModule.NAME, index));
 
@@ -79,13 +120,30 @@ public class HistoricalMarketDataModule extends MarketDataModule {
 
     @Override
     public void init() {
+        if (loaderThread != null) {
+            loaderThread.start();
+        }
         processorThread.start();
     }
 
     @Override
     public void cleanup() {
         requestShutdown();
+        if (loaderThread != null) {
+            Util.safeJoin(loaderThread);
+        }
         Util.safeJoin(processorThread);
+
+        try {
+            if (loaderProcedures != null) {
+                loaderProcedures.cleanup();
+            }
+            if (loaderConnection != null) {
+                databaseModule.releaseConnection(loaderConnection);
+            }
+        } catch (Exception ex) {
+            logger.warn(ex.getMessage(), ex);
+        }
     }
 
     public void requestShutdown() {
@@ -93,47 +151,147 @@ public class HistoricalMarketDataModule extends MarketDataModule {
             shutdownRequested = true;
             lock.notifyAll();
         }
+
+        // Might be waiting for work from the controller
+        dataControl.wakeUp();
     }
 
-    public void requestDispatch(Day day, UnderlierRecord underlier) {
+    boolean isShutdownRequested() {
         synchronized (lock) {
-            this.day = day;
-            this.underlier = underlier;
-            dispatchRequested = true;
-            lock.notifyAll();
+            return shutdownRequested;
         }
     }
 
     private void process() {
+        if (pipelineDepth > 0) {
+            processPipelined();
+            return;
+        }
+
+        while (true) {
+            // Take the next (underlier, day) from the queue shared with the other modules
+            HistoricalDataControl.DispatchTask task = dataControl.takeTask(this);
+            if (null == task) {
+                break;
+            }
+
+            try {
+                processTask(task);
+            } catch (Exception ex) {
+                logger.warn("Dispatching day: " + task.day + " for underlier: " + task.underlier.code, ex);
+            }
+
+            // Notify controller that we finished processing the day
+            dataControl.finishedDispatching(task);
+        }
+    }
+
+    // Loader stage: takes the tasks and fills the buffers, waits while all of them are full
+    private void load() {
+        while (true) {
+            HistoricalDataControl.DispatchTask task = dataControl.takeTask(this);
+            if (null == task) {
+                break;
+            }
+
+            LoadBuffer buffer = null;
+            synchronized (lock) {
+                while ((bufferCount == buffers.length) && !shutdownRequested) {
+                    Util.safeWait(lock);
+                }
+
+                // Not visible to the processor until counted
+                if (!shutdownRequested) {
+                    buffer = buffers[(bufferHead + bufferCount) % buffers.length];
+                }
+            }
+
+            // Outside our lock, the controller takes its own lock and then ours
+            if (null == buffer) {
+                dataControl.finishedDispatching(task);
+                break;
+            }
+
+            buffer.task = task;
+            buffer.instruments.clear();
+            try {
+                loadInstruments(task.day, task.underlier, buffer.instruments);
+            } catch (Exception ex) {
+                logger.warn("Loading day: " + task.day + " for underlier: " + task.underlier.code, ex);
+            }
+
+            synchronized (lock) {
+                bufferCount++;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private void loaderFinished() {
+        synchronized (lock) {
+            loaderFinished = true;
+            lock.notifyAll();
+        }
+    }
+
+    // Processor stage: dispatches the buffers in the order they were loaded
+    private void processPipelined() {
         while (true) {
-            Day day;
-            UnderlierRecord underlier;
+            LoadBuffer buffer;
             synchronized (lock) {
-                while (!(dispatchRequested || shutdownRequested)) {
+                while ((0 == bufferCount) && !loaderFinished) {
                     Util.safeWait(lock);
                 }
 
-                if (shutdownRequested) {
+                if (0 == bufferCount) {
                     break;
                 }
 
-                day = this.day;
-                underlier = this.underlier;
-                dispatchRequested = false;
+                buffer = buffers[bufferHead];
             }
 
-            dispatchUpdate(day, underlier);
+            HistoricalDataControl.DispatchTask task = buffer.task;
+            if (!isShutdownRequested()) {
+                try {
+                    processTask(task, buffer.instruments);
+                } catch (Exception ex) {
+                    logger.warn("Dispatching day: " + task.day + " for underlier: " + task.underlier.code, ex);
+                }
+            }
 
-            // Notify controller that we finished processing the day
-            dataControl.finishedDispatching();
+            // Release the buffer before telling the controller, it might queue the next day of the underlier
+            synchronized (lock) {
+                buffer.task = null;
+                buffer.instruments.clear();
+                bufferHead = (bufferHead + 1) % buffers.length;
+                bufferCount--;
+                lock.notifyAll();
+            }
+
+            dataControl.finishedDispatching(task);
         }
     }
 
-    private void dispatchUpdate(Day day, UnderlierRecord underlier) {
-        // Load data from the database
+    private void processTask(HistoricalDataControl.DispatchTask task) {
         List<Instrument> instruments = new ArrayList<>();
-        loadStock(day, underlier, instruments);
-        loadOptions(day, underlier, instruments);
+        loadInstruments(task.day, task.underlier, instruments);
+        processTask(task, instruments);
+    }
+
+    private void processTask(HistoricalDataControl.DispatchTask task, List<Instrument> instruments) {
+        // Without day barrier the start and end of day are per underlier
+        if (task.isIndependent()) {
+            dataControl.notifyUnderlierEvent(MarketEventListener.MarketEvent.StartOfDay, task.day, task.underlier, databaseModule);
+        }
+
+        dispatchUpdate(task.day, task.underlier, instruments);
+
+        if (task.isIndependent()) {
+            dataControl.notifyUnderlierEvent(MarketEventListener.MarketEvent.EndOfDay, task.day, task.underlier, databaseModule);
+        }
+    }
+
+    private void dispatchUpdate(Day day, UnderlierRecord underlier, List<Instrument> instruments) {
         if (0 == instruments.size()) {
             logger.debug("Dispatching day: " + day + " for underlier: " + underlier.code + " no instruments");
             return;
@@ -164,13 +322,44 @@ public class HistoricalMarketDataModule extends MarketDataModule {
         }
     }
 
-    private boolean loadStock(Day day, UnderlierRecord underlier, List<Instrument> instruments) {
-        List<StockPriceRecord> records = databaseModule.getProcedures().stockPricesSelect.execute(underlier.id, day, day);
-        if (records.size() == 0) {
+    // Load data from the database
+    protected void loadInstruments(Day day, UnderlierRecord underlier, List<Instrument> instruments) {
+        UnderlierPrefetch prefetch = null;
+        if (dataControl.isPrefetch()) {
+            prefetch = dataControl.getPrefetch(underlier);
+        }
+
+        loadStock(day, underlier, prefetch, instruments);
+        loadOptions(day, underlier, prefetch, instruments);
+    }
+
+    private Procedures getLoaderProcedures() {
+        if (null == loaderThread) {
+            return databaseModule.getProcedures();
+        }
+
+        if (null == loaderProcedures) {
+            loaderConnection = databaseModule.borrowConnection();
+            loaderProcedures = new Procedures(loaderConnection);
+            loaderProcedures.init();
+        }
+
+        return loaderProcedures;
+    }
+
+    private boolean loadStock(Day day, UnderlierRecord underlier, UnderlierPrefetch prefetch, List<Instrument> instruments) {
+        StockPriceRecord record;
+        if (prefetch != null) {
+            record = prefetch.getStock(day);
+        } else {
+            List<StockPriceRecord> records = getLoaderProcedures().stockPricesSelect.execute(underlier.id, day, day);
+            record = (records.size() > 0) ? records.get(0) : null;
+        }
+
+        if (null == record) {
             return false;
         }
 
-        StockPriceRecord record = records.get(0);
         Instrument instrument = record.buildStock(underlier.code);
         if (null == instrument) {
             return false;
@@ -180,29 +369,24 @@ public class HistoricalMarketDataModule extends MarketDataModule {
         return true;
     }
 
-    private int loadOptions(Day day, UnderlierRecord underlier, List<Instrument> instruments) {
+    private int loadOptions(Day day, UnderlierRecord underlier, UnderlierPrefetch prefetch, List<Instrument> instruments) {
         int count = 0;
 
-        List<OptionPriceRecord> records = databaseModule.getProcedures().optionPricesSelect.execute(underlier.id, day, day);
+        List<OptionPriceRecord> records;
+        if (prefetch != null) {
+            records = prefetch.getOptions(day);
+        } else {
+            records = getLoaderProcedures().optionPricesSelect.execute(underlier.id, day, day);
+        }
 
         Set<Day> allowedTerms = null;
-
-        List<Period> configuredTerms = dataControl.getOptionTerms();
-        if (configuredTerms.size() > 0) {
-            // Allow only the configured terms and exclude the others
+        if (hasConfiguredTerms()) {
             Set<Day> allTerms = new TreeSet<>();
             for (OptionPriceRecord record : records) {
                 allTerms.add(record.maturity);
             }
 
-            allowedTerms = new TreeSet<>();
-            for (Period period : configuredTerms) {
-                Day maturity = day.add(period);
-                Day term = Util.getClosestValue(allTerms, maturity, (left, right) -> Math.abs(Util.maturity(left, right)));
-                if (term != null) {
-                    allowedTerms.add(term);
-                }
-            }
+            allowedTerms = getAllowedTerms(day, allTerms);
         }
 
         for (OptionPriceRecord record : records) {
@@ -222,4 +406,22 @@ public class HistoricalMarketDataModule extends MarketDataModule {
         return count;
     }
 
+    protected boolean hasConfiguredTerms() {
+        return dataControl.getOptionTerms().size() > 0;
+    }
+
+    // Allow only the configured terms and exclude the others
+    protected Set<Day> getAllowedTerms(Day day, Set<Day> allTerms) {
+        Set<Day> allowedTerms = new TreeSet<>();
+        for (Period period : dataControl.getOptionTerms()) {
+            Day maturity = day.add(period);
+            Day term = Util.getClosestValue(allTerms, maturity, (left, right) -> Math.abs(Util.maturity(left, right)));
+            if (term != null) {
+                allowedTerms.add(term);
+            }
+        }
+
+        return allowedTerms;
+    }
+
 }
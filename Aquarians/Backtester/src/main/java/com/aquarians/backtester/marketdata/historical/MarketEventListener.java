@@ -25,6 +25,8 @@
 package com.aquarians.backtester.marketdata.historical;
 
 import com.aquarians.aqlib.Day;
+import com.aquarians.backtester.database.DatabaseModule;
+import com.aquarians.backtester.database.records.UnderlierRecord;
 
 public interface MarketEventListener {
 
@@ -37,4 +39,19 @@ public interface MarketEventListener {
 
     void processMarketEvent(MarketEvent event, Day day);
 
+    /**
+     * StartOfDay/EndOfDay of a single underlier, called from the market data threads.
+     * Only delivered when no listener requires the day barrier, in which case underliers advance independently
+     * and the per-day processMarketEvent() is not called.
+     * The database module is the calling thread's own, database access here must go through it.
+     */
+    default void processUnderlierEvent(MarketEvent event, Day day, UnderlierRecord underlier, DatabaseModule databaseModule) {}
+
+    /**
+     * True if all underliers must finish a day before any of them can start the next one.
+     */
+    default boolean requiresDayBarrier() {
+        return true;
+    }
+
 }
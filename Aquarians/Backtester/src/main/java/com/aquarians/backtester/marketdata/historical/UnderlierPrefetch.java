@@ -0,0 +1,138 @@
+/*
+    MIT License
+
+    Copyright (c) 2020 Mihai Bunea
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+
+package com.aquarians.backtester.marketdata.historical;
+
+import com.aquarians.aqlib.Day;
+import com.aquarians.backtester.database.DatabaseModule;
+import com.aquarians.backtester.database.procedures.OptionPricesStream;
+import com.aquarians.backtester.database.procedures.StockPricesStream;
+import com.aquarians.backtester.database.records.OptionPriceRecord;
+import com.aquarians.backtester.database.records.StockPriceRecord;
+import com.aquarians.backtester.database.records.UnderlierRecord;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+// Reads a window of days of an underlier with one query instead of one per day and cuts it into days as playback
+// advances. The cursors and the pooled connection are only held while a window is read, so nothing stays open
+// between windows whatever the number of underliers. Accessed by one thread at a time (an underlier has one day in flight).
+public class UnderlierPrefetch {
+
+    private final DatabaseModule databaseModule;
+    private final UnderlierRecord underlier;
+    private final Day endDay;
+    private final int fetchSize;
+    private final int windowDays;
+
+    // Days read but not played yet
+    private final TreeMap<Day, StockPriceRecord> stockDays = new TreeMap<>();
+    private final TreeMap<Day, List<OptionPriceRecord>> optionDays = new TreeMap<>();
+    // Last day read into the buffers
+    private Day bufferedDay;
+
+    public UnderlierPrefetch(DatabaseModule databaseModule, UnderlierRecord underlier, Day endDay, int fetchSize, int windowDays) {
+        this.databaseModule = databaseModule;
+        this.underlier = underlier;
+        this.endDay = endDay;
+        this.fetchSize = fetchSize;
+        this.windowDays = Math.max(windowDays, 1);
+    }
+
+    public UnderlierRecord getUnderlier() {
+        return underlier;
+    }
+
+    public StockPriceRecord getStock(Day day) {
+        fill(day);
+        return stockDays.get(day);
+    }
+
+    public List<OptionPriceRecord> getOptions(Day day) {
+        fill(day);
+        List<OptionPriceRecord> records = optionDays.get(day);
+        return (records != null) ? records : new ArrayList<>();
+    }
+
+    private void fill(Day day) {
+        // Drop the days already played
+        stockDays.headMap(day).clear();
+        optionDays.headMap(day).clear();
+
+        if ((bufferedDay != null) && (bufferedDay.compareTo(day) >= 0)) {
+            return;
+        }
+
+        // Read the next window of days in one go
+        Day lastDay = day;
+        for (int i = 1; (i < windowDays) && (lastDay.compareTo(endDay) < 0); i++) {
+            lastDay = lastDay.nextTradingDay();
+        }
+
+        // Cursors need auto-commit off, the pool sets it back when the connection is released
+        Connection connection = databaseModule.borrowConnection();
+        StockPricesStream stockStream = null;
+        OptionPricesStream optionStream = null;
+        try {
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+
+            stockStream = new StockPricesStream(connection);
+            stockStream.init();
+            stockStream.setFetchSize(fetchSize);
+            stockStream.open(underlier.id, day, lastDay);
+            for (StockPriceRecord record = stockStream.next(); record != null; record = stockStream.next()) {
+                stockDays.putIfAbsent(record.day, record);
+            }
+
+            optionStream = new OptionPricesStream(connection);
+            optionStream.init();
+            optionStream.setFetchSize(fetchSize);
+            optionStream.open(underlier.id, day, lastDay);
+            for (OptionPriceRecord record = optionStream.next(); record != null; record = optionStream.next()) {
+                optionDays.computeIfAbsent(record.day, key -> new ArrayList<>()).add(record);
+            }
+        } catch (Exception ex) {
+            throw new RuntimeException(ex.getMessage(), ex);
+        } finally {
+            if (stockStream != null) {
+                stockStream.cleanup();
+            }
+            if (optionStream != null) {
+                optionStream.cleanup();
+            }
+            databaseModule.releaseConnection(connection);
+        }
+
+        bufferedDay = lastDay;
+    }
+
+    public void close() {
+        stockDays.clear();
+        optionDays.clear();
+        bufferedDay = null;
+    }
+}
@@ -59,6 +59,8 @@ public class CapitalAllocationController {
     private final DatabaseModule databaseModule;
 
     private Map<Long, NavRecord> navRecordsMap = new HashMap<>();
+    // Without day barrier: underliers saved so far, their records in memory are current so their queued writes aren't waited for
+    private Set<Long> savedUnderliers = new HashSet<>();
     private double availableCapital = 0.0;
     private int availableAllocations = 0;
 
@@ -116,21 +118,79 @@ public class CapitalAllocationController {
     }
 
     public void save(Day today) {
-        // Set the per-underlier allocation
+        // Set the per-underlier allocation, copied as the records keep changing while they're written
         double allocated = 0.0;
+        List<NavRecord> rows = new ArrayList<>(navRecordsMap.size() + 1);
         for (Map.Entry<Long, NavRecord> entry : navRecordsMap.entrySet()) {
             NavRecord record = entry.getValue();
             allocated += record.allocated;
+            rows.add(new NavRecord(today, record.underlier, record.available, record.allocated));
+        }
+
+        // Set the group overall
+        if (groupSize > 0) {
+            rows.add(new NavRecord(today, null, availableCapital, allocated));
+        }
+
+        databaseModule.write(procedures -> {
+            for (NavRecord row : rows) {
+                procedures.navInsert.addBatch(row.day, strategyType, row.underlier, row.available, row.allocated);
+            }
+
             try {
-                databaseModule.getProcedures().navInsert.execute(today, strategyType, record.underlier, record.available, record.allocated);
+                procedures.navInsert.executeBatch();
             } catch (Exception ex) {
-                logger.warn("Day: " + today + " Underlier: " + entry.getKey(), ex);
+                logger.warn("Day: " + today, ex);
             }
+        });
+    }
+
+    // A new playback starts from the starting capital, nothing of the previous one is kept
+    public void reset() {
+        synchronized (lock) {
+            navRecordsMap.clear();
+            savedUnderliers.clear();
+            availableCapital = 0.0;
+            availableAllocations = 0;
         }
+    }
 
-        // Set the group overall
-        if (groupSize > 0) {
-            databaseModule.getProcedures().navInsert.execute(today, strategyType, null, availableCapital, allocated);
+    public boolean isGroupTrading() {
+        return groupSize > 0;
+    }
+
+    // Independent trading only: each underlier owns its capital so it can be loaded without waiting for the others
+    // Called from the market data threads, so it reads on the caller's database module rather than the shared one
+    public void load(Day today, Long underlier, DatabaseModule databaseModule) {
+        synchronized (lock) {
+            // Only the first day reads the database, afterwards the record in memory is the latest
+            if (savedUnderliers.contains(underlier)) {
+                return;
+            }
+
+            NavRecord record = databaseModule.getProcedures().navGetLastByUnderlier.execute(strategyType, underlier, today);
+            if (record != null) {
+                navRecordsMap.put(underlier, record);
+            } else {
+                navRecordsMap.remove(underlier);
+            }
+        }
+    }
+
+    // Independent trading only: saves the allocation of a single underlier, on the caller's database module
+    public void save(Day today, Long underlier, DatabaseModule databaseModule) {
+        synchronized (lock) {
+            savedUnderliers.add(underlier);
+
+            NavRecord record = navRecordsMap.get(underlier);
+            if (null == record) {
+                return;
+            }
+
+            Long navUnderlier = record.underlier;
+            Double available = record.available;
+            Double allocated = record.allocated;
+            databaseModule.write(procedures -> procedures.navInsert.execute(today, strategyType, navUnderlier, available, allocated));
         }
     }
 
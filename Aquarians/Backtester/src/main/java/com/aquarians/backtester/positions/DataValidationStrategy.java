@@ -24,6 +24,7 @@
 
 package com.aquarians.backtester.positions;
 
+import com.aquarians.aqlib.Day;
 import com.aquarians.aqlib.Pair;
 import com.aquarians.aqlib.Util;
 import com.aquarians.aqlib.models.VolatilitySurface;
@@ -74,9 +75,15 @@ public class DataValidationStrategy extends StrategyBuilder {
         // Arbitrage opportunities arising from options mispricing
         double option_total = pricingModule.getMaxOptionArbitrageReturn();
 
-        databaseModule.getProcedures().stockPriceUpdate.execute(pricingModule.getUnderlier().id, pricingModule.getToday(), fwd, vol);
-        databaseModule.getProcedures().statisticsInsert.execute(pricingModule.getUnderlier().id, pricingModule.getToday(),
-                spot_fwd_diff, parity_total, option_total);
+        Long underlier = pricingModule.getUnderlier().id;
+        Day today = pricingModule.getToday();
+        Double implied = fwd;
+        Double volatility = vol;
+        double spotFwdDiff = spot_fwd_diff;
+        databaseModule.write(procedures -> {
+            procedures.stockPriceUpdate.execute(underlier, today, implied, volatility);
+            procedures.statisticsInsert.addBatch(underlier, today, spotFwdDiff, parity_total, option_total);
+        });
 
         logger.debug("Update day=" + pricingModule.getToday() +
                 " und=" + pricingModule.getUnderlier().code +
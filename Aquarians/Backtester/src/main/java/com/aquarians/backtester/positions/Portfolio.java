@@ -24,9 +24,11 @@
 
 package com.aquarians.backtester.positions;
 
+import com.aquarians.aqlib.Day;
 import com.aquarians.aqlib.Instrument;
 import com.aquarians.aqlib.Util;
 import com.aquarians.aqlib.models.CommissionBuilder;
+import com.aquarians.aqlib.models.Greeks;
 import com.aquarians.aqlib.models.PricingResult;
 import com.aquarians.aqlib.models.VolatilitySurface;
 import com.aquarians.aqlib.positions.Position;
@@ -158,7 +160,17 @@ public class Portfolio {
     }
 
     public double computeOptionsDeltaPosition() {
-        double total = 0.0;
+        return computeOptionsRisk(null).delta;
+    }
+
+    /**
+     * Greeks of the dynamically hedged options, summed from the pricing results without repricing.
+     * Models that don't compute greeks only add to the price and delta.
+     * @param out filled and returned, a new one if null
+     */
+    public Greeks computeOptionsRisk(Greeks out) {
+        Greeks total = (out != null) ? out : new Greeks();
+        total.clear();
 
         for (Trade trade : strategy.trades) {
             if (trade.isStatic) {
@@ -170,8 +182,12 @@ public class Portfolio {
             }
 
             PricingResult pricing = pricingModel.price(trade.instrument);
-            double delta = pricing.delta * trade.quantity;
-            total += delta;
+            if (pricing.greeks != null) {
+                total.add(pricing.greeks, trade.quantity);
+            } else {
+                total.price += pricing.price * trade.quantity;
+                total.delta += pricing.delta * trade.quantity;
+            }
         }
 
         return total;
@@ -204,7 +220,10 @@ public class Portfolio {
         }
 
         if (null != databaseModule) {
-            databaseModule.getProcedures().strategyUpdate.execute(strategy.id, realizedProfit, 0.0, strategy.data);
+            Long strategyId = strategy.id;
+            Double profit = realizedProfit;
+            String data = strategy.data;
+            databaseModule.write(procedures -> procedures.strategyUpdate.execute(strategyId, profit, 0.0, data));
         }
     }
 
@@ -290,23 +309,9 @@ public class Portfolio {
         Long id = null;
         Double commission = null;
         if (databaseModule != null) {
-            id = databaseModule.getProcedures().sequenceNextVal.execute(Procedures.SQ_TRADES);
+            id = databaseModule.getProcedures().nextId(Procedures.SQ_TRADES);
             commission = CommissionBuilder.computeCommission(instrument, quantity, price);
-            databaseModule.getProcedures().tradeInsert.execute(
-                    id,
-                    strategy.id,
-                    pricingModel.getToday(),
-                    instrument.getType().name(),
-                    instrument.getCode(),
-                    instrument.isCall(),
-                    instrument.getMaturity(),
-                    instrument.getStrike(),
-                    quantity,
-                    price,
-                    price,
-                    commission,
-                    label,
-                    isStatic);
+            saveTrade(id, instrument, quantity, price, commission, label, isStatic);
         }
 
         Trade trade = new Trade(pricingModel.getToday(), instrument, quantity, price, price);
@@ -317,6 +322,31 @@ public class Portfolio {
         strategy.trades.add(trade);
     }
 
+    private void saveTrade(Long id, Instrument instrument, double quantity, double price, Double commission, String label, Boolean isStatic) {
+        Long strategyId = strategy.id;
+        Day today = pricingModel.getToday();
+        String type = instrument.getType().name();
+        String code = instrument.getCode();
+        Boolean isCall = instrument.isCall();
+        Day maturity = instrument.getMaturity();
+        Double strike = instrument.getStrike();
+        databaseModule.write(procedures -> procedures.tradeInsert.addBatch(
+                id,
+                strategyId,
+                today,
+                type,
+                code,
+                isCall,
+                maturity,
+                strike,
+                quantity,
+                price,
+                price,
+                commission,
+                label,
+                isStatic));
+    }
+
     public void saveMtm() {
         if ((null == databaseModule) || (null == pricingModule)) {
             return;
@@ -333,16 +363,20 @@ public class Portfolio {
         Double marketProfit = evaluateCloseAtMarket();
         Double theoreticalProfit = evaluateCloseAtTv();
 
-        Long id = databaseModule.getProcedures().sequenceNextVal.execute(Procedures.SQ_MTMS);
-        databaseModule.getProcedures().mtmInsert.execute(
+        Long id = databaseModule.getProcedures().nextId(Procedures.SQ_MTMS);
+        Long strategyId = strategy.id;
+        Day today = pricingModel.getToday();
+        Double spot = pricingModel.getSpot();
+        Double mtmVolatility = volatility;
+        databaseModule.write(procedures -> procedures.mtmInsert.addBatch(
                 id,
-                strategy.id,
-                pricingModel.getToday(),
+                strategyId,
+                today,
                 deltaPos,
-                pricingModel.getSpot(),
-                volatility,
+                spot,
+                mtmVolatility,
                 marketProfit,
-                theoreticalProfit);
+                theoreticalProfit));
     }
 
     public Strategy getStrategy() {
@@ -0,0 +1,84 @@
+/*
+    MIT License
+
+    Copyright (c) 2020 Mihai Bunea
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+
+package com.aquarians.backtester.positions;
+
+import com.aquarians.aqlib.Instrument;
+import com.aquarians.aqlib.positions.Strategy;
+import com.aquarians.aqlib.positions.Trade;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Open strategies of each underlier, kept in memory between pricing updates.
+ * Shared by the positions modules since an underlier can be priced by any of them, one at a time.
+ * An underlier is read from the database the first time it's seen, afterwards the database is only written.
+ */
+public class PortfolioBook {
+
+    private final Object lock = new Object();
+    private final Map<Long, List<Strategy>> strategies = new HashMap<>();
+
+    /**
+     * Null if the underlier wasn't loaded yet
+     */
+    public List<Strategy> get(Long underlier) {
+        synchronized (lock) {
+            return strategies.get(underlier);
+        }
+    }
+
+    /**
+     * Keeps the strategies still open after an update. Trades hold the instrument as it was quoted when they were
+     * executed, it's replaced by a plain one like those read from the database.
+     */
+    public void put(Long underlier, List<Strategy> open) {
+        for (Strategy strategy : open) {
+            for (Trade trade : strategy.trades) {
+                Instrument instrument = trade.instrument;
+                if (instrument.hasBid() || instrument.hasAsk()) {
+                    trade.instrument = new Instrument(
+                            instrument.getType(),
+                            instrument.getCode(),
+                            instrument.isCall(),
+                            instrument.getMaturity(),
+                            instrument.getStrike());
+                }
+            }
+        }
+
+        synchronized (lock) {
+            strategies.put(underlier, open);
+        }
+    }
+
+    public void clear() {
+        synchronized (lock) {
+            strategies.clear();
+        }
+    }
+
+}
@@ -28,6 +28,7 @@ import com.aquarians.aqlib.ApplicationModule;
 import com.aquarians.aqlib.Day;
 import com.aquarians.backtester.Application;
 import com.aquarians.backtester.database.DatabaseModule;
+import com.aquarians.backtester.database.records.UnderlierRecord;
 import com.aquarians.backtester.marketdata.MarketDataControl;
 import com.aquarians.backtester.marketdata.historical.MarketEventListener;
 
@@ -54,6 +55,7 @@ public class PositionsControl implements MarketEventListener, ApplicationModule
     private final DatabaseModule databaseModule;
     private final boolean autoTrade;
     private final MarketDataControl dataControl;
+    private final PortfolioBook book = new PortfolioBook();
 
     public PositionsControl() {
         // Create controllers for strategies
@@ -113,6 +115,7 @@ public class PositionsControl implements MarketEventListener, ApplicationModule
         }
 
         if (MarketEvent.StartOfBatch == event) {
+            resetCapitalAllocation();
             if (clearDatabaseOnBatchStart) {
                 clearDatabase();
             }
@@ -120,6 +123,67 @@ public class PositionsControl implements MarketEventListener, ApplicationModule
             loadCapitalAllocation(day);
         } else if (MarketEvent.EndOfDay == event) {
             saveCapitalAllocation(day);
+            // The next day reads back what was written today
+            databaseModule.flushWrites();
+        }
+    }
+
+    @Override
+    public void processUnderlierEvent(MarketEvent event, Day day, UnderlierRecord underlier, DatabaseModule databaseModule) {
+        if (!autoTrade) {
+            return;
+        }
+
+        if (MarketEvent.StartOfDay == event) {
+            loadCapitalAllocation(day, underlier, databaseModule);
+        } else if (MarketEvent.EndOfDay == event) {
+            saveCapitalAllocation(day, underlier, databaseModule);
+            // End of day for this underlier is on disk, without waiting for what other underliers queue meanwhile
+            databaseModule.flushWrites();
+        }
+    }
+
+    // Only group trading shares capital across underliers, otherwise each underlier can run through the days on its own
+    @Override
+    public boolean requiresDayBarrier() {
+        if (!autoTrade) {
+            return false;
+        }
+
+        for (CapitalAllocationController controller : capitalAllocationControllers.values()) {
+            if (controller.isGroupTrading()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    void loadCapitalAllocation(Day day, UnderlierRecord underlier, DatabaseModule databaseModule) {
+        for (Map.Entry<String, CapitalAllocationController> entry : capitalAllocationControllers.entrySet()) {
+            CapitalAllocationController controller = entry.getValue();
+            try {
+                controller.load(day, underlier.id, databaseModule);
+            } catch (Exception ex) {
+                logger.warn("Day: " + day + " underlier: " + underlier.code + " controller: " + entry.getKey(), ex);
+            }
+        }
+    }
+
+    void saveCapitalAllocation(Day day, UnderlierRecord underlier, DatabaseModule databaseModule) {
+        for (Map.Entry<String, CapitalAllocationController> entry : capitalAllocationControllers.entrySet()) {
+            CapitalAllocationController controller = entry.getValue();
+            try {
+                controller.save(day, underlier.id, databaseModule);
+            } catch (Exception ex) {
+                logger.warn("Day: " + day + " underlier: " + underlier.code + " controller: " + entry.getKey(), ex);
+            }
+        }
+    }
+
+    void resetCapitalAllocation() {
+        for (CapitalAllocationController controller : capitalAllocationControllers.values()) {
+            controller.reset();
         }
     }
 
@@ -145,6 +209,10 @@ public class PositionsControl implements MarketEventListener, ApplicationModule
         }
     }
 
+    public PortfolioBook getPortfolioBook() {
+        return book;
+    }
+
     public CapitalAllocationController getCapitalAllocationController(String strategyType) {
         return capitalAllocationControllers.get(strategyType);
     }
@@ -159,5 +227,7 @@ public class PositionsControl implements MarketEventListener, ApplicationModule
         databaseModule.getProcedures().tradesDelete.execute();
         databaseModule.getProcedures().strategiesDelete.execute();
         databaseModule.getProcedures().statisticsDelete.execute();
+        book.clear();
+        resetCapitalAllocation();
     }
 }
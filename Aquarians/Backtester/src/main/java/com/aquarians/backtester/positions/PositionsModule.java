@@ -25,15 +25,11 @@
 package com.aquarians.backtester.positions;
 
 import com.aquarians.aqlib.ApplicationModule;
-import com.aquarians.aqlib.Instrument;
-import com.aquarians.aqlib.Util;
 import com.aquarians.aqlib.positions.Position;
 import com.aquarians.aqlib.positions.Strategy;
 import com.aquarians.aqlib.positions.Trade;
 import com.aquarians.backtester.Application;
 import com.aquarians.backtester.database.DatabaseModule;
-import com.aquarians.backtester.database.procedures.StrategyGet;
-import com.aquarians.backtester.database.procedures.TradeGet;
 import com.aquarians.backtester.pricing.*;
 import com.aquarians.backtester.database.Procedures;
 
@@ -56,6 +52,7 @@ public class PositionsModule implements ApplicationModule, PricingListener {
     private final PricingModule pricingModule;
     private final boolean autoTrade;
     private final Map<String, StrategyBuilder> strategyBuilders = new TreeMap<>();
+    private final PortfolioBook book;
 
     private List<Portfolio> portfolios = new ArrayList<>();
 
@@ -64,6 +61,8 @@ public class PositionsModule implements ApplicationModule, PricingListener {
         databaseModule = (DatabaseModule) Application.getInstance().getModule(Application.buildModuleName(DatabaseModule.NAME, index));
         pricingModule = (PricingModule) Application.getInstance().getModule(Application.buildModuleName(PricingModule.NAME, index));
         autoTrade = Boolean.parseBoolean(Application.getInstance().getProperties().getProperty("Positions.AutoTrade", "false"));
+        PositionsControl positionsControl = (PositionsControl) Application.getInstance().getModule(Application.buildModuleName(PositionsControl.NAME));
+        book = positionsControl.getPortfolioBook();
 
         // Create builders for strategies
         String text = Application.getInstance().getProperties().getProperty("Positions.StrategyBuilders", "");
@@ -124,10 +123,14 @@ public class PositionsModule implements ApplicationModule, PricingListener {
                 " expectedMean=" + Application.FOUR_DIGIT_FORMAT.format(strategy.expectedPnlMean * 100.0) + "%" +
                 " expectedDev=" + Application.DOUBLE_DIGIT_FORMAT.format(strategy.expectedPnlDev));
 
+        // Rows batched by earlier writes (trades, marks) go out on their own first,
+        // so the transaction below commits or rolls back only this strategy and its trades
+        databaseModule.executeBatches();
+
         boolean succeeded = false;
         databaseModule.setAutoCommit(false);
         try {
-            strategy.id = databaseModule.getProcedures().sequenceNextVal.execute(Procedures.SQ_STRATEGIES);
+            strategy.id = databaseModule.getProcedures().nextId(Procedures.SQ_STRATEGIES);
             databaseModule.getProcedures().strategyInsert.execute(
                     strategy.id ,
                     strategy.type,
@@ -144,8 +147,9 @@ public class PositionsModule implements ApplicationModule, PricingListener {
                     strategy.data);
 
             for (Trade trade : strategy.trades) {
-                Long tradeId = databaseModule.getProcedures().sequenceNextVal.execute(Procedures.SQ_TRADES);
-                databaseModule.getProcedures().tradeInsert.execute(
+                Long tradeId = databaseModule.getProcedures().nextId(Procedures.SQ_TRADES);
+                trade.id = tradeId;
+                databaseModule.getProcedures().tradeInsert.addBatch(
                         tradeId,
                         strategy.id,
                         pricingModule.getToday(),
@@ -182,64 +186,41 @@ public class PositionsModule implements ApplicationModule, PricingListener {
         return pricingModule;
     }
 
+    // Open strategies come from the book, the database is read only the first time the underlier is seen
     private void loadPositions() {
         portfolios.clear();
 
         Long underlier = pricingModule.getUnderlier().id;
-        List<Long> ids = databaseModule.getProcedures().strategiesSelectIdsByUnderlier.execute(underlier);
-        for (Long id : ids) {
-            try {
-                loadStrategy(id);
-            } catch (Exception ex) {
-                logger.warn("Loading strategy " + id, ex);
+        List<Strategy> strategies = book.get(underlier);
+        if (null == strategies) {
+            strategies = loadStrategies(underlier);
+        }
+
+        for (Strategy strategy : strategies) {
+            StrategyBuilder builder = strategyBuilders.get(strategy.type);
+            if (null == builder) {
+                logger.warn("Builder not found for strategy " + strategy.id);
+                continue;
             }
+
+            portfolios.add(builder.createPortfolio(strategy));
         }
     }
 
-    private void loadStrategy(Long strategyId) {
-        StrategyGet.Record record = databaseModule.getProcedures().strategyGet.execute(strategyId);
-
-        Strategy strategy = new Strategy();
-        strategy.id = record.id;
-        strategy.type = record.type;
-        strategy.number = record.number;
-        strategy.multiplier = record.multiplier;
-        strategy.underlier = record.underlier;
-        strategy.executionDay = record.execution_day;
-        strategy.maturityDay = record.maturity_day;
-        strategy.volatility = record.volatility;
-        strategy.executionSpot = record.execution_spot;
-        strategy.expectedPnlMean = record.expected_pnl_mean;
-        strategy.expectedPnlDev = record.expected_pnl_dev;
-        strategy.realizedPnl = (record.realized_pnl != null) ? record.realized_pnl : 0.0;
-        strategy.capital = record.capital;
-        strategy.data = record.data;
-
-        List<Long> tradeIds = databaseModule.getProcedures().tradesSelectByStrategy.execute(strategyId);
-        strategy.trades = new ArrayList<>(tradeIds.size());
-        for (Long tradeId : tradeIds) {
-            TradeGet.Record tradeRecord = databaseModule.getProcedures().tradeGet.execute(tradeId);
-            Instrument instrument = new Instrument(
-                    Instrument.Type.valueOf(tradeRecord.instr_type),
-                    tradeRecord.instr_code,
-                    tradeRecord.instr_is_call,
-                    tradeRecord.instr_maturity,
-                    tradeRecord.instr_strike);
-            Trade trade = new Trade(tradeRecord.execution_day, instrument, tradeRecord.quantity, tradeRecord.price, tradeRecord.tv);
-            trade.id = tradeId;
-            trade.commission = tradeRecord.commission;
-            trade.label = tradeRecord.label;
-            trade.isStatic = Util.safeEquals(tradeRecord.is_static, true);
-            strategy.trades.add(trade);
+    // What's still open after the update goes back to the book
+    private void storePositions() {
+        List<Strategy> strategies = new ArrayList<>(portfolios.size());
+        for (Portfolio portfolio : portfolios) {
+            if (!portfolio.isClosed()) {
+                strategies.add(portfolio.getStrategy());
+            }
         }
 
-        StrategyBuilder builder = strategyBuilders.get(record.type);
-        if (null == builder) {
-            logger.warn("Builder not found for strategy " + strategyId);
-            return;
-        }
+        book.put(pricingModule.getUnderlier().id, strategies);
+    }
 
-        portfolios.add(builder.createPortfolio(strategy));
+    private List<Strategy> loadStrategies(Long underlier) {
+        return databaseModule.getProcedures().strategiesSelectOpenWithTrades.execute(underlier);
     }
 
     private void rebalancePositions() {
@@ -312,5 +293,17 @@ public class PositionsModule implements ApplicationModule, PricingListener {
         addNewPositions();
         rebalancePositions();
         closeExpiredPositions(); // Rebalancing may cause additional expiries
+        storePositions();
+        executeBatches();
+    }
+
+    // Trades, marks and statistics are queued during the day and sent together
+    private void executeBatches() {
+        try {
+            databaseModule.getProcedures().executeBatches();
+        } catch (Exception ex) {
+            logger.warn("Day: " + pricingModule.getToday() +
+                    " Underlier: " + pricingModule.getUnderlier().code, ex);
+        }
     }
 }
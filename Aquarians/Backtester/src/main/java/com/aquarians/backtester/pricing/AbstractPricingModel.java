@@ -26,6 +26,7 @@ package com.aquarians.backtester.pricing;
 
 import com.aquarians.aqlib.Day;
 import com.aquarians.aqlib.Instrument;
+import com.aquarians.aqlib.models.Greeks;
 import com.aquarians.aqlib.models.PricingResult;
 import com.aquarians.aqlib.models.VolatilitySurface;
 
@@ -38,6 +39,9 @@ public abstract class AbstractPricingModel implements PricingModel {
 
     protected Day today;
 
+    // Handed out with every stock result, replaced rather than changed when the spot moves
+    private Greeks stockGreeks;
+
     @Override
     public void fit() {
     }
@@ -45,6 +49,7 @@ public abstract class AbstractPricingModel implements PricingModel {
     public PricingResult price(Instrument instrument) {
         if (instrument.getType().equals(Instrument.Type.STOCK)) {
             PricingResult result = new PricingResult(spot, 1.0);
+            result.greeks = getStockGreeks();
             result.pnlDev = 0.0;
             result.day = today;
             return result;
@@ -53,6 +58,19 @@ public abstract class AbstractPricingModel implements PricingModel {
         throw new RuntimeException("Unknown instrument type: " + instrument.getType().name());
     }
 
+    private Greeks getStockGreeks() {
+        if (null == spot) {
+            return null;
+        }
+
+        if ((null == stockGreeks) || (stockGreeks.price != spot)) {
+            stockGreeks = new Greeks();
+            stockGreeks.price = spot;
+            stockGreeks.delta = 1.0;
+        }
+        return stockGreeks;
+    }
+
     @Override
     public VolatilitySurface getSurface() {
         return null;
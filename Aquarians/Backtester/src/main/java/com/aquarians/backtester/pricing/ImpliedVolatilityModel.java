@@ -1,11 +1,16 @@
 package com.aquarians.backtester.pricing;
 
 import com.aquarians.aqlib.*;
+import com.aquarians.aqlib.models.BlackBatch;
 import com.aquarians.aqlib.models.BlackScholes;
+import com.aquarians.aqlib.math.Normal;
+import com.aquarians.aqlib.models.Greeks;
 import com.aquarians.aqlib.models.PricingResult;
 import com.aquarians.aqlib.models.VolatilitySurface;
 import com.aquarians.backtester.Application;
 
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Map;
 
 public class ImpliedVolatilityModel extends AbstractPricingModel {
@@ -18,6 +23,8 @@ public class ImpliedVolatilityModel extends AbstractPricingModel {
     private Day today;
     private Double spotPrice;
     private int hedgeFrequency = Util.DEFAULT_HEDGE_FREQUENCY;
+    // Whole chains priced the first time one of their options is, until the next fit
+    private final Map<Day, TermPrices> termPrices = new HashMap<>();
 
     public ImpliedVolatilityModel(PricingModule owner) {
         this.owner = owner;
@@ -77,24 +84,126 @@ public class ImpliedVolatilityModel extends AbstractPricingModel {
             return result;
         }
 
-        // Use Black model where dividends are implied by the forward price
-        double yf = Util.yearFraction(maturity);
-        BlackScholes pricer = new BlackScholes(instrument.isCall(), forward, instrument.getStrike(), yf, interest, 0.0, vol);
-        pricer.setBlack(true);
-        double price = pricer.price();
-        double delta = pricer.analyticDelta();
-        PricingResult result = new PricingResult(price, delta);
+        TermPrices prices = getTermPrices(instrument.getMaturity(), maturity, forward, interest);
+        int index = (prices != null) ? prices.indexOf(instrument.getStrikeValue(), instrument.isCall()) : -1;
+        if (index < 0) {
+            // Not in today's chain, priced on its own
+            prices = new TermPrices(new double[] {instrument.getStrikeValue()}, new double[] {vol}, maturity, forward, interest);
+            index = prices.indexOf(instrument.getStrikeValue(), instrument.isCall());
+        }
+
+        BlackBatch.Results results = prices.results;
+        PricingResult result = new PricingResult(results.prices[index], prices.deltas[index]);
+        result.greeks = prices.greeks(index);
 
         int hedges = maturity;
         if (hedgeFrequency > 0) {
             hedges = Math.max(1, maturity / hedgeFrequency);
         }
-        result.pnlDev = pricer.theoreticalPnlDev(hedges);
+        result.pnlDev = BlackScholes.theoreticalPnlDev(prices.vegas[index], vol, hedges);
         result.day = today;
 
         return result;
     }
 
+    private TermPrices getTermPrices(Day maturityDay, int maturity, double forward, double interest) {
+        TermPrices prices = termPrices.get(maturityDay);
+        if (prices != null) {
+            return prices;
+        }
+
+        OptionTerm term = owner.getOptionTerms().get(maturityDay);
+        if (null == term) {
+            return null;
+        }
+
+        OptionChain chain = term.getChain();
+        double[] strikes = new double[chain.size()];
+        double[] vols = new double[chain.size()];
+        for (int i = 0; i < chain.size(); i++) {
+            strikes[i] = chain.getStrike(i);
+            Double vol = surface.getVolatility(maturity, strikes[i]);
+            vols[i] = (vol != null) ? vol : Double.NaN;
+        }
+
+        prices = new TermPrices(strikes, vols, maturity, forward, interest);
+        termPrices.put(maturityDay, prices);
+        return prices;
+    }
+
+    // Black prices of a term where dividends are implied by the forward price,
+    // the call of the i-th strike at 2 * i and the put at 2 * i + 1
+    private static final class TermPrices {
+        final double[] strikes;
+        final BlackBatch.Results results;
+        // Delta and vega as BlackScholes.analyticDelta() and analyticVega() give them with setBlack(true),
+        // which is what positions have always been hedged and their PNL deviation estimated with
+        final double[] deltas;
+        final double[] vegas;
+        // Handed out with the pricing results, created the first time each option is priced
+        final Greeks[] greeks;
+
+        TermPrices(double[] strikes, double[] vols, int maturity, double forward, double interest) {
+            this.strikes = strikes;
+            int count = strikes.length * 2;
+            double[] optionStrikes = new double[count];
+            double[] optionVols = new double[count];
+            boolean[] calls = new boolean[count];
+            for (int i = 0; i < strikes.length; i++) {
+                optionStrikes[2 * i] = strikes[i];
+                optionStrikes[2 * i + 1] = strikes[i];
+                optionVols[2 * i] = vols[i];
+                optionVols[2 * i + 1] = vols[i];
+                calls[2 * i] = true;
+            }
+
+            double time = Util.yearFraction(maturity);
+            results = new BlackBatch.Results(count);
+            BlackBatch.price(forward, time, interest, count, optionStrikes, optionVols, calls, results);
+            greeks = new Greeks[count];
+
+            // Both take the forward for the spot, so d1 is the one of a forward compounded again at the interest rate
+            deltas = new double[count];
+            vegas = new double[count];
+            double discount = Math.exp(-interest * time);
+            double compounded = forward * Math.exp(interest * time);
+            double sqrtTime = Math.sqrt(time);
+            for (int i = 0; i < count; i++) {
+                double k = optionStrikes[i];
+                double v = optionVols[i];
+                double sign = calls[i] ? 1.0 : -1.0;
+                double vsqrt = v * sqrtTime;
+                double d1 = (Math.log(compounded / k) + (0.5 * v * v) * time) / vsqrt;
+                deltas[i] = sign * discount * Normal.cdf(sign * d1);
+
+                vsqrt = Math.max(vsqrt, Util.ZERO);
+                d1 = (Math.log(forward / k) + (interest + 0.5 * v * v) * time) / vsqrt;
+                vegas[i] = forward * Normal.pdf(d1) * Math.sqrt(time) / 100.0;
+            }
+        }
+
+        // Same delta and vega as the pricing result, so the portfolio risk hedges with the numbers it always did
+        Greeks greeks(int index) {
+            Greeks option = greeks[index];
+            if (null == option) {
+                option = results.get(index, null);
+                option.delta = deltas[index];
+                option.vega = vegas[index];
+                greeks[index] = option;
+            }
+            return option;
+        }
+
+        // -1 if the strike isn't priced
+        int indexOf(double strike, boolean isCall) {
+            int index = Arrays.binarySearch(strikes, strike);
+            if ((index < 0) || Double.isNaN(results.prices[2 * index])) {
+                return -1;
+            }
+            return isCall ? 2 * index : 2 * index + 1;
+        }
+    }
+
     @Override
     public void fit() {
         today = owner.getToday();
@@ -102,6 +211,7 @@ public class ImpliedVolatilityModel extends AbstractPricingModel {
 
         surface = new VolatilitySurface();
         surface.setSpot(spotPrice);
+        termPrices.clear();
 
         for (OptionTerm term : owner.getOptionTerms().values()) {
             try {
@@ -110,6 +220,9 @@ public class ImpliedVolatilityModel extends AbstractPricingModel {
                 logger.warn("Underlier: " + owner.getStock().getCode() + " day: " + today + " term: " + term.maturity, ex);
             }
         }
+
+        // Priced from many times a day, left as it is until the next fit
+        surface.compile();
     }
 
     void computeImpliedVol(OptionTerm term) {
@@ -129,30 +242,38 @@ public class ImpliedVolatilityModel extends AbstractPricingModel {
         strikeVols.forward = forward;
         strikeVols.interest = interest;
 
-        for (Map.Entry<Double, OptionPair> entry : term.getStrikes().entrySet()) {
-            Double strike = entry.getKey();
-            OptionPair pair = entry.getValue();
+        OptionChain chain = term.getChain();
+        double[] strikes = new double[chain.size()];
+        double[] prices = new double[chain.size()];
+        boolean[] calls = new boolean[chain.size()];
+        int count = 0;
+        for (int i = 0; i < chain.size(); i++) {
+            double strike = chain.getStrike(i);
 
             // Use OTM option
-            Instrument option = (strike < forward) ? pair.put : pair.call;
-            if (null == option) {
+            boolean isCall = (strike >= forward);
+            if (null == chain.getOption(i, isCall)) {
                 continue;
             }
 
-            Double price = option.getMidPrice();
-            if (null == price) {
+            double price = chain.getMid(i, isCall);
+            if (Double.isNaN(price)) {
                 continue;
             }
 
-            // Use Black model where dividend yield is implied by forward price
-            BlackScholes pricer = new BlackScholes(option.isCall(), forward, strike, term.yf, interest, 0.0, 0.0);
-            pricer.setBlack(true);
-            Double vol = pricer.impliedVolatility(price);
-            if (null == vol) {
-                continue;
-            }
+            strikes[count] = strike;
+            prices[count] = price;
+            calls[count] = isCall;
+            count++;
+        }
 
-            strikeVols.put(strike, vol);
+        // Use Black model where dividend yield is implied by forward price
+        double[] vols = new double[count];
+        BlackBatch.impliedVolatility(forward, term.yf, interest, count, strikes, prices, calls, vols);
+        for (int i = 0; i < count; i++) {
+            if (!Double.isNaN(vols[i])) {
+                strikeVols.put(strikes[i], vols[i]);
+            }
         }
 
         return strikeVols;
@@ -200,12 +321,13 @@ public class ImpliedVolatilityModel extends AbstractPricingModel {
 
         double borrow = strikeVols.forward * (Math.exp(totalRate * term.yf) - 1.0);
 
-        OptionPair pair = term.strikes.get(instrument.getStrike());
-        if ((null == pair) || (null == pair.call) || (null == pair.put)) {
+        OptionChain chain = term.getChain();
+        int index = chain.indexOf(instrument.getStrike());
+        if ((index < 0) || (null == chain.getCall(index)) || (null == chain.getPut(index))) {
             return null;
         }
 
-        double pnl = pair.getParityArbitragePnl(strikeVols.forward, borrow);
+        double pnl = chain.getParityArbitragePnl(index, strikeVols.forward, borrow);
         return new PricingResult(pnl, 1.0);
     }
 
@@ -30,6 +30,7 @@ import com.aquarians.aqlib.Util;
 import com.aquarians.aqlib.math.DefaultProbabilityFitter;
 import com.aquarians.aqlib.math.PriceRecord;
 import com.aquarians.aqlib.models.BlackScholes;
+import com.aquarians.aqlib.models.Greeks;
 import com.aquarians.aqlib.models.PricingResult;
 import com.aquarians.aqlib.models.VolatilitySurface;
 import com.aquarians.backtester.database.DatabaseModule;
@@ -132,12 +133,14 @@ public class NormalDistributionModel extends AbstractPricingModel {
             return result;
         }
 
-        PricingResult result = new PricingResult(pricer.price(), pricer.analyticDelta());
+        Greeks greeks = pricer.greeks(null);
+        PricingResult result = new PricingResult(greeks.price, greeks.delta);
+        result.greeks = greeks;
         int hedges = days;
         if (hedgeFrequency > 0) {
             hedges = Math.max(1, days / hedgeFrequency);
         }
-        result.pnlDev = pricer.theoreticalPnlDev(hedges);
+        result.pnlDev = BlackScholes.theoreticalPnlDev(greeks.vega, volatility, hedges);
         result.day = today;
         return result;
     }
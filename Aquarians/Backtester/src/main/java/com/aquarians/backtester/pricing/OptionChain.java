@@ -0,0 +1,293 @@
+/*
+    MIT License
+
+    Copyright (c) 2020 Mihai Bunea
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+*/
+
+package com.aquarians.backtester.pricing;
+
+import com.aquarians.aqlib.Instrument;
+import com.aquarians.aqlib.Util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+// The strikes of an option term in ascending order, with the call and put quotes in parallel arrays.
+// A missing option is null and a missing price is NaN. The quotes are a copy of the instrument prices:
+// loadPrices() reads them from the instruments and storePrices() writes them back.
+public class OptionChain {
+
+    private int size;
+    private double[] strikes;
+    private Instrument[] calls;
+    private Instrument[] puts;
+    private double[] callBids;
+    private double[] callAsks;
+    private double[] putBids;
+    private double[] putAsks;
+
+    // For equal strikes the last option of a kind wins
+    public OptionChain(List<Instrument> options) {
+        List<Instrument> sorted = new ArrayList<>(options);
+        Collections.sort(sorted, Comparator.comparingDouble(Instrument::getStrikeValue));
+
+        allocate(sorted.size());
+        size = 0;
+        for (Instrument option : sorted) {
+            double strike = option.getStrikeValue();
+            if ((0 == size) || (Double.compare(strikes[size - 1], strike) != 0)) {
+                strikes[size] = strike;
+                size++;
+            }
+
+            if (option.isCall()) {
+                calls[size - 1] = option;
+            } else {
+                puts[size - 1] = option;
+            }
+        }
+
+        loadPrices();
+    }
+
+    private OptionChain(OptionChain that) {
+        allocate(that.size);
+        size = that.size;
+        System.arraycopy(that.strikes, 0, strikes, 0, size);
+        System.arraycopy(that.calls, 0, calls, 0, size);
+        System.arraycopy(that.puts, 0, puts, 0, size);
+        System.arraycopy(that.callBids, 0, callBids, 0, size);
+        System.arraycopy(that.callAsks, 0, callAsks, 0, size);
+        System.arraycopy(that.putBids, 0, putBids, 0, size);
+        System.arraycopy(that.putAsks, 0, putAsks, 0, size);
+    }
+
+    private void allocate(int capacity) {
+        strikes = new double[capacity];
+        calls = new Instrument[capacity];
+        puts = new Instrument[capacity];
+        callBids = new double[capacity];
+        callAsks = new double[capacity];
+        putBids = new double[capacity];
+        putAsks = new double[capacity];
+    }
+
+    public OptionChain copy() {
+        return new OptionChain(this);
+    }
+
+    // Same quotes on clones of the instruments
+    public OptionChain cloneInstruments() {
+        OptionChain clone = new OptionChain(this);
+        for (int i = 0; i < size; i++) {
+            clone.calls[i] = (calls[i] != null) ? calls[i].clone() : null;
+            clone.puts[i] = (puts[i] != null) ? puts[i].clone() : null;
+        }
+        clone.storePrices();
+        return clone;
+    }
+
+    public List<Instrument> getInstruments() {
+        List<Instrument> instruments = new ArrayList<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            if (calls[i] != null) {
+                instruments.add(calls[i]);
+            }
+            if (puts[i] != null) {
+                instruments.add(puts[i]);
+            }
+        }
+        return instruments;
+    }
+
+    public void loadPrices() {
+        for (int i = 0; i < size; i++) {
+            callBids[i] = (calls[i] != null) ? calls[i].getBid() : Double.NaN;
+            callAsks[i] = (calls[i] != null) ? calls[i].getAsk() : Double.NaN;
+            putBids[i] = (puts[i] != null) ? puts[i].getBid() : Double.NaN;
+            putAsks[i] = (puts[i] != null) ? puts[i].getAsk() : Double.NaN;
+        }
+    }
+
+    public void storePrices() {
+        for (int i = 0; i < size; i++) {
+            if (calls[i] != null) {
+                calls[i].setBid(callBids[i]);
+                calls[i].setAsk(callAsks[i]);
+            }
+            if (puts[i] != null) {
+                puts[i].setBid(putBids[i]);
+                puts[i].setAsk(putAsks[i]);
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double getStrike(int index) {
+        return strikes[index];
+    }
+
+    public Instrument getCall(int index) {
+        return calls[index];
+    }
+
+    public Instrument getPut(int index) {
+        return puts[index];
+    }
+
+    public Instrument getOption(int index, boolean isCall) {
+        return isCall ? calls[index] : puts[index];
+    }
+
+    public double getBid(int index, boolean isCall) {
+        return isCall ? callBids[index] : putBids[index];
+    }
+
+    public double getAsk(int index, boolean isCall) {
+        return isCall ? callAsks[index] : putAsks[index];
+    }
+
+    // Replaces all the quotes of a kind, the arrays are taken over
+    void setQuotes(double[] callBids, double[] callAsks, double[] putBids, double[] putAsks) {
+        this.callBids = callBids;
+        this.callAsks = callAsks;
+        this.putBids = putBids;
+        this.putAsks = putAsks;
+    }
+
+    // Mid if both bid and ask, otherwise NaN
+    public double getMid(int index, boolean isCall) {
+        double bid = getBid(index, isCall);
+        double ask = getAsk(index, isCall);
+        return (bid + ask) / 2.0;
+    }
+
+    // Mid, otherwise whichever of bid and ask is present, otherwise NaN
+    public double getPrice(int index, boolean isCall) {
+        double bid = getBid(index, isCall);
+        double ask = getAsk(index, isCall);
+        if (Double.isNaN(bid)) {
+            return ask;
+        }
+        if (Double.isNaN(ask)) {
+            return bid;
+        }
+        return (bid + ask) / 2.0;
+    }
+
+    public boolean isEmpty(int index) {
+        return Double.isNaN(callBids[index]) && Double.isNaN(callAsks[index]) &&
+                Double.isNaN(putBids[index]) && Double.isNaN(putAsks[index]);
+    }
+
+    // Both call and put must have valid bid and ask
+    public boolean hasFullSpread(int index) {
+        // Written so that NaN fails the test
+        return (callAsks[index] - callBids[index] >= Util.ZERO) &&
+                (putAsks[index] - putBids[index] >= Util.ZERO);
+    }
+
+    public double getParityArbitragePnl(int index, double forward, double borrow) {
+        double strike = strikes[index];
+
+        // Buy call, sell put
+        double pnlBuy = forward - strike - callAsks[index] + putBids[index] - borrow;
+        // Sell call, buy put
+        double pnlSell = strike - forward + callBids[index] - putAsks[index] - borrow;
+
+        // Calculate max of the two values
+        double pnl = !Double.isNaN(pnlBuy) ? pnlBuy : 0.0;
+        if (pnlSell > pnl) {
+            pnl = pnlSell;
+        }
+
+        return pnl;
+    }
+
+    // Position of the strike, -1 if not found
+    public int indexOf(double strike) {
+        int index = Arrays.binarySearch(strikes, 0, size, strike);
+        return (index >= 0) ? index : -1;
+    }
+
+    // First position with strike greater or equal to given value, size() if none
+    public int ceilingIndex(double value) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (strikes[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // Last position with strike less or equal to given value, -1 if none
+    public int floorIndex(double value) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (strikes[middle] <= value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low - 1;
+    }
+
+    // Keeps only the strikes matching the condition
+    public void retain(IntPredicate condition) {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (!condition.test(i)) {
+                continue;
+            }
+
+            strikes[count] = strikes[i];
+            calls[count] = calls[i];
+            puts[count] = puts[i];
+            callBids[count] = callBids[i];
+            callAsks[count] = callAsks[i];
+            putBids[count] = putBids[i];
+            putAsks[count] = putAsks[i];
+            count++;
+        }
+
+        for (int i = count; i < size; i++) {
+            calls[i] = null;
+            puts[i] = null;
+        }
+
+        size = count;
+    }
+}
@@ -42,8 +42,11 @@ public class OptionTerm implements Comparable<OptionTerm> {
     public final Day maturity;
     public final int daysToExpiry;
     public final double yf;
-    public TreeMap<Double, OptionPair> strikes = new TreeMap<>();
-    public TreeMap<Double, OptionPair> backupStrikes = new TreeMap<>();
+    // Options added since the chain was last built
+    private final List<Instrument> pendingOptions = new ArrayList<>();
+    private OptionChain chain;
+    // Quotes before validation
+    private OptionChain backupChain;
 
     public OptionTerm(PricingModule owner, Day today, Day maturity) {
         this.owner = owner;
@@ -53,14 +56,16 @@ public class OptionTerm implements Comparable<OptionTerm> {
     }
 
     public Instrument getOption(String code) {
-        for (Map.Entry<Double, OptionPair> entry  : strikes.entrySet()) {
-            OptionPair pair = entry.getValue();
-            if ((null != pair.call) && (pair.call.getCode().equals(code))) {
-                return pair.call;
+        OptionChain chain = getChain();
+        for (int i = 0; i < chain.size(); i++) {
+            Instrument call = chain.getCall(i);
+            if ((null != call) && (call.getCode().equals(code))) {
+                return call;
             }
 
-            if ((null != pair.put) && (pair.put.getCode().equals(code))) {
-                return pair.put;
+            Instrument put = chain.getPut(i);
+            if ((null != put) && (put.getCode().equals(code))) {
+                return put;
             }
         }
 
@@ -74,128 +79,95 @@ public class OptionTerm implements Comparable<OptionTerm> {
 
     public void add(Instrument instrument) {
         if (instrument.getType().equals(Instrument.Type.OPTION)) {
-            OptionPair pair = strikes.get(instrument.getStrike());
-            if (null == pair) {
-                pair = new OptionPair(instrument.getStrike());
-                strikes.put(instrument.getStrike(), pair);
-            }
+            pendingOptions.add(instrument);
+        }
+    }
 
-            pair.set(instrument);
+    public OptionChain getChain() {
+        if ((null == chain) || (pendingOptions.size() > 0)) {
+            List<Instrument> options = (chain != null) ? chain.getInstruments() : new ArrayList<>(pendingOptions.size());
+            options.addAll(pendingOptions);
+            pendingOptions.clear();
+            chain = new OptionChain(options);
         }
+
+        return chain;
     }
 
-    public TreeMap<Double, OptionPair> getStrikes() {
-        return strikes;
+    // Quotes were changed on the instruments
+    public void refreshPrices() {
+        getChain().loadPrices();
     }
 
     public double getYearFraction() {
         return yf;
     }
 
-    public OptionPair getClosestStrike(double strike) {
-        OptionPair selectedPair = null;
+    // Position of the closest strike, -1 if no strikes
+    public int getClosestStrikeIndex(double strike) {
+        OptionChain chain = getChain();
+        int index = chain.ceilingIndex(strike);
+        if (index >= chain.size()) {
+            return chain.size() - 1;
+        }
 
-        Double minDistance = null;
-        for (Map.Entry<Double, OptionPair> entry : strikes.entrySet()) {
-            OptionPair pair = entry.getValue();
-            double distance = Math.abs(strike - pair.strike);
-            if ((null == minDistance) || (distance < minDistance)) {
-                selectedPair = pair;
-                minDistance = distance;
-            }
+        // Closest of the two neighbours, the lower one on a tie
+        if ((index > 0) && (strike - chain.getStrike(index - 1) <= chain.getStrike(index) - strike)) {
+            return index - 1;
         }
 
-        return selectedPair;
+        return index;
     }
 
     public List<Instrument> getOtmOptions(boolean calls, double forward) {
-        List<Instrument> options = new ArrayList<>(strikes.size());
+        OptionChain chain = getChain();
+        List<Instrument> options = new ArrayList<>(chain.size());
 
         if (calls) {
-            for (Map.Entry<Double, OptionPair> entry : strikes.entrySet()) {
-                Double strike = entry.getKey();
-                if (strike < forward) {
-                    continue;
-                }
-
-                OptionPair pair = entry.getValue();
-                if (null == pair.call) {
-                    continue;
+            for (int i = chain.ceilingIndex(forward); i < chain.size(); i++) {
+                Instrument call = chain.getCall(i);
+                if (null != call) {
+                    options.add(call);
                 }
-
-                options.add(pair.call);
             }
         } else {
-            for (Map.Entry<Double, OptionPair> entry : strikes.descendingMap().entrySet()) {
-                Double strike = entry.getKey();
-                if (strike > forward) {
-                    continue;
-                }
-
-                OptionPair pair = entry.getValue();
-                if (null == pair.put) {
-                    continue;
+            for (int i = chain.floorIndex(forward); i >= 0; i--) {
+                Instrument put = chain.getPut(i);
+                if (null != put) {
+                    options.add(put);
                 }
-
-                options.add(pair.put);
             }
         }
 
         return options;
     }
 
-    public OptionPair getOtmPair(boolean isCall, double forward) {
+    // Position of the first strike out of the money, -1 if none
+    public int getOtmIndex(boolean isCall, double forward) {
+        OptionChain chain = getChain();
         if (isCall) {
-            for (Map.Entry<Double, OptionPair> entry : strikes.entrySet()) {
-                Double strike = entry.getKey();
-                if (strike < forward) {
-                    continue;
-                }
-
-                return entry.getValue();
-            }
-        } else {
-            for (Map.Entry<Double, OptionPair> entry : strikes.descendingMap().entrySet()) {
-                Double strike = entry.getKey();
-                if (strike > forward) {
-                    continue;
-                }
-
-                return entry.getValue();
-            }
+            int index = chain.ceilingIndex(forward);
+            return (index < chain.size()) ? index : -1;
         }
 
-        return null;
+        return chain.floorIndex(forward);
     }
 
     public Instrument getOtmOption(boolean isCall, double forward) {
+        OptionChain chain = getChain();
         if (isCall) {
-            for (Map.Entry<Double, OptionPair> entry : strikes.entrySet()) {
-                Double strike = entry.getKey();
-                if (strike < forward) {
-                    continue;
+            for (int i = chain.ceilingIndex(forward); i < chain.size(); i++) {
+                Instrument call = chain.getCall(i);
+                if (null != call) {
+                    return call;
                 }
-
-                OptionPair pair = entry.getValue();
-                if (null == pair.call) {
-                    continue;
-                }
-
-                return pair.call;
             }
         } else {
-            for (Map.Entry<Double, OptionPair> entry : strikes.descendingMap().entrySet()) {
-                Double strike = entry.getKey();
-                if (strike > forward) {
-                    continue;
+            for (int i = chain.floorIndex(forward); i >= 0; i--) {
+                Instrument put = chain.getPut(i);
+                if (null != put) {
+                    return put;
                 }
-
-                OptionPair pair = entry.getValue();
-                if (null == pair.put) {
-                    continue;
-                }
-
-                return pair.put;
             }
         }
 
@@ -203,44 +175,40 @@ public class OptionTerm implements Comparable<OptionTerm> {
     }
 
     public Instrument getAtmOption(boolean isCall, double forward) {
+        OptionChain chain = getChain();
         Instrument prev = null;
         if (isCall) {
-            for (Map.Entry<Double, OptionPair> entry : strikes.entrySet()) {
-                Double strike = entry.getKey();
-                if (strike < forward) {
-                    continue;
-                }
-
-                OptionPair pair = entry.getValue();
-                if (null == pair.call) {
+            for (int i = chain.ceilingIndex(forward); i < chain.size(); i++) {
+                Instrument call = chain.getCall(i);
+                if (null == call) {
                     continue;
                 }
 
-                if (Math.abs(strike - forward) < Util.MINIMUM_PRICE) {
-                    return pair.call;
+                if (Math.abs(chain.getStrike(i) - forward) < Util.MINIMUM_PRICE) {
+                    return call;
                 }
 
                 if (null != prev) {
                     return prev;
                 }
 
-                prev = pair.call;
+                prev = call;
             }
         } else {
-            for (Map.Entry<Double, OptionPair> entry : strikes.descendingMap().entrySet()) {
-                Double strike = entry.getKey();
-                OptionPair pair = entry.getValue();
+            for (int i = chain.size() - 1; i >= 0; i--) {
+                double strike = chain.getStrike(i);
+                Instrument put = chain.getPut(i);
 
-                if ((Math.abs(strike - forward) < Util.MINIMUM_PRICE) && (null != pair.put)) {
-                    return pair.put;
+                if ((Math.abs(strike - forward) < Util.MINIMUM_PRICE) && (null != put)) {
+                    return put;
                 }
 
                 if (strike < forward) {
                     break;
                 }
 
-                if (null != pair.put) {
-                    prev = pair.put;
+                if (null != put) {
+                    prev = put;
                 }
             }
         }
@@ -249,55 +217,61 @@ public class OptionTerm implements Comparable<OptionTerm> {
     }
 
     public Double computeParityForwardPrice(double interestRate, boolean doForwardSanityCheck) {
-        List<OptionPair> pairs = new ArrayList<>(strikes.size());
+        OptionChain chain = getChain();
 
         // Select valid pairs
-        for (OptionPair pair : strikes.values()) {
-            if (pair.hasFullSpread()) {
-                pairs.add(pair);
+        int[] pairs = new int[chain.size()];
+        int count = 0;
+        for (int i = 0; i < chain.size(); i++) {
+            if (chain.hasFullSpread(i)) {
+                pairs[count++] = i;
             }
         }
-        if (0 == pairs.size()) {
+        if (0 == count) {
             return null;
         }
 
         // Find the strike closest to the forward price
         // C - P = F - K therefore for F = K we have C = P
-        OptionPair forwardPair = null;
-        Double minDistance = null;
-        for (OptionPair pair : pairs) {
-            double distance = Math.abs(pair.call.getPrice() - pair.put.getPrice());
-            if ((null == minDistance) || (distance < minDistance)) {
+        int forwardPair = -1;
+        double minDistance = 0.0;
+        for (int k = 0; k < count; k++) {
+            int i = pairs[k];
+            double distance = Math.abs(chain.getMid(i, true) - chain.getMid(i, false));
+            if ((forwardPair < 0) || (distance < minDistance)) {
                 minDistance = distance;
-                forwardPair = pair;
+                forwardPair = i;
             }
         }
 
         // Compute ATM implied volatility using the forward strike as approximation for forward price
-        Instrument atmOption = (forwardPair.call.getPrice() < forwardPair.put.getPrice()) ? forwardPair.call : forwardPair.put;
-        BlackScholes pricer = new BlackScholes(atmOption.isCall(), atmOption.getStrike(), atmOption.getStrike(), yf, interestRate, 0.0, 0.0);
+        double forwardStrike = chain.getStrike(forwardPair);
+        boolean atmIsCall = chain.getMid(forwardPair, true) < chain.getMid(forwardPair, false);
+        BlackScholes pricer = new BlackScholes(atmIsCall, forwardStrike, forwardStrike, yf, interestRate, 0.0, 0.0);
         pricer.setBlack(true); // Use the Black model (dividend yield already contained in the forward price)
-        Double atmVol = pricer.impliedVolatility(atmOption.getPrice());
+        Double atmVol = pricer.impliedVolatility(chain.getMid(forwardPair, atmIsCall));
         if (null == atmVol) {
             return null;
         }
 
         // Compute standard deviation of the forward price log return at expiration
         double dev = atmVol * Math.sqrt(yf);
+        double factor = Math.exp(interestRate * yf);
 
         // Take an average of the forward price implied by the put-call parity
-        DefaultProbabilityFitter forwards = new DefaultProbabilityFitter(pairs.size());
-        for (OptionPair pair : pairs) {
+        DefaultProbabilityFitter forwards = new DefaultProbabilityFitter(count);
+        for (int k = 0; k < count; k++) {
+            int i = pairs[k];
+            double strike = chain.getStrike(i);
+
             // Filter out deep out of the money strikes
-            double ret = Math.log(pair.strike / forwardPair.strike);
+            double ret = Math.log(strike / forwardStrike);
             if (Math.abs(ret) > dev * DEEP_OTM_DEVS) {
                 continue;
             }
 
-            double factor = Math.exp(interestRate * yf);
-
             // C - P = (F - K) * e^(-r*T)
-            double impliedForward = pair.strike + (pair.call.getPrice() - pair.put.getPrice()) * factor;
+            double impliedForward = strike + (chain.getMid(i, true) - chain.getMid(i, false)) * factor;
             forwards.addSample(impliedForward);
         }
 
@@ -322,17 +296,27 @@ public class OptionTerm implements Comparable<OptionTerm> {
             return true;
         }
 
+        OptionChain chain = getChain();
         double totalRate = interestRate + owner.getBorrowRate();
         double borrow = forward * (Math.exp(totalRate * yf) - 1.0);
 
-        // Order the strikes by distance from ATM
-        List<Double> orderedStrikes = new ArrayList<>(strikes.keySet());
-        Collections.sort(orderedStrikes, new DistanceFromATMComparator(forward));
-
-        for (int i = 0; i < Math.min(owner.getValidateForward(), strikes.size()); i++) {
-            Double strike = orderedStrikes.get(i);
-            OptionPair pair = strikes.get(strike);
-            double pnl = pair.getParityArbitragePnl(forward, borrow);
+        // Walk the strikes by distance from ATM, the lower strike first on a tie
+        int lower = chain.ceilingIndex(forward) - 1;
+        int upper = lower + 1;
+        int checks = Math.min(owner.getValidateForward(), chain.size());
+        for (int k = 0; k < checks; k++) {
+            int i;
+            if (lower < 0) {
+                i = upper++;
+            } else if (upper >= chain.size()) {
+                i = lower--;
+            } else if (Math.abs(chain.getStrike(lower) - forward) <= Math.abs(chain.getStrike(upper) - forward)) {
+                i = lower--;
+            } else {
+                i = upper++;
+            }
+
+            double pnl = chain.getParityArbitragePnl(i, forward, borrow);
             if (pnl > Util.ZERO) {
                 return false;
             }
@@ -341,46 +325,36 @@ public class OptionTerm implements Comparable<OptionTerm> {
         return true;
     }
 
-    private static final class DistanceFromATMComparator implements Comparator<Double> {
-        private final double forward;
-
-        private DistanceFromATMComparator(double forward) {
-            this.forward = forward;
-        }
-
-        @Override
-        public int compare(Double leftStrike, Double rightStrike) {
-            return Double.compare(Math.abs(leftStrike - forward), Math.abs(rightStrike - forward));
-        }
-    }
-
     // Computes lower and upper bound for forward price
     public Pair<Double, Double> computeParityForwardPriceBounds() {
-        TreeSet<Double> lowerBounds = new TreeSet<>();
-        TreeSet<Double> upperBounds = new TreeSet<>();
+        OptionChain chain = getChain();
+        Double lowerBound = null;
+        Double upperBound = null;
 
         // Cost of borrow
         double borrowRate = owner.getInterestRate(owner.getToday()) + owner.getBorrowRate();
         double borrowCost = (owner.getSpotPrice() != null) ? owner.getSpotPrice() * (Math.exp(borrowRate * yf) - 1.0) : 0.0;
 
-        for (OptionPair pair : strikes.values()) {
-            if (!pair.hasFullSpread()) {
+        for (int i = 0; i < chain.size(); i++) {
+            if (!chain.hasFullSpread(i)) {
                 continue;
             }
 
-            Double lowerBound = Util.getParitySpotLowerBound(pair.call, pair.put);
-            if (lowerBound != null) {
-                lowerBounds.add(lowerBound - borrowCost);
+            double strike = chain.getStrike(i);
+
+            // Sell the call, buy the put
+            double lower = strike + chain.getBid(i, true) - chain.getAsk(i, false) - borrowCost;
+            if ((null == lowerBound) || (lower > lowerBound)) {
+                lowerBound = lower;
             }
 
-            Double upperBound = Util.getParitySpotUpperBound(pair.call, pair.put);
-            if (upperBound != null) {
-                upperBounds.add(upperBound + borrowCost);
+            // Buy the call, sell the put
+            double upper = strike + chain.getAsk(i, true) - chain.getBid(i, false) + borrowCost;
+            if ((null == upperBound) || (upper < upperBound)) {
+                upperBound = upper;
             }
         }
 
-        Double lowerBound = lowerBounds.size() > 0 ? lowerBounds.last() : null;
-        Double upperBound = upperBounds.size() > 0 ? upperBounds.first() : null;
         return new Pair<>(lowerBound, upperBound);
     }
 
@@ -399,29 +373,43 @@ public class OptionTerm implements Comparable<OptionTerm> {
         return isViolation;
     }
 
-    interface OptionAccessor {
-        Instrument getOption(OptionPair pair);
-    }
+    // Prices collected for validation together with the strike position they come from
+    private static final class PriceList {
+        final int[] indexes;
+        // Price used to check the ordering
+        final double[] values;
+        // Price to keep if valid
+        final double[] prices;
+        int size;
 
-    interface PriceAccessor {
-        Double getPrice(Instrument option);
-    }
-
-    interface PriceSetter {
-        void setPrice(Instrument option, double price);
-    }
+        PriceList(int capacity) {
+            indexes = new int[capacity];
+            values = new double[capacity];
+            prices = new double[capacity];
+        }
 
-    private static void collectPrice(Instrument option, PriceAccessor priceAccessor, List<Instrument> instruments) {
-        if (null == option) {
-            return;
+        void clear() {
+            size = 0;
         }
 
-        Double price = priceAccessor.getPrice(option);
-        if ((null == price) || (price < Util.ZERO)) {
-            return;
+        // Valid prices only, the value can be the extrinsic part of the price
+        void add(int index, double price, double intrinsicValue) {
+            double value = price - intrinsicValue;
+            if (Double.isNaN(value) || (value < Util.ZERO)) {
+                return;
+            }
+
+            indexes[size] = index;
+            values[size] = value;
+            prices[size] = price;
+            size++;
         }
+    }
 
-        instruments.add(option);
+    private static double[] createPrices(int size) {
+        double[] prices = new double[size];
+        Arrays.fill(prices, Double.NaN);
+        return prices;
     }
 
     public void validatePrices() {
@@ -436,120 +424,48 @@ public class OptionTerm implements Comparable<OptionTerm> {
     }
 
     private void deleteEmptyStrikes() {
-        List<Double> emptyStrikes = new ArrayList<>();
-        for (OptionPair pair : strikes.values()) {
-            if (pair.isEmpty()) {
-                emptyStrikes.add(pair.strike);
-            }
-        }
-
-        for (Double strike : emptyStrikes) {
-            strikes.remove(strike);
-        }
+        OptionChain chain = getChain();
+        chain.retain(i -> !chain.isEmpty(i));
     }
 
     public void validatePricesFirstPass() {
+        OptionChain chain = getChain();
+        int size = chain.size();
+
         // Collect here prices in decreasing order (highest first, lowest last)
-        List<Instrument> callBids = new ArrayList<>();
-        List<Instrument> callAsks = new ArrayList<>();
-        List<Instrument> putBids = new ArrayList<>();
-        List<Instrument> putAsks = new ArrayList<>();
+        PriceList callBids = new PriceList(size);
+        PriceList callAsks = new PriceList(size);
+        PriceList putBids = new PriceList(size);
+        PriceList putAsks = new PriceList(size);
 
         // Call prices decrease with increasing strike price
-        for (Map.Entry<Double, OptionPair> entry : strikes.entrySet()) {
-            OptionPair pair = entry.getValue();
-            collectPrice(pair.call, option -> option.getBidPrice(), callBids);
-            collectPrice(pair.call, option -> option.getAskPrice(), callAsks);
+        for (int i = 0; i < size; i++) {
+            callBids.add(i, chain.getBid(i, true), 0.0);
+            callAsks.add(i, chain.getAsk(i, true), 0.0);
         }
 
         // Put prices decrease with decreasing strike price
-        for (Map.Entry<Double, OptionPair> entry : strikes.descendingMap().entrySet()) {
-            OptionPair pair = entry.getValue();
-            collectPrice(pair.put, option -> option.getBidPrice(), putBids);
-            collectPrice(pair.put, option -> option.getAskPrice(), putAsks);
+        for (int i = size - 1; i >= 0; i--) {
+            putBids.add(i, chain.getBid(i, false), 0.0);
+            putAsks.add(i, chain.getAsk(i, false), 0.0);
         }
 
-        // Get the longest decreasing sequences
-        List<Integer> callBidsLDS = findLDS(callBids, option -> option.getBidPrice());
-        List<Integer> callAsksLDS = findLDS(callAsks, option -> option.getAskPrice());
-        List<Integer> putBidsLDS = findLDS(putBids, option -> option.getBidPrice());
-        List<Integer> putAsksLDS = findLDS(putAsks, option -> option.getAskPrice());
-
-        // Rebuild the prices with validated values
-        TreeMap<Double, OptionPair> newStrikes = createStrikes();
-        setPrices(newStrikes, callBids, callBidsLDS, pair -> pair.call, option -> option.getBidPrice(), (option, price) -> option.setBidPrice(price));
-        setPrices(newStrikes, callAsks, callAsksLDS, pair -> pair.call, option -> option.getAskPrice(), (option, price) -> option.setAskPrice(price));
-        setPrices(newStrikes, putBids, putBidsLDS, pair -> pair.put, option -> option.getBidPrice(), (option, price) -> option.setBidPrice(price));
-        setPrices(newStrikes, putAsks, putAsksLDS, pair -> pair.put, option -> option.getAskPrice(), (option, price) -> option.setAskPrice(price));
+        // Rebuild the prices with the longest decreasing sequences
+        double[] newCallBids = createPrices(size);
+        double[] newCallAsks = createPrices(size);
+        double[] newPutBids = createPrices(size);
+        double[] newPutAsks = createPrices(size);
+        setPrices(newCallBids, callBids, findLDS(callBids));
+        setPrices(newCallAsks, callAsks, findLDS(callAsks));
+        setPrices(newPutBids, putBids, findLDS(putBids));
+        setPrices(newPutAsks, putAsks, findLDS(putAsks));
 
         // Make a backup of the original prices
-        backupStrikes();
+        backupChain = chain.copy();
 
         // Copy the validated prices over the old ones
-        replacePrices(newStrikes);
-    }
-
-    private void replacePrices(TreeMap<Double, OptionPair> newStrikes) {
-        for (OptionPair oldPair : strikes.values()) {
-            OptionPair newPair = newStrikes.get(oldPair.strike);
-            if (oldPair.call != null) {
-                oldPair.call.setBidPrice(newPair.call.getBidPrice());
-                oldPair.call.setAskPrice(newPair.call.getAskPrice());
-            }
-            if (oldPair.put != null) {
-                oldPair.put.setBidPrice(newPair.put.getBidPrice());
-                oldPair.put.setAskPrice(newPair.put.getAskPrice());
-            }
-        }
-    }
-
-    // An instrument from whose prices was extracted the intrinsic value, thus leaving the extrinsic one
-    private static final class ExtrinsicInstrument extends Instrument {
-        final Instrument originalInstrument;
-        final double intrinsicValue;
-
-        public ExtrinsicInstrument(Instrument originalInstrument, double intrinsicValue) {
-            super(originalInstrument.getType(),
-                    originalInstrument.getCode(),
-                    originalInstrument.isCall(),
-                    originalInstrument.getMaturity(),
-                    originalInstrument.getStrike());
-            this.originalInstrument = originalInstrument;
-            this.intrinsicValue = intrinsicValue;
-
-            this.setBidPrice(getBidPrice());
-            this.setAskPrice(getAskPrice());
-        }
-
-        public Instrument getOriginalInstrument() {
-            return originalInstrument;
-        }
-
-        public Double getBidPrice() {
-            Double bidPrice = originalInstrument.getBidPrice();
-            if (null == bidPrice) {
-                return null;
-            }
-
-            return bidPrice - intrinsicValue;
-        }
-
-        public Double getAskPrice() {
-            Double askPrice = originalInstrument.getAskPrice();
-            if (null == askPrice) {
-                return null;
-            }
-
-            return askPrice - intrinsicValue;
-        }
-    }
-
-    public static ExtrinsicInstrument createExtrinsicInstrument(Instrument instrument, double intrinsicValue) {
-        if (null == instrument) {
-            return null;
-        }
-
-        return new ExtrinsicInstrument(instrument, intrinsicValue);
+        chain.setQuotes(newCallBids, newCallAsks, newPutBids, newPutAsks);
+        chain.storePrices();
     }
 
     public void validatePricesSecondPass() {
@@ -559,196 +475,140 @@ public class OptionTerm implements Comparable<OptionTerm> {
             return;
         }
 
+        OptionChain chain = getChain();
+        int size = chain.size();
+
         // Rebuild the prices
-        TreeMap<Double, OptionPair> newStrikes = createStrikes();
+        double[] newCallBids = createPrices(size);
+        double[] newCallAsks = createPrices(size);
+        double[] newPutBids = createPrices(size);
+        double[] newPutAsks = createPrices(size);
 
         // Collect here extrinsic prices in decreasing order (highest first, lowest last)
         // An option price = extrinsic + intrinsic, where intrinsic = |Fwd - Strike|
-        List<Instrument> callBids = new ArrayList<>();
-        List<Instrument> callAsks = new ArrayList<>();
-        List<Instrument> putBids = new ArrayList<>();
-        List<Instrument> putAsks = new ArrayList<>();
+        PriceList callBids = new PriceList(size);
+        PriceList callAsks = new PriceList(size);
+        PriceList putBids = new PriceList(size);
+        PriceList putAsks = new PriceList(size);
 
         // OTM calls and ITM puts, prices decrease with increasing strike price
-        for (Map.Entry<Double, OptionPair> entry : strikes.entrySet()) {
-            OptionPair pair = entry.getValue();
-            double intrinsicValue = pair.strike - forward;
+        for (int i = 0; i < size; i++) {
+            double intrinsicValue = chain.getStrike(i) - forward;
             if (intrinsicValue < 0.0) {
                 continue;
             }
 
-            collectPrice(pair.call, option -> option.getBidPrice(), callBids);
-            collectPrice(pair.call, option -> option.getAskPrice(), callAsks);
-            collectPrice(createExtrinsicInstrument(pair.put, intrinsicValue), option -> option.getBidPrice(), putBids);
-            collectPrice(createExtrinsicInstrument(pair.put, intrinsicValue), option -> option.getAskPrice(), putAsks);
+            callBids.add(i, chain.getBid(i, true), 0.0);
+            callAsks.add(i, chain.getAsk(i, true), 0.0);
+            putBids.add(i, chain.getBid(i, false), intrinsicValue);
+            putAsks.add(i, chain.getAsk(i, false), intrinsicValue);
         }
 
         // Copy prices as long as the extrinsic value keeps decreasing
         // We want asks to be strictly decreasing (don't want to pay the same price for less insurance)
-        setPrices(newStrikes, callBids, pair -> pair.call, option -> option.getBidPrice(), (option, price) -> option.setBidPrice(price), false);
-        setPrices(newStrikes, callAsks, pair -> pair.call, option -> option.getAskPrice(), (option, price) -> option.setAskPrice(price), true);
-        setPrices(newStrikes, putBids, pair -> pair.put, option -> option.getBidPrice(), (option, price) -> option.setBidPrice(price), false);
-        setPrices(newStrikes, putAsks, pair -> pair.put, option -> option.getAskPrice(), (option, price) -> option.setAskPrice(price), true);
+        setPrices(newCallBids, callBids, false);
+        setPrices(newCallAsks, callAsks, true);
+        setPrices(newPutBids, putBids, false);
+        setPrices(newPutAsks, putAsks, true);
 
         // Now cover the other direction
-        callBids = new ArrayList<>();
-        callAsks = new ArrayList<>();
-        putBids = new ArrayList<>();
-        putAsks = new ArrayList<>();
+        callBids.clear();
+        callAsks.clear();
+        putBids.clear();
+        putAsks.clear();
 
         // ITM calls and OTM puts, prices decrease with decreasing strike price
-        for (Map.Entry<Double, OptionPair> entry : strikes.descendingMap().entrySet()) {
-            OptionPair pair = entry.getValue();
-            double intrinsicValue = forward - pair.strike;
+        for (int i = size - 1; i >= 0; i--) {
+            double intrinsicValue = forward - chain.getStrike(i);
             if (intrinsicValue < 0.0) {
                 continue;
             }
 
-            collectPrice(createExtrinsicInstrument(pair.call, intrinsicValue), option -> option.getBidPrice(), callBids);
-            collectPrice(createExtrinsicInstrument(pair.call, intrinsicValue), option -> option.getAskPrice(), callAsks);
-            collectPrice(pair.put, option -> option.getBidPrice(), putBids);
-            collectPrice(pair.put, option -> option.getAskPrice(), putAsks);
+            callBids.add(i, chain.getBid(i, true), intrinsicValue);
+            callAsks.add(i, chain.getAsk(i, true), intrinsicValue);
+            putBids.add(i, chain.getBid(i, false), 0.0);
+            putAsks.add(i, chain.getAsk(i, false), 0.0);
         }
 
-        setPrices(newStrikes, callBids, pair -> pair.call, option -> option.getBidPrice(), (option, price) -> option.setBidPrice(price), false);
-        setPrices(newStrikes, callAsks, pair -> pair.call, option -> option.getAskPrice(), (option, price) -> option.setAskPrice(price), true);
-        setPrices(newStrikes, putBids, pair -> pair.put, option -> option.getBidPrice(), (option, price) -> option.setBidPrice(price), false);
-        setPrices(newStrikes, putAsks, pair -> pair.put, option -> option.getAskPrice(), (option, price) -> option.setAskPrice(price), true);
+        setPrices(newCallBids, callBids, false);
+        setPrices(newCallAsks, callAsks, true);
+        setPrices(newPutBids, putBids, false);
+        setPrices(newPutAsks, putAsks, true);
 
         // Copy the validated prices over the old ones
-        replacePrices(newStrikes);
+        chain.setQuotes(newCallBids, newCallAsks, newPutBids, newPutAsks);
+        chain.storePrices();
     }
 
-    // Iterative function to find the indexes of longest decreasing subsequence of a given array
-    private static List<Integer> findLDS(List<Instrument> options, PriceAccessor accessor) {
-        // base case
-        if (options == null || options.size() == 0) {
-            return new ArrayList<>();
-        }
-
-        // `LDS[i]` stores the longest decreasing subsequence of subarray
-        // `nums[0…i]` that ends with `nums[i]`
-        List<List<Integer>> LDS = new ArrayList<>();
-        for (int i = 0; i < options.size(); i++) {
-            LDS.add(new ArrayList<>());
+    // Finds the positions of the longest decreasing subsequence of the collected values.
+    // Of the subsequences with the same length the one ending first wins, and each element extends
+    // the first longest subsequence it can follow.
+    private static int[] findLDS(PriceList prices) {
+        int size = prices.size;
+        if (0 == size) {
+            return new int[0];
         }
 
-        // `LDS[0]` denotes longest decreasing subsequence ending at `nums[0]`
-        LDS.get(0).add(0);
+        // Length of the longest decreasing subsequence ending with each element and the element before it
+        int[] lengths = new int[size];
+        int[] previous = new int[size];
 
-        // start from the second array element
-        for (int i = 1; i < options.size(); i++) {
-            Instrument ioption = options.get(i);
-
-            // do for each element in subarray `nums[0…i-1]`
+        int last = 0;
+        for (int i = 0; i < size; i++) {
+            lengths[i] = 1;
+            previous[i] = -1;
             for (int j = 0; j < i; j++) {
-                Instrument joption = options.get(j);
-
-                // find longest decreasing subsequence that ends with `nums[j]`
-                // where `options[j]` is more than the current element `nums[i]`
-                if (accessor.getPrice(joption) >= accessor.getPrice(ioption) && LDS.get(j).size() > LDS.get(i).size()) {
-                    LDS.set(i, new ArrayList<>(LDS.get(j)));
+                if ((prices.values[j] >= prices.values[i]) && (lengths[j] + 1 > lengths[i])) {
+                    lengths[i] = lengths[j] + 1;
+                    previous[i] = j;
                 }
             }
 
-            // include `options[i]` in `LDS[i]`
-            LDS.get(i).add(i);
+            if (lengths[i] > lengths[last]) {
+                last = i;
+            }
         }
 
-        // `j` will contain an index of LDS
-        int j = 0;
-        for (int i = 0; i < options.size(); i++) {
-            if (LDS.get(j).size() < LDS.get(i).size()) {
-                j = i;
-            }
+        int[] sequence = new int[lengths[last]];
+        for (int k = sequence.length - 1, i = last; k >= 0; k--, i = previous[i]) {
+            sequence[k] = i;
         }
 
-        // return LDS
-        return LDS.get(j);
+        return sequence;
     }
 
-    private void setPrices(TreeMap<Double, OptionPair> pairs,
-                           List<Instrument> options,
-                           List<Integer> pricesLDS,
-                           OptionAccessor optionAccessor,
-                           PriceAccessor priceAccessor,
-                           PriceSetter priceSetter) {
-        Double prevPrice = null;
-        for (Integer i : pricesLDS) {
-            Instrument option = options.get(i);
-            OptionPair pair = pairs.get(option.getStrike());
-            double currPrice = priceAccessor.getPrice(option);
-            if ((prevPrice != null) && (currPrice > prevPrice)) {
+    private static void setPrices(double[] target, PriceList prices, int[] sequence) {
+        double prevPrice = Double.NaN;
+        for (int k : sequence) {
+            double currPrice = prices.values[k];
+            if (currPrice > prevPrice) {
                 throw new RuntimeException("Prices not in decreasing order");
             }
-            Instrument target = optionAccessor.getOption(pair);
-            priceSetter.setPrice(target, currPrice);
+
+            target[prices.indexes[k]] = prices.prices[k];
             prevPrice = currPrice;
         }
     }
 
-    private void setPrices(TreeMap<Double, OptionPair> pairs,
-                           List<Instrument> options,
-                           OptionAccessor optionAccessor,
-                           PriceAccessor priceAccessor,
-                           PriceSetter priceSetter,
-                           boolean strictlyDecreasing) {
-        Double prevPrice = null;
-        for (Instrument option : options) {
-            OptionPair pair = pairs.get(option.getStrike());
-            double currPrice = priceAccessor.getPrice(option);
-            if ((prevPrice != null) && (strictlyDecreasing ? (currPrice >= prevPrice) : (currPrice > prevPrice))) {
+    private static void setPrices(double[] target, PriceList prices, boolean strictlyDecreasing) {
+        double prevPrice = Double.NaN;
+        for (int k = 0; k < prices.size; k++) {
+            double currPrice = prices.values[k];
+            if ((k > 0) && (strictlyDecreasing ? (currPrice >= prevPrice) : (currPrice > prevPrice))) {
                 break;
             }
 
-            Instrument target = optionAccessor.getOption(pair);
-
-            // When we copy prices from calculation objects we still want the original values
-            Instrument source = option;
-            if (option instanceof ExtrinsicInstrument) {
-                source = ((ExtrinsicInstrument) option).getOriginalInstrument();
-            }
-
-            double sourcePrice = priceAccessor.getPrice(source);
-            priceSetter.setPrice(target, sourcePrice);
-
+            // Keep the original price, not the extrinsic one used for the check
+            target[prices.indexes[k]] = prices.prices[k];
             prevPrice = currPrice;
         }
     }
 
-    private TreeMap<Double, OptionPair> createStrikes() {
-        TreeMap<Double, OptionPair> pairs = new TreeMap<>();
-
-        for (OptionPair oldPair : strikes.values()) {
-
-            OptionPair newPair = new OptionPair(oldPair.strike);
-            pairs.put(newPair.strike, newPair);
-
-            if (oldPair.call != null) {
-                newPair.call = oldPair.call.clone();
-                newPair.call.setBidPrice(null);
-                newPair.call.setAskPrice(null);
-            }
-
-            if (oldPair.put != null) {
-                newPair.put = oldPair.put.clone();
-                newPair.put.setBidPrice(null);
-                newPair.put.setAskPrice(null);
-            }
-        }
-
-        return pairs;
-    }
-
-    private void backupStrikes() {
-        backupStrikes = new TreeMap<>();
-        for (OptionPair pair : strikes.values()) {
-            backupStrikes.put(pair.strike, pair.clone());
-        }
-    }
-
+    // Back to the quotes before validation, on copies of the instruments
     public void restoreBackup() {
-        strikes = backupStrikes;
+        if (backupChain != null) {
+            chain = backupChain.cloneInstruments();
+        }
     }
 
     public double getMaxParityArbitrageReturn(PricingModel model) {
@@ -758,8 +618,9 @@ public class OptionTerm implements Comparable<OptionTerm> {
             return maxRet;
         }
 
-        for (OptionPair pair : strikes.values()) {
-            Instrument instrument = new Instrument(Instrument.Type.PARITY, null, null, maturity, pair.strike);
+        OptionChain chain = getChain();
+        for (int i = 0; i < chain.size(); i++) {
+            Instrument instrument = new Instrument(Instrument.Type.PARITY, null, null, maturity, chain.getStrike(i));
             PricingResult result = model.price(instrument);
             if ((result != null) && (result.price > 0.0)) {
                 double ret = Math.log((result.price + spot) / spot);
@@ -808,25 +669,18 @@ public class OptionTerm implements Comparable<OptionTerm> {
     public double getMaxOptionArbitrageReturn(PricingModel model) {
         double maxRet = 0.0;
 
-        for (OptionPair pair : strikes.values()) {
-            maxRet = Math.max(maxRet, getOptionArbitrageReturn(model, pair.put));
-            maxRet = Math.max(maxRet, getOptionArbitrageReturn(model, pair.call));
+        OptionChain chain = getChain();
+        for (int i = 0; i < chain.size(); i++) {
+            maxRet = Math.max(maxRet, getOptionArbitrageReturn(model, chain.getPut(i)));
+            maxRet = Math.max(maxRet, getOptionArbitrageReturn(model, chain.getCall(i)));
         }
 
         return maxRet;
     }
 
     public void validateSpread() {
-        List<Double> incompleteStrikes = new ArrayList<>();
-        for (OptionPair pair : strikes.values()) {
-            if (!pair.hasFullSpread()) {
-                incompleteStrikes.add(pair.strike);
-            }
-        }
-
-        for (Double strike : incompleteStrikes) {
-            strikes.remove(strike);
-        }
+        OptionChain chain = getChain();
+        chain.retain(chain::hasFullSpread);
     }
 
 }
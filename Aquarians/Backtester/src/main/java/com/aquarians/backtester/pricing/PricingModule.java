@@ -116,6 +116,11 @@ public class PricingModule implements ApplicationModule, MarketDataListener {
 
     @Override
     public void quotesUpdated() {
+        // The option chains keep a copy of the instrument quotes
+        for (OptionTerm term : optionTerms.values()) {
+            term.refreshPrices();
+        }
+
         recalculateAndNotify();
     }
 
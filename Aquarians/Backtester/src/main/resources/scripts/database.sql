@@ -45,10 +45,28 @@ CREATE TABLE option_prices
    ask double precision NULL,
 
    CONSTRAINT fk_option_prices_underlier FOREIGN KEY(underlier) REFERENCES underliers
-);
+) PARTITION BY HASH (underlier);
+
+-- All the prices of an underlier are in one partition, queries by underlier read only that partition.
+-- An existing unpartitioned table is converted by PartitionOptionPricesJob.
+CREATE TABLE option_prices_p0 PARTITION OF option_prices FOR VALUES WITH (MODULUS 16, REMAINDER 0);
+CREATE TABLE option_prices_p1 PARTITION OF option_prices FOR VALUES WITH (MODULUS 16, REMAINDER 1);
+CREATE TABLE option_prices_p2 PARTITION OF option_prices FOR VALUES WITH (MODULUS 16, REMAINDER 2);
+CREATE TABLE option_prices_p3 PARTITION OF option_prices FOR VALUES WITH (MODULUS 16, REMAINDER 3);
+CREATE TABLE option_prices_p4 PARTITION OF option_prices FOR VALUES WITH (MODULUS 16, REMAINDER 4);
+CREATE TABLE option_prices_p5 PARTITION OF option_prices FOR VALUES WITH (MODULUS 16, REMAINDER 5);
+CREATE TABLE option_prices_p6 PARTITION OF option_prices FOR VALUES WITH (MODULUS 16, REMAINDER 6);
+CREATE TABLE option_prices_p7 PARTITION OF option_prices FOR VALUES WITH (MODULUS 16, REMAINDER 7);
+CREATE TABLE option_prices_p8 PARTITION OF option_prices FOR VALUES WITH (MODULUS 16, REMAINDER 8);
+CREATE TABLE option_prices_p9 PARTITION OF option_prices FOR VALUES WITH (MODULUS 16, REMAINDER 9);
+CREATE TABLE option_prices_p10 PARTITION OF option_prices FOR VALUES WITH (MODULUS 16, REMAINDER 10);
+CREATE TABLE option_prices_p11 PARTITION OF option_prices FOR VALUES WITH (MODULUS 16, REMAINDER 11);
+CREATE TABLE option_prices_p12 PARTITION OF option_prices FOR VALUES WITH (MODULUS 16, REMAINDER 12);
+CREATE TABLE option_prices_p13 PARTITION OF option_prices FOR VALUES WITH (MODULUS 16, REMAINDER 13);
+CREATE TABLE option_prices_p14 PARTITION OF option_prices FOR VALUES WITH (MODULUS 16, REMAINDER 14);
+CREATE TABLE option_prices_p15 PARTITION OF option_prices FOR VALUES WITH (MODULUS 16, REMAINDER 15);
 
 CREATE INDEX ix_option_prices_underlier_day ON option_prices(underlier, day);
-CREATE INDEX ix_option_prices_underlier ON option_prices(underlier);
 
 CREATE TABLE statistics
 (
@@ -0,0 +1,184 @@
+-- Schema of the embedded H2 database (Database.Type = Embedded), created by the application on start.
+-- Same tables as database.sql, without the PostgreSQL partitions.
+
+-- Sequences
+CREATE SEQUENCE IF NOT EXISTS sq_underliers;
+CREATE SEQUENCE IF NOT EXISTS sq_strategies;
+CREATE SEQUENCE IF NOT EXISTS sq_trades;
+CREATE SEQUENCE IF NOT EXISTS sq_mtm;
+
+-- Tables
+CREATE TABLE IF NOT EXISTS underliers
+(
+   id bigint NOT NULL,
+   code character varying(31) NOT NULL,
+   invalid boolean NULL,
+
+   CONSTRAINT pk_underliers_id PRIMARY KEY(id),
+   CONSTRAINT uq_underliers_code UNIQUE(code)
+);
+
+CREATE TABLE IF NOT EXISTS stock_prices
+(
+   underlier bigint NOT NULL,
+   day date NOT NULL,
+   open double precision NOT NULL,
+   high double precision NOT NULL,
+   low double precision NOT NULL,
+   close double precision NOT NULL,
+   adjusted double precision NOT NULL,
+   implied double precision NULL,
+   volatility double precision NULL,
+   volume bigint NOT NULL,
+
+   CONSTRAINT fk_stock_prices_underlier FOREIGN KEY(underlier) REFERENCES underliers
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS ix_stock_prices_underlier_day ON stock_prices(underlier, day);
+
+CREATE TABLE IF NOT EXISTS option_prices
+(
+   underlier bigint NOT NULL,
+   code character varying(64) NOT NULL,
+   day date NOT NULL,
+   is_call boolean NOT NULL,
+   strike double precision NOT NULL,
+   maturity date NOT NULL,
+   bid double precision NULL,
+   ask double precision NULL,
+
+   CONSTRAINT fk_option_prices_underlier FOREIGN KEY(underlier) REFERENCES underliers
+);
+
+CREATE INDEX IF NOT EXISTS ix_option_prices_underlier_day ON option_prices(underlier, day);
+
+CREATE TABLE IF NOT EXISTS statistics
+(
+   underlier bigint NOT NULL,
+   day date NOT NULL,
+   spot_fwd_diff double precision NULL,
+   parity_total double precision NULL,
+   option_total double precision NULL,
+
+   CONSTRAINT fk_statistics_underlier FOREIGN KEY(underlier) REFERENCES underliers
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS ix_statistics_underlier_day ON statistics(underlier, day);
+
+CREATE TABLE IF NOT EXISTS forward_terms
+(
+   underlier bigint NOT NULL,
+   day date NOT NULL,
+   maturity date NOT NULL,
+   forward double precision NULL,
+   interest double precision NULL,
+
+   CONSTRAINT fk_forward_terms_underlier FOREIGN KEY(underlier) REFERENCES underliers
+);
+
+CREATE INDEX IF NOT EXISTS ix_forward_terms_underlier_day ON forward_terms(underlier, day);
+CREATE INDEX IF NOT EXISTS ix_forward_terms_underlier ON forward_terms(underlier);
+
+------------------
+CREATE TABLE IF NOT EXISTS stock_splits
+(
+    underlier bigint NOT NULL,
+    date date NOT NULL,
+    ratio double precision NOT NULL,
+
+    CONSTRAINT fk_stock_splits_underlier FOREIGN KEY(underlier) REFERENCES underliers,
+    CONSTRAINT uq_stock_splits UNIQUE(underlier, date)
+);
+
+CREATE INDEX IF NOT EXISTS ix_stock_splits_underlier ON stock_splits(underlier);
+
+CREATE TABLE IF NOT EXISTS stock_dividends
+(
+    underlier bigint NOT NULL,
+    date date NOT NULL,
+    dividend double precision NOT NULL,
+
+    CONSTRAINT fk_stock_dividends_underlier FOREIGN KEY(underlier) REFERENCES underliers,
+    CONSTRAINT uq_stock_dividends UNIQUE(underlier, date)
+);
+
+CREATE INDEX IF NOT EXISTS ix_stock_dividends_underlier ON stock_dividends(underlier);
+
+-- DROP TABLE strategies;
+CREATE TABLE IF NOT EXISTS strategies
+(
+   id bigint NOT NULL,
+   type character varying(64) NOT NULL,
+   number int NOT NULL,
+   multiplier double precision NULL,
+   underlier bigint NOT NULL,
+   execution_day date NOT NULL,
+   maturity_day date NULL,
+   volatility double precision NOT NULL,
+   execution_spot double precision NOT NULL,
+   expected_pnl_mean double precision NOT NULL,
+   expected_pnl_dev double precision NOT NULL,
+   realized_pnl double precision NULL,
+   capital double precision NOT NULL,
+   commission double precision NULL,
+   data character varying(1024) NULL,
+
+   CONSTRAINT pk_strategies_id PRIMARY KEY(id),
+   CONSTRAINT fk_strategies_underlier FOREIGN KEY(underlier) REFERENCES underliers
+);
+
+CREATE INDEX IF NOT EXISTS ix_strategies_underlier ON strategies(underlier);
+
+CREATE TABLE IF NOT EXISTS trades
+(
+   id bigint NOT NULL,
+   strategy bigint NOT NULL,
+   execution_day date NOT NULL,
+   instr_type character varying(32) NOT NULL,
+   instr_code character varying(32) NOT NULL,
+   instr_is_call boolean NULL,
+   instr_maturity date NULL,
+   instr_strike double precision NULL,
+   quantity double precision NOT NULL,
+   price double precision NOT NULL,
+   tv double precision NOT NULL,
+   commission double precision NULL,
+   label character varying(32) NULL,
+   is_static boolean NULL,
+
+   CONSTRAINT pk_trades_id PRIMARY KEY(id),
+   CONSTRAINT fk_trades_strategy FOREIGN KEY(strategy) REFERENCES strategies
+);
+
+CREATE INDEX IF NOT EXISTS ix_trades_strategy ON trades(strategy);
+
+CREATE TABLE IF NOT EXISTS mtm
+(
+    id bigint NOT NULL,
+    strategy bigint NOT NULL,
+    day date NOT NULL,
+    delta_position double precision NULL,
+    spot_price double precision NULL,
+    volatility double precision NULL,
+    market_profit double precision NULL,
+    theoretical_profit double precision NULL,
+
+    CONSTRAINT pk_mtm_id PRIMARY KEY(id),
+    CONSTRAINT fk_mtm_strategy FOREIGN KEY(strategy) REFERENCES strategies
+);
+
+CREATE INDEX IF NOT EXISTS ix_mtm_strategy ON mtm(strategy);
+
+CREATE TABLE IF NOT EXISTS nav
+(
+   day date NOT NULL,
+   strategy_type character varying(64) NOT NULL,
+   underlier bigint NULL,
+   available double precision NOT NULL,
+   allocated double precision NOT NULL,
+
+   CONSTRAINT fk_nav_underlier FOREIGN KEY(underlier) REFERENCES underliers
+);
+
+CREATE INDEX IF NOT EXISTS ix_nav_strategy_type_day ON nav(strategy_type, day);
+CREATE UNIQUE INDEX IF NOT EXISTS ix_nav_strategy_type_day_underlier ON nav(strategy_type, day, underlier);